@@ -10,6 +10,9 @@ import org.stepan.audio_disc.api.AudioDiscAPIImpl;
 import org.stepan.audio_disc.command.AudioDiscCommand;
 import org.stepan.audio_disc.config.AudioDiscConfig;
 import org.stepan.audio_disc.download.AudioDownloadManager;
+import org.stepan.audio_disc.download.HttpTransfer;
+import org.stepan.audio_disc.download.ToolJobScheduler;
+import org.stepan.audio_disc.download.UrlCache;
 import org.stepan.audio_disc.playback.PlaybackManager;
 import org.stepan.audio_disc.playback.SimpleVoiceChatIntegration;
 import org.stepan.audio_disc.processing.AudioProcessor;
@@ -23,6 +26,7 @@ public class Audio_disc implements ModInitializer {
     
     private static AudioDiscConfig config;
     private static AudioDownloadManager downloadManager;
+    private static ToolJobScheduler toolJobScheduler;
     private static AudioProcessor audioProcessor;
     private static AudioStorageManager storageManager;
     private static PlaybackManager playbackManager;
@@ -52,22 +56,37 @@ public class Audio_disc implements ModInitializer {
         
         // Initialize managers
         try {
+            Path storageDir = FabricLoader.getInstance().getGameDir()
+                .resolve(config.getStorageDirectory());
+            
             // Initialize download manager
             downloadManager = new AudioDownloadManager(
                 config.getMaxFileSize(),
                 config.getDownloadTimeout(),
-                5 // max concurrent downloads
+                config.getMaxConcurrentDownloads(),
+                config.getDownloadQueueSize(),
+                config.getDownloadQueueTimeout(),
+                new HttpTransfer.RangeOptions(config.getDownloadResumeAttempts(), config.getParallelDownloadRanges()),
+                new UrlCache(storageDir.resolve("url-cache.json"), config.getUrlCacheSize(), config.getUrlCacheFreshness())
             );
             LOGGER.info("AudioDownloadManager initialized");
             
+            // Initialize scheduler for yt-dlp and FFmpeg jobs
+            toolJobScheduler = new ToolJobScheduler(
+                config.getMaxConcurrentToolJobs(),
+                config.getToolJobQueueSize(),
+                config.getToolProcessNiceness(),
+                config.getToolJobTimeout()
+            );
+            LOGGER.info("ToolJobScheduler initialized");
+            
             // Initialize audio processor
             audioProcessor = new AudioProcessor();
             LOGGER.info("AudioProcessor initialized");
             
             // Initialize storage manager
-            Path storageDir = FabricLoader.getInstance().getGameDir()
-                .resolve(config.getStorageDirectory());
-            storageManager = new AudioStorageManager(storageDir);
+            storageManager = new AudioStorageManager(storageDir, config.getAudioCacheSize(),
+                config.isMemoryMapAudio());
             LOGGER.info("AudioStorageManager initialized");
             
             // Initialize Simple Voice Chat integration
@@ -88,7 +107,8 @@ public class Audio_disc implements ModInitializer {
             LOGGER.info("SimpleVoiceChatIntegration created");
             
             // Initialize playback manager
-            playbackManager = new PlaybackManager(voiceChatIntegration, storageManager);
+            playbackManager = new PlaybackManager(voiceChatIntegration, storageManager, config.getPcmCacheSize(),
+                config.getOpusFrameCacheSize());
             LOGGER.info("PlaybackManager initialized");
             
             // Initialize rate limiter (3 uploads per minute, 10 second cooldown)
@@ -107,6 +127,9 @@ public class Audio_disc implements ModInitializer {
             org.stepan.audio_disc.events.JukeboxEventHandler.register();
             LOGGER.info("Jukebox event handlers registered");
             
+            // Probe yt-dlp and FFmpeg once; later checks use the cached result
+            org.stepan.audio_disc.download.ToolRegistry.refresh();
+            
             // Initialize yt-dlp automatically on server start
             initializeYtDlp();
             
@@ -119,12 +142,21 @@ public class Audio_disc implements ModInitializer {
                 if (downloadManager != null) {
                     downloadManager.shutdown();
                 }
+                if (toolJobScheduler != null) {
+                    toolJobScheduler.shutdown();
+                }
                 if (playbackManager != null) {
                     playbackManager.shutdown();
                 }
                 if (voiceChatIntegration != null) {
                     voiceChatIntegration.stopAllStreams();
                 }
+                if (storageManager != null) {
+                    org.stepan.audio_disc.storage.AudioCache.Stats stats = storageManager.getCacheStats();
+                    LOGGER.info("Audio cache: {} hits, {} misses ({}% hit rate), {} evictions",
+                        stats.hits(), stats.misses(), Math.round(stats.hitRate() * 100), stats.evictions());
+                    storageManager.shutdown();
+                }
             }));
             
         } catch (Exception e) {
@@ -152,6 +184,15 @@ public class Audio_disc implements ModInitializer {
         return downloadManager;
     }
 
+    /**
+     * Gets the scheduler for jobs running external tools.
+     * 
+     * @return The tool job scheduler
+     */
+    public static ToolJobScheduler getToolJobScheduler() {
+        return toolJobScheduler;
+    }
+
     /**
      * Gets the audio processor instance.
      * 
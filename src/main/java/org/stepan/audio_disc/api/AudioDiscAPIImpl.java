@@ -4,7 +4,6 @@ import net.minecraft.item.ItemStack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stepan.audio_disc.Audio_disc;
-import org.stepan.audio_disc.model.AudioData;
 import org.stepan.audio_disc.model.AudioMetadata;
 import org.stepan.audio_disc.storage.AudioStorageManager;
 
@@ -95,8 +94,7 @@ public class AudioDiscAPIImpl implements AudioDiscAPI {
             return Optional.empty();
         }
         
-        Optional<AudioData> audioData = storageManager.getAudio(audioId);
-        return audioData.map(AudioData::metadata);
+        return storageManager.getMetadata(audioId);
     }
 
     @Override
@@ -275,6 +273,15 @@ public class AudioDiscAPIImpl implements AudioDiscAPI {
         }
     }
 
+    /**
+     * Checks if there are any registered event listeners.
+     * 
+     * @return true if there are event listeners, false otherwise
+     */
+    public boolean hasEventListeners() {
+        return !listeners.isEmpty();
+    }
+
     /**
      * Checks if there are any registered stream listeners.
      * 
@@ -18,6 +18,13 @@ import org.stepan.audio_disc.api.AudioDiscAPIImpl;
 import org.stepan.audio_disc.api.AudioUploadEvent;
 import org.stepan.audio_disc.config.AudioDiscConfig;
 import org.stepan.audio_disc.download.AudioDownloadManager;
+import org.stepan.audio_disc.download.AudioIngest;
+import org.stepan.audio_disc.download.HttpTransfer;
+import org.stepan.audio_disc.download.ToolJobScheduler;
+import org.stepan.audio_disc.download.ToolRegistry;
+import org.stepan.audio_disc.download.UrlCache;
+import org.stepan.audio_disc.download.YtDlpPipeline;
+import org.stepan.audio_disc.exception.AudioDiscException;
 import org.stepan.audio_disc.model.AudioMetadata;
 import org.stepan.audio_disc.model.ValidationResult;
 import org.stepan.audio_disc.processing.AudioProcessor;
@@ -26,11 +33,15 @@ import org.stepan.audio_disc.util.RateLimiter;
 import org.stepan.audio_disc.util.Localization;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class AudioDiscCommand {
     private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
@@ -62,6 +73,12 @@ public class AudioDiscCommand {
                 .requires(source -> source.hasPermissionLevel(3))
                 .executes(AudioDiscCommand::executeReload)
             )
+            .then(CommandManager.literal("tools")
+                .requires(source -> source.hasPermissionLevel(3))
+                .then(CommandManager.literal("refresh")
+                    .executes(AudioDiscCommand::executeToolsRefresh)
+                )
+            )
             .then(CommandManager.literal("lang")
                 .requires(source -> source.hasPermissionLevel(3))
                 .then(CommandManager.literal("create")
@@ -186,15 +203,13 @@ public class AudioDiscCommand {
         player.sendMessage(Text.literal(Localization.getForPlayer("command.youtube.starting", player)), false);
         player.sendMessage(Text.literal("§7URL: " + url), false);
         
-        // Process asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                processYouTubeDownload(player, url, player.getMainHandStack());
-            } catch (Exception e) {
-                LOGGER.error("Error processing YouTube download", e);
-                player.sendMessage(Text.literal("§cОшибка загрузки: " + e.getMessage()), false);
-            }
-        });
+        // Only queues the download on the tool job scheduler; it runs on the scheduler's threads
+        try {
+            processYouTubeDownload(player, url, player.getMainHandStack());
+        } catch (Exception e) {
+            LOGGER.error("Error processing YouTube download", e);
+            player.sendMessage(Text.literal("§cОшибка загрузки: " + e.getMessage()), false);
+        }
 
         return 1;
     }
@@ -233,14 +248,14 @@ public class AudioDiscCommand {
                 return 0;
             }
 
-            var audioData = storageManager.getAudio(audioId);
-            if (audioData.isEmpty()) {
+            // Served from the metadata index, without reading the audio file
+            var metadataOpt = storageManager.getMetadata(audioId);
+            if (metadataOpt.isEmpty()) {
                 player.sendMessage(Text.literal(Localization.getForPlayer("command.info.no_audio", player)), false);
                 return 0;
             }
 
-            var audio = audioData.get();
-            var metadata = audio.getMetadata();
+            var metadata = metadataOpt.get();
             
             // Display info
             player.sendMessage(Text.literal(Localization.getForPlayer("command.info.header", player)), false);
@@ -261,8 +276,9 @@ public class AudioDiscCommand {
                 player.sendMessage(Text.literal(Localization.formatForPlayer("command.info.sample_rate", player, metadata.sampleRate())), false);
             }
             
-            player.sendMessage(Text.literal(Localization.formatForPlayer("command.info.uploaded_by", player, audio.getUploadedBy())), false);
-            player.sendMessage(Text.literal(Localization.formatForPlayer("command.info.file_size", player, formatFileSize(audio.getData().length))), false);
+            player.sendMessage(Text.literal(Localization.formatForPlayer("command.info.uploaded_by", player, storageManager.getUploadedBy(audioId).orElse("?"))), false);
+            storageManager.getStoredSize(audioId).ifPresent(size ->
+                player.sendMessage(Text.literal(Localization.formatForPlayer("command.info.file_size", player, formatFileSize(size))), false));
             
         } catch (Exception e) {
             LOGGER.error("Error getting disc info", e);
@@ -350,6 +366,26 @@ public class AudioDiscCommand {
         return 1;
     }
 
+    /**
+     * Probes yt-dlp and FFmpeg again, for example after installing them on the system.
+     */
+    private static int executeToolsRefresh(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        
+        source.sendFeedback(() -> Text.literal("§7Проверка внешних инструментов..."), false);
+        
+        CompletableFuture.runAsync(ToolRegistry::refresh).thenRun(() -> {
+            for (ToolRegistry.Tool tool : ToolRegistry.Tool.values()) {
+                ToolRegistry.get(tool).ifPresentOrElse(
+                    info -> source.sendFeedback(() -> Text.literal("§a✅ " + tool.getDisplayName() + " " + info.version() + " §7(" + info.path() + ")"), true),
+                    () -> source.sendFeedback(() -> Text.literal("§c❌ " + tool.getDisplayName() + " недоступен"), true)
+                );
+            }
+        });
+        
+        return 1;
+    }
+
     /**
      * Creates a full language file for customization.
      */
@@ -693,88 +729,370 @@ public class AudioDiscCommand {
                 return;
             }
 
+            // Reuse an earlier download of the same URL if its audio is still stored
+            UrlCache urlCache = downloadManager.getUrlCache();
+            UrlCache.Entry cached = urlCache == null ? null : urlCache.get(url)
+                .filter(entry -> storageManager.getContentHash(entry.audioId()).map(entry.contentHash()::equals).orElse(false))
+                .orElse(null);
+            if (cached != null && urlCache.isFresh(cached)) {
+                LOGGER.info("Reusing recent download of {} without revalidating", url);
+                if (reuseCachedUpload(player, disc, url, cached)) {
+                    return;
+                }
+                cached = null;
+            }
+
             // Create progress tracker for simplified progress reporting
             ProgressTracker progressTracker = new ProgressTracker(player);
-            progressTracker.setStage("downloading");
 
-            // Download audio file
-            CompletableFuture<byte[]> downloadFuture = downloadManager.downloadAudio(url, player.getUuid(), progress -> {
-                // Update progress every 10%
-                if (progress % 10 == 0) {
-                    progressTracker.updateProgress(progress / 4); // Download is 25% of total process
+            // Players uploading the same URL at the same time share one download
+            UrlCache.Entry revalidating = cached;
+            AtomicBoolean firstUploader = new AtomicBoolean();
+            downloadManager.coalesce(AudioDownloadManager.normalizeUrl(url), progressTracker::updateProgress, progress -> {
+                firstUploader.set(true);
+                return uploadFromUrl(player, url, revalidating, progress);
+            }).thenAccept(storedId -> {
+                // Everyone but the first uploader gets their own audio ID for the shared file
+                String audioId = firstUploader.get() ? storedId
+                    : storageManager.shareAudio(storedId, player.getName().getString()).orElse(null);
+                AudioMetadata metadata = audioId == null ? null : storageManager.getMetadata(audioId).orElse(null);
+                if (metadata == null) {
+                    player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.error", player, "Audio was removed")), false);
+                    return;
                 }
+
+                // Success message
+                player.sendMessage(Text.literal(Localization.getForPlayer("command.upload.success", player)), false);
+                completeUpload(player, disc, audioId, metadata);
+            }).exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+                if (cause instanceof AudioDiscException audioError
+                        && audioError.getType() != AudioDiscException.ErrorType.DOWNLOAD_FAILED) {
+                    LOGGER.error("Error processing uploaded audio", cause);
+                    player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.error", player, audioError.getUserMessage())), false);
+                } else {
+                    LOGGER.error("Error downloading audio", cause);
+                    player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.download_failed", player, cause.getMessage())), false);
+                }
+                return null;
             });
-            
-            downloadFuture.thenAccept(audioData -> {
+
+        } catch (Exception e) {
+            LOGGER.error("Direct upload failed", e);
+            player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.download_failed", player, e.getMessage())), false);
+        }
+    }
+
+    /**
+     * Downloads, validates and stores the audio at a URL under the given player's name,
+     * or reuses the cached copy if the server confirms it is still current.
+     *
+     * @param revalidating The cached download to revalidate, or null to always download
+     * @param progress Receives the overall progress (0-100)
+     * @return A future completing with the stored audio ID
+     */
+    private static CompletableFuture<String> uploadFromUrl(ServerPlayerEntity player, String url,
+                                                           UrlCache.Entry revalidating, Consumer<Integer> progress) {
+        AudioDownloadManager downloadManager = Audio_disc.getDownloadManager();
+        AudioStorageManager storageManager = Audio_disc.getStorageManager();
+        UrlCache urlCache = downloadManager.getUrlCache();
+
+        // Download audio file straight to disk, unless the server confirms the cached copy is current
+        java.nio.file.Path incomingFile;
+        try {
+            incomingFile = storageManager.newIncomingFile();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(AudioDiscException.storageError(e.getMessage(), e));
+        }
+
+        return downloadManager.downloadAudio(url, player.getUuid(), incomingFile, percent -> {
+            // Update progress every 10%
+            if (percent % 10 == 0) {
+                progress.accept(percent / 4); // Download is 25% of total process
+            }
+        }, position -> player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.queued", player, position)), false),
+            revalidating != null ? revalidating.validators() : HttpTransfer.Validators.NONE
+        ).whenComplete((result, error) -> {
+            if (error != null) {
+                deleteQuietly(incomingFile);
+            }
+        }).thenCompose(result -> {
+            if (result.notModified()) {
+                String audioId = storageManager.shareAudio(revalidating.audioId(), player.getName().getString()).orElse(null);
+                if (audioId == null) {
+                    // The cached audio was removed meanwhile, download it again
+                    urlCache.invalidate(url);
+                    return uploadFromUrl(player, url, null, progress);
+                }
+                urlCache.put(url, audioId, revalidating.contentHash(), revalidating.validators());
+                progress.accept(100);
+                return CompletableFuture.completedFuture(audioId);
+            }
+
+            // Only a download that passes validation is handed to FFmpeg
+            try {
+                validateDownload(result.file());
+            } catch (AudioDiscException e) {
+                deleteQuietly(result.file());
+                return CompletableFuture.failedFuture(e);
+            }
+
+            // Normalize on the tool scheduler, then store from its thread
+            CompletableFuture<java.nio.file.Path> ingested = ingestOptions().normalize()
+                ? Audio_disc.getToolJobScheduler().submit("ingest " + url, context -> ingest(context, result.file()), null)
+                    .exceptionally(e -> {
+                        // Busy, timed out or cancelled: store the upload as is
+                        LOGGER.warn("Audio ingest did not run, storing the upload as is: {}",
+                            e instanceof CompletionException && e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                        return result.file();
+                    })
+                : CompletableFuture.completedFuture(result.file());
+            return ingested.thenCompose(audioFile -> {
                 try {
-                    if (audioData == null || audioData.length == 0) {
-                        player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.download_failed", player, "File not found")), false);
-                        return;
-                    }
+                    return CompletableFuture.completedFuture(
+                        storeDownloadedAudio(player, url, audioFile, result.validators(), progress));
+                } catch (AudioDiscException e) {
+                    return CompletableFuture.failedFuture(e);
+                } finally {
+                    deleteQuietly(audioFile);
+                }
+            }).whenComplete((audioId, error) -> deleteQuietly(result.file()));
+        });
+    }
+
+    /**
+     * Gets how uploads are converted by FFmpeg, from the config.
+     */
+    private static AudioIngest.Options ingestOptions() {
+        AudioDiscConfig config = Audio_disc.getConfig();
+        if (config == null || !config.isIngestNormalize()) {
+            return AudioIngest.Options.CONVERT_ONLY;
+        }
+        return new AudioIngest.Options(true, config.getIngestFormat(), config.getIngestLoudness());
+    }
 
-                    progressTracker.updateProgress(30); // Download complete
+    /**
+     * Passes an uploaded file through the FFmpeg ingest stage, so it is stored as
+     * 48 kHz mono at the configured loudness.
+     *
+     * @param context The tool job running the conversion
+     * @param file The uploaded file
+     * @return A new file with the converted audio, or the uploaded file itself if it
+     *         is not converted; the caller deletes both
+     */
+    private static Path ingest(ToolJobScheduler.JobContext context, Path file) throws InterruptedException {
+        AudioIngest.Options options = ingestOptions();
+        if (!options.normalize() || !isFFmpegAvailable()) {
+            return file;
+        }
 
-                    // Validate audio format
-                    ValidationResult validation = audioProcessor.validateFormat(audioData);
-                    if (!validation.valid()) {
-                        player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.error", player, validation.errorMessage())), false);
-                        return;
-                    }
+        Path output = null;
+        try {
+            output = Audio_disc.getStorageManager().newIncomingFile();
+            if (AudioIngest.transcode(context, getFFmpegExecutablePath(), file, output, options)
+                    && !context.isStopped()
+                    && java.nio.file.Files.size(output) <= AudioProcessor.getMaxFileSize()) {
+                return output;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Audio ingest failed, storing the upload as is: {}", e.getMessage());
+        }
+        if (output != null) {
+            deleteQuietly(output);
+        }
+        return file;
+    }
 
-                    progressTracker.setStage("processing");
-                    progressTracker.updateProgress(50);
+    /**
+     * Checks that a downloaded file is not empty and is in a supported audio format.
+     *
+     * @throws AudioDiscException if the file is empty, unsupported or cannot be read
+     */
+    private static void validateDownload(java.nio.file.Path audioFile) throws AudioDiscException {
+        try {
+            if (java.nio.file.Files.size(audioFile) == 0) {
+                throw AudioDiscException.downloadFailed("File not found", null);
+            }
 
-                    // Extract metadata
-                    org.stepan.audio_disc.model.AudioMetadata metadata = audioProcessor.extractMetadata(audioData);
-                    
-                    // Process audio
-                    byte[] processedData = audioProcessor.processAudio(audioData);
+            ValidationResult validation = Audio_disc.getAudioProcessor().validateFormat(audioFile);
+            if (!validation.valid()) {
+                throw AudioDiscException.unsupportedFormat(validation.errorMessage());
+            }
+        } catch (IOException e) {
+            throw AudioDiscException.storageError(e.getMessage(), e);
+        }
+    }
 
-                    progressTracker.setStage("saving");
-                    progressTracker.updateProgress(80);
+    /**
+     * Validates a downloaded file, or its ingested conversion, and moves it into storage.
+     *
+     * @return The stored audio ID
+     */
+    private static String storeDownloadedAudio(ServerPlayerEntity player, String url, java.nio.file.Path audioFile,
+                                               HttpTransfer.Validators validators,
+                                               Consumer<Integer> progress) throws AudioDiscException {
+        AudioProcessor audioProcessor = Audio_disc.getAudioProcessor();
+        AudioStorageManager storageManager = Audio_disc.getStorageManager();
+        UrlCache urlCache = Audio_disc.getDownloadManager().getUrlCache();
 
-                    // Store audio
-                    String audioId = storageManager.storeAudio(processedData, metadata, player.getName().getString());
-                    
-                    // Attach to disc
-                    storageManager.attachToDisc(disc, audioId);
+        try {
+            progress.accept(30); // Download complete
 
-                    progressTracker.updateProgress(100);
+            // Validate audio format
+            validateDownload(audioFile);
 
-                    // Success message
-                    player.sendMessage(Text.literal(Localization.getForPlayer("command.upload.success", player)), false);
+            progress.accept(50);
 
-                    // Record successful upload for rate limiting
-                    org.stepan.audio_disc.util.RateLimiter rateLimiter = Audio_disc.getRateLimiter();
-                    if (rateLimiter != null) {
-                        rateLimiter.recordUpload(player.getUuid());
-                    }
+            // Extract metadata
+            AudioMetadata metadata = audioProcessor.extractMetadata(audioFile);
 
-                    // Fire API event
-                    AudioDiscAPIImpl.getInstance().fireAudioUploadEvent(new AudioUploadEvent(
-                        player, disc, audioId, metadata, System.currentTimeMillis()
-                    ));
+            progress.accept(80);
 
-                } catch (Exception e) {
-                    LOGGER.error("Error processing uploaded audio", e);
-                    player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.error", player, e.getMessage())), false);
-                }
-            }).exceptionally(throwable -> {
-                LOGGER.error("Error downloading audio", throwable);
-                player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.download_failed", player, throwable.getMessage())), false);
-                return null;
-            });
+            // Store audio, moving the downloaded file into place
+            String audioId = storageManager.storeAudio(audioFile, metadata, player.getName().getString());
+            preparePlaybackSidecar(audioProcessor, storageManager, audioId);
 
+            // Remember the download for repeat uploads of the same URL
+            if (urlCache != null) {
+                storageManager.getContentHash(audioId).ifPresent(hash ->
+                    urlCache.put(url, audioId, hash, validators));
+            }
+
+            progress.accept(100);
+            return audioId;
+        } catch (AudioDiscException e) {
+            throw e;
         } catch (Exception e) {
-            LOGGER.error("Direct upload failed", e);
-            player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.download_failed", player, e.getMessage())), false);
+            throw AudioDiscException.storageError(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Attaches a new audio ID for a recent download of the same URL to the disc,
+     * without downloading or processing anything.
+     *
+     * @return false if the cached audio is no longer stored; the cache entry is dropped
+     */
+    private static boolean reuseCachedUpload(ServerPlayerEntity player, ItemStack disc, String url,
+                                             UrlCache.Entry cached) {
+        AudioStorageManager storageManager = Audio_disc.getStorageManager();
+        UrlCache urlCache = Audio_disc.getDownloadManager().getUrlCache();
+
+        String audioId = storageManager.shareAudio(cached.audioId(), player.getName().getString()).orElse(null);
+        AudioMetadata metadata = audioId == null ? null
+            : storageManager.getMetadata(audioId).orElse(null);
+        if (metadata == null) {
+            urlCache.invalidate(url);
+            return false;
         }
+
+        // Point the entry at the newest copy, which outlives older ones being cleaned up
+        urlCache.relink(url, audioId);
+
+        preparePlaybackSidecar(Audio_disc.getAudioProcessor(), storageManager, audioId);
+        player.sendMessage(Text.literal(Localization.getForPlayer("command.upload.success", player)), false);
+        completeUpload(player, disc, audioId, metadata);
+        return true;
+    }
+
+    /**
+     * Attaches stored audio to the disc and records the finished upload.
+     */
+    private static void completeUpload(ServerPlayerEntity player, ItemStack disc, String audioId,
+                                       AudioMetadata metadata) {
+        // Attach to disc
+        Audio_disc.getStorageManager().attachToDisc(disc, audioId);
+
+        // Record successful upload for rate limiting
+        RateLimiter rateLimiter = Audio_disc.getRateLimiter();
+        if (rateLimiter != null) {
+            rateLimiter.recordUpload(player.getUuid());
+        }
+
+        // Fire API event
+        AudioDiscAPIImpl.getInstance().fireAudioUploadEvent(new AudioUploadEvent(
+            player, disc, audioId, metadata, System.currentTimeMillis()
+        ));
     }
 
     /**
      * Processes YouTube download using yt-dlp and then processes through upload logic.
+     * Returns as soon as the download is queued; the player is told the outcome later.
      */
     private static void processYouTubeDownload(ServerPlayerEntity player, String youtubeUrl, ItemStack disc) {
+        AudioDownloadManager downloadManager = Audio_disc.getDownloadManager();
+        AudioStorageManager storageManager = Audio_disc.getStorageManager();
+        if (downloadManager == null || storageManager == null || Audio_disc.getToolJobScheduler() == null) {
+            player.sendMessage(Text.literal("§cОшибка: системы мода не инициализированы"), false);
+            return;
+        }
+
+        String videoId = extractVideoId(youtubeUrl);
+        Consumer<Integer> progressMessages = progress -> {
+            if (progress % 25 == 0) {
+                player.sendMessage(Text.literal("§7Прогресс: " + progress + "%"), false);
+            }
+        };
+
+        // Players requesting the same video at the same time share one download, and
+        // downloads of different videos take turns on the tool job scheduler
+        AtomicBoolean firstUploader = new AtomicBoolean();
+        downloadManager.coalesce("youtube:" + videoId, progressMessages, progress -> {
+            firstUploader.set(true);
+            return Audio_disc.getToolJobScheduler().submit("YouTube " + videoId,
+                context -> downloadYouTubeAudio(player, youtubeUrl, videoId, progress, context),
+                position -> player.sendMessage(Text.literal(Localization.formatForPlayer("command.upload.queued", player, position)), false));
+        }).thenAccept(storedId -> {
+            if (storedId == null) {
+                // The first uploader has already been told what went wrong
+                if (!firstUploader.get()) {
+                    player.sendMessage(Text.literal("§cОшибка загрузки с YouTube"), false);
+                }
+                return;
+            }
+
+            // Everyone but the first uploader gets their own audio ID for the shared file
+            String audioId = firstUploader.get() ? storedId
+                : storageManager.shareAudio(storedId, player.getName().getString()).orElse(null);
+            AudioMetadata metadata = audioId == null ? null : storageManager.getMetadata(audioId).orElse(null);
+            if (metadata == null) {
+                player.sendMessage(Text.literal("§cОшибка загрузки с YouTube"), false);
+                return;
+            }
+
+            completeUpload(player, disc, audioId, metadata);
+
+            // Success message
+            player.sendMessage(Text.literal("§a✅ YouTube аудио успешно добавлено на диск!"), false);
+            player.sendMessage(Text.literal("§7ID: " + audioId), false);
+            
+            String title = extractVideoTitle(youtubeUrl, videoId);
+            player.sendMessage(Text.literal("§7Название: " + title), false);
+            
+            if (metadata.duration() > 0) {
+                long durationSeconds = metadata.duration() / 1000;
+                long minutes = durationSeconds / 60;
+                long seconds = durationSeconds % 60;
+                player.sendMessage(Text.literal(String.format("§7Длительность: %d:%02d", minutes, seconds)), false);
+            }
+        }).exceptionally(throwable -> {
+            LOGGER.error("YouTube upload failed", throwable);
+            player.sendMessage(Text.literal("§cОшибка загрузки с YouTube: " + throwable.getMessage()), false);
+            return null;
+        });
+    }
+
+    /**
+     * Downloads a YouTube video's audio with yt-dlp, converts it if needed and stores it
+     * under the given player's name. Problems are reported to that player.
+     *
+     * @param progress Receives the download progress (0-100)
+     * @param context Starts yt-dlp and FFmpeg within the calling tool job
+     * @return The stored audio ID, or null if the upload failed
+     */
+    private static String downloadYouTubeAudio(ServerPlayerEntity player, String youtubeUrl, String videoId,
+                                               Consumer<Integer> progress, ToolJobScheduler.JobContext context) {
         try {
             LOGGER.info("Starting YouTube download and conversion to MP3: {}", youtubeUrl);
             
@@ -784,7 +1102,6 @@ public class AudioDiscCommand {
                 tempDir.toFile().mkdirs();
             }
 
-            String videoId = extractVideoId(youtubeUrl);
             String outputFileName = videoId + ".mp3";
             Path outputFile = tempDir.resolve(outputFileName);
 
@@ -792,13 +1109,19 @@ public class AudioDiscCommand {
             String ytDlpPath = org.stepan.audio_disc.download.YtDlpManager.getExecutablePath();
             if (ytDlpPath == null) {
                 player.sendMessage(Text.literal("§cОшибка: yt-dlp недоступен"), false);
-                return;
+                return null;
             }
 
             player.sendMessage(Text.literal("§7Скачивание видео с YouTube..."), false);
 
             // Check if FFmpeg is available for conversion
             boolean hasFFmpeg = isFFmpegAvailable();
+
+            // Streaming needs FFmpeg to convert on the way; without it, download to a temp
+            // file, which waits for FFmpeg to be installed and converts afterwards
+            if (hasFFmpeg && (Audio_disc.getConfig() == null || Audio_disc.getConfig().isStreamYouTubeDownloads())) {
+                return streamYouTubeAudio(player, youtubeUrl, ytDlpPath, getFFmpegExecutablePath(), progress, context);
+            }
             
             ProcessBuilder pb;
             if (hasFFmpeg) {
@@ -830,7 +1153,7 @@ public class AudioDiscCommand {
             pb.directory(tempDir.toFile());
             pb.redirectErrorStream(true);
 
-            Process process = pb.start();
+            Process process = context.start(ToolRegistry.Tool.YT_DLP, pb);
             
             // Capture output for debugging and progress
             StringBuilder output = new StringBuilder();
@@ -841,27 +1164,17 @@ public class AudioDiscCommand {
                     LOGGER.debug("yt-dlp: {}", line);
                     
                     // Show progress to user
-                    if (line.contains("[download]") && line.contains("%")) {
-                        // Extract percentage from yt-dlp output
-                        try {
-                            String percent = line.substring(line.indexOf("]") + 1).trim();
-                            if (percent.contains("%")) {
-                                percent = percent.substring(0, percent.indexOf("%")).trim();
-                                if (percent.matches("\\d+\\.\\d+")) {
-                                    int progress = (int) Double.parseDouble(percent);
-                                    if (progress % 25 == 0) {
-                                        player.sendMessage(Text.literal("§7Прогресс: " + progress + "%"), false);
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            // Ignore parsing errors
-                        }
+                    int percent = YtDlpPipeline.parseProgress(line);
+                    if (percent >= 0) {
+                        progress.accept(percent);
                     }
                 }
             }
 
             int exitCode = process.waitFor();
+            if (context.isStopped()) {
+                return null; // Timed out or cancelled, the player has already been told
+            }
             
             LOGGER.info("yt-dlp finished with exit code: {}", exitCode);
             if (output.length() > 0) {
@@ -873,15 +1186,8 @@ public class AudioDiscCommand {
                 LOGGER.error("yt-dlp failed with exit code: {}", exitCode);
                 
                 String errorMsg = output.toString();
-                if (errorMsg.contains("Sign in to confirm")) {
-                    player.sendMessage(Text.literal("§cОшибка: видео требует авторизации"), false);
-                    return;
-                } else if (errorMsg.contains("Video unavailable")) {
-                    player.sendMessage(Text.literal("§cОшибка: видео недоступно"), false);
-                    return;
-                } else if (errorMsg.contains("Private video")) {
-                    player.sendMessage(Text.literal("§cОшибка: приватное видео"), false);
-                    return;
+                if (reportKnownYtDlpError(player, errorMsg)) {
+                    return null;
                 } else if (errorMsg.contains("ffmpeg not found") || errorMsg.contains("ffprobe and ffmpeg not found")) {
                     player.sendMessage(Text.literal("§eВнимание: FFmpeg не найден для конвертации в MP3"), false);
                     player.sendMessage(Text.literal("§7Попробуем использовать скачанный файл напрямую..."), false);
@@ -890,7 +1196,7 @@ public class AudioDiscCommand {
                 } else {
                     player.sendMessage(Text.literal("§cОшибка загрузки с YouTube"), false);
                     player.sendMessage(Text.literal("§7Проверьте ссылку и попробуйте еще раз"), false);
-                    return;
+                    return null;
                 }
             }
 
@@ -908,7 +1214,7 @@ public class AudioDiscCommand {
                 } else {
                     LOGGER.error("No audio file found after yt-dlp conversion");
                     player.sendMessage(Text.literal("§cОшибка: конвертированный файл не найден"), false);
-                    return;
+                    return null;
                 }
             }
 
@@ -922,9 +1228,6 @@ public class AudioDiscCommand {
             }
             player.sendMessage(Text.literal("§7Размер: " + formatFileSize(mp3File.length())), false);
 
-            // Read the MP3 file
-            byte[] audioData = java.nio.file.Files.readAllBytes(mp3File.toPath());
-            
             // Now use the upload logic to process the audio
             player.sendMessage(Text.literal("§7Обработка аудио через систему мода..."), false);
             
@@ -934,7 +1237,7 @@ public class AudioDiscCommand {
 
             if (audioProcessor == null || storageManager == null) {
                 player.sendMessage(Text.literal("§cОшибка: системы мода не инициализированы"), false);
-                return;
+                return null;
             }
 
             // Handle WebM format
@@ -947,79 +1250,74 @@ public class AudioDiscCommand {
                     player.sendMessage(Text.literal("§7FFmpeg не найден, ожидаем автоматической установки..."), false);
                     
                     // Wait up to 30 seconds for FFmpeg to be installed
-                    boolean ffmpegReady = waitForFFmpeg(30);
+                    boolean ffmpegReady = waitForFFmpeg(30, context);
+                    if (context.isStopped()) {
+                        return null;
+                    }
                     if (!ffmpegReady) {
                         player.sendMessage(Text.literal("§cFFmpeg не установился в течение 30 секунд"), false);
                         player.sendMessage(Text.literal("§7WebM не поддерживается для воспроизведения"), false);
                         player.sendMessage(Text.literal("§7Попробуйте позже или установите FFmpeg вручную"), false);
-                        return;
+                        return null;
                     } else {
                         player.sendMessage(Text.literal("§aFFmpeg установлен! Конвертируем WebM..."), false);
                     }
                 }
                 
                 // Try to convert WebM to MP3 using FFmpeg
-                java.io.File convertedFile = tryConvertWebMToOgg(mp3File, tempDir);
+                java.io.File convertedFile = tryConvertWebMToOgg(mp3File, tempDir, context);
+                if (context.isStopped()) {
+                    if (convertedFile != null) {
+                        convertedFile.delete();
+                    }
+                    return null;
+                }
                 if (convertedFile != null) {
                     player.sendMessage(Text.literal("§aWebM успешно конвертирован в MP3"), false);
                     mp3File = convertedFile;
-                    audioData = java.nio.file.Files.readAllBytes(mp3File.toPath());
                 } else {
                     player.sendMessage(Text.literal("§cНе удалось конвертировать WebM"), false);
                     player.sendMessage(Text.literal("§7Проверьте логи сервера для подробностей"), false);
-                    return;
+                    return null;
                 }
             }
 
-            // Validate audio format
-            ValidationResult validation = audioProcessor.validateFormat(audioData);
-            if (!validation.valid()) {
-                player.sendMessage(Text.literal("§cОшибка: " + validation.errorMessage()), false);
-                return;
-            }
-
-            // Extract metadata
-            org.stepan.audio_disc.model.AudioMetadata metadata = audioProcessor.extractMetadata(audioData);
-            
-            // Process audio
-            byte[] processedData = audioProcessor.processAudio(audioData);
+            // Normalize into the storage format
+            Path audioFile = ingest(context, mp3File.toPath());
+            try {
+                if (context.isStopped()) {
+                    return null;
+                }
 
-            // Store audio
-            String audioId = storageManager.storeAudio(processedData, metadata, player.getName().getString());
-            
-            // Attach to disc
-            storageManager.attachToDisc(disc, audioId);
+                // Validate audio format
+                ValidationResult validation = audioProcessor.validateFormat(audioFile);
+                if (!validation.valid()) {
+                    player.sendMessage(Text.literal("§cОшибка: " + validation.errorMessage()), false);
+                    return null;
+                }
 
-            // Success message
-            player.sendMessage(Text.literal("§a✅ YouTube аудио успешно добавлено на диск!"), false);
-            player.sendMessage(Text.literal("§7ID: " + audioId), false);
-            
-            String title = extractVideoTitle(youtubeUrl, videoId);
-            player.sendMessage(Text.literal("§7Название: " + title), false);
-            
-            if (metadata.duration() > 0) {
-                long durationSeconds = metadata.duration() / 1000;
-                long minutes = durationSeconds / 60;
-                long seconds = durationSeconds % 60;
-                player.sendMessage(Text.literal(String.format("§7Длительность: %d:%02d", minutes, seconds)), false);
-            }
+                // Extract metadata
+                org.stepan.audio_disc.model.AudioMetadata metadata = audioProcessor.extractMetadata(audioFile);
 
-            // Record successful upload for rate limiting
-            org.stepan.audio_disc.util.RateLimiter rateLimiter = Audio_disc.getRateLimiter();
-            if (rateLimiter != null) {
-                rateLimiter.recordUpload(player.getUuid());
+                // Store audio, moving the file into place, unless the job ran out of time meanwhile
+                if (context.isStopped()) {
+                    return null;
+                }
+                String audioId = storageManager.storeAudio(audioFile, metadata, player.getName().getString());
+                preparePlaybackSidecar(audioProcessor, storageManager, audioId);
+                return audioId;
+            } finally {
+                // Clean up
+                deleteQuietly(audioFile);
+                mp3File.delete();
+                LOGGER.info("Cleaned up temporary file: {}", mp3File.getName());
             }
 
-            // Fire API event
-            AudioDiscAPIImpl.getInstance().fireAudioUploadEvent(new AudioUploadEvent(
-                player, disc, audioId, metadata, System.currentTimeMillis()
-            ));
-
-            // Clean up
-            mp3File.delete();
-            LOGGER.info("Cleaned up temporary file: {}", mp3File.getName());
-
         } catch (Exception e) {
+            if (context.isStopped()) {
+                LOGGER.info("YouTube download stopped: {}", e.getMessage());
+                return null;
+            }
             LOGGER.error("YouTube download and conversion failed", e);
             
             if (e.getMessage() != null) {
@@ -1036,9 +1334,94 @@ public class AudioDiscCommand {
             } else {
                 player.sendMessage(Text.literal("§cНеизвестная ошибка при загрузке с YouTube"), false);
             }
+            return null;
         }
     }
 
+    /**
+     * Streams a video's audio from yt-dlp, through FFmpeg if available, straight into
+     * a new storage file, then stores it without any temporary files.
+     *
+     * @param ffmpegPath FFmpeg to transcode with
+     * @return The stored audio ID, or null if the upload failed
+     */
+    private static String streamYouTubeAudio(ServerPlayerEntity player, String youtubeUrl, String ytDlpPath,
+                                             String ffmpegPath, Consumer<Integer> progress,
+                                             ToolJobScheduler.JobContext context) throws Exception {
+        AudioProcessor audioProcessor = Audio_disc.getAudioProcessor();
+        AudioStorageManager storageManager = Audio_disc.getStorageManager();
+        if (audioProcessor == null || storageManager == null) {
+            player.sendMessage(Text.literal("§cОшибка: системы мода не инициализированы"), false);
+            return null;
+        }
+
+        player.sendMessage(Text.literal("§7FFmpeg найден, конвертируем в MP3..."), false);
+
+        Path incomingFile = storageManager.newIncomingFile();
+        try {
+            YtDlpPipeline.Result result = YtDlpPipeline.run(context, ytDlpPath, ffmpegPath, ingestOptions(),
+                youtubeUrl, incomingFile, AudioProcessor.getMaxFileSize(), progress);
+            LOGGER.info("yt-dlp pipeline finished with exit code {} after {} bytes", result.exitCode(), result.bytes());
+            if (context.isStopped()) {
+                return null; // Timed out or cancelled, the player has already been told
+            }
+
+            if (!result.succeeded()) {
+                LOGGER.error("yt-dlp failed with exit code: {}\n{}", result.exitCode(), result.log());
+                if (!result.ffmpegLog().isEmpty()) {
+                    LOGGER.error("FFmpeg output:\n{}", result.ffmpegLog());
+                }
+                if (!reportKnownYtDlpError(player, result.log())) {
+                    player.sendMessage(Text.literal("§cОшибка загрузки с YouTube"), false);
+                    player.sendMessage(Text.literal("§7Проверьте ссылку и попробуйте еще раз"), false);
+                }
+                return null;
+            }
+
+            player.sendMessage(Text.literal("§aВидео скачано и конвертировано в MP3!"), false);
+            player.sendMessage(Text.literal("§7Размер: " + formatFileSize(result.bytes())), false);
+
+            // Validate audio format
+            ValidationResult validation = audioProcessor.validateFormat(incomingFile);
+            if (!validation.valid()) {
+                player.sendMessage(Text.literal("§cОшибка: " + validation.errorMessage()), false);
+                return null;
+            }
+
+            // Extract metadata
+            AudioMetadata metadata = audioProcessor.extractMetadata(incomingFile);
+
+            // Store audio, moving the streamed file into place, unless the job ran out of time meanwhile
+            if (context.isStopped()) {
+                return null;
+            }
+            String audioId = storageManager.storeAudio(incomingFile, metadata, player.getName().getString());
+            preparePlaybackSidecar(audioProcessor, storageManager, audioId);
+            return audioId;
+        } finally {
+            deleteQuietly(incomingFile);
+        }
+    }
+
+    /**
+     * Tells the player why yt-dlp failed, for failures it reports in a recognisable way.
+     *
+     * @param output What yt-dlp printed
+     * @return true if the failure was recognised and reported
+     */
+    private static boolean reportKnownYtDlpError(ServerPlayerEntity player, String output) {
+        if (output.contains("Sign in to confirm")) {
+            player.sendMessage(Text.literal("§cОшибка: видео требует авторизации"), false);
+        } else if (output.contains("Video unavailable")) {
+            player.sendMessage(Text.literal("§cОшибка: видео недоступно"), false);
+        } else if (output.contains("Private video")) {
+            player.sendMessage(Text.literal("§cОшибка: приватное видео"), false);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Extracts video ID from YouTube URL.
      */
@@ -1213,24 +1596,21 @@ public class AudioDiscCommand {
      */
     private static class ProgressTracker {
         private final ServerPlayerEntity player;
-        private String currentStage = "downloading";
         private int lastReportedProgress = -1;
 
         public ProgressTracker(ServerPlayerEntity player) {
             this.player = player;
         }
 
-        public void setStage(String stage) {
-            this.currentStage = stage;
-        }
-
-        public void updateProgress(int progress) {
+        public synchronized void updateProgress(int progress) {
             // Only report progress every 10%
             int roundedProgress = (progress / 10) * 10;
             if (roundedProgress != lastReportedProgress && roundedProgress >= 0 && roundedProgress <= 100) {
                 lastReportedProgress = roundedProgress;
                 
-                String key = "progress." + currentStage;
+                // Download is up to 30%, processing up to 80%, then saving
+                String stage = progress <= 30 ? "downloading" : progress < 80 ? "processing" : "saving";
+                String key = "progress." + stage;
                 player.sendMessage(Text.literal(Localization.formatForPlayer(key, player, roundedProgress)), false);
             }
         }
@@ -1243,7 +1623,8 @@ public class AudioDiscCommand {
      * @param tempDir The temporary directory for output
      * @return The converted OGG file, or null if conversion failed
      */
-    private static java.io.File tryConvertM4AToOgg(java.io.File m4aFile, Path tempDir) {
+    private static java.io.File tryConvertM4AToOgg(java.io.File m4aFile, Path tempDir,
+                                                   ToolJobScheduler.JobContext context) {
         try {
             // Check if FFmpeg is available
             if (!isFFmpegAvailable()) {
@@ -1275,7 +1656,7 @@ public class AudioDiscCommand {
             pb.directory(tempDir.toFile());
             pb.redirectErrorStream(true);
 
-            Process process = pb.start();
+            Process process = context.start(ToolRegistry.Tool.FFMPEG, pb);
 
             // Read output for debugging
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
@@ -1360,7 +1741,8 @@ public class AudioDiscCommand {
      * @param tempDir The temporary directory for output
      * @return The converted OGG file, or null if conversion failed
      */
-    private static java.io.File tryConvertWebMToOgg(java.io.File webmFile, Path tempDir) {
+    private static java.io.File tryConvertWebMToOgg(java.io.File webmFile, Path tempDir,
+                                                    ToolJobScheduler.JobContext context) {
         try {
             // Check if FFmpeg is available
             if (!isFFmpegAvailable()) {
@@ -1392,7 +1774,7 @@ public class AudioDiscCommand {
             pb.directory(tempDir.toFile());
             pb.redirectErrorStream(true);
 
-            Process process = pb.start();
+            Process process = context.start(ToolRegistry.Tool.FFMPEG, pb);
 
             // Read output for debugging
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
@@ -1419,52 +1801,59 @@ public class AudioDiscCommand {
     }
 
     /**
-     * Checks if FFmpeg is available on the system.
+     * Writes the playback-ready PCM sidecar for a freshly stored upload, if enabled.
      */
-    private static boolean isFFmpegAvailable() {
-        // First check if FFmpegManager has FFmpeg available
-        if (org.stepan.audio_disc.download.FFmpegManager.isAvailable()) {
-            return true;
+    private static void preparePlaybackSidecar(AudioProcessor audioProcessor, AudioStorageManager storageManager,
+                                               String audioId) {
+        if (Audio_disc.getConfig() != null && !Audio_disc.getConfig().isPreparePlaybackSidecars()) {
+            return;
         }
-        
-        // Fallback to system FFmpeg check
+        java.nio.file.Path sidecar = storageManager.getPlaybackSidecarPath(audioId);
+        if (java.nio.file.Files.exists(sidecar)) {
+            return; // Same content was uploaded before
+        }
+        // Decodes the stored file without copying it onto the heap
+        storageManager.getAudio(audioId).ifPresent(audioData ->
+            audioProcessor.preparePlaybackSidecar(audioData.getBuffer(), sidecar));
+    }
+
+    /**
+     * Deletes a temporary upload file, logging instead of failing.
+     */
+    private static void deleteQuietly(java.nio.file.Path file) {
         try {
-            ProcessBuilder pb = new ProcessBuilder("ffmpeg", "-version");
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
+            java.nio.file.Files.deleteIfExists(file);
+        } catch (java.io.IOException e) {
+            LOGGER.warn("Failed to delete temporary file {}: {}", file, e.getMessage());
         }
     }
 
     /**
-     * Gets the FFmpeg executable path (either from FFmpegManager or system).
+     * Checks if FFmpeg is available, using the cached probe result.
+     */
+    private static boolean isFFmpegAvailable() {
+        return org.stepan.audio_disc.download.FFmpegManager.isAvailable();
+    }
+
+    /**
+     * Gets the FFmpeg executable path (either mod-installed or system).
      */
     private static String getFFmpegExecutablePath() {
-        // First try FFmpegManager
-        if (org.stepan.audio_disc.download.FFmpegManager.isAvailable()) {
-            String path = org.stepan.audio_disc.download.FFmpegManager.getExecutablePath();
-            if (path != null) {
-                return path;
-            }
-        }
-        
-        // Fallback to system FFmpeg
-        return "ffmpeg";
+        return org.stepan.audio_disc.download.FFmpegManager.getExecutablePath();
     }
 
     /**
      * Waits for FFmpeg to become available (during automatic installation).
      * 
      * @param timeoutSeconds Maximum time to wait in seconds
+     * @param context The tool job waiting; the wait ends early if it is stopped
      * @return true if FFmpeg became available, false if timeout
      */
-    private static boolean waitForFFmpeg(int timeoutSeconds) {
+    private static boolean waitForFFmpeg(int timeoutSeconds, ToolJobScheduler.JobContext context) {
         int attempts = 0;
         int maxAttempts = timeoutSeconds * 2; // Check every 500ms
         
-        while (attempts < maxAttempts) {
+        while (attempts < maxAttempts && !context.isStopped()) {
             if (isFFmpegAvailable()) {
                 return true;
             }
@@ -21,6 +21,13 @@ public class AudioDiscConfig {
     // Configuration fields with default values
     private long maxFileSize = 52428800; // 50MB in bytes
     private int downloadTimeout = 30; // seconds
+    private int maxConcurrentDownloads = 5; // URL downloads running at once
+    private int downloadQueueSize = 20; // URL downloads allowed to wait for a free slot
+    private int downloadQueueTimeout = 120; // seconds a queued download may wait
+    private int downloadResumeAttempts = 3; // times an interrupted download may resume
+    private int parallelDownloadRanges = 1; // ranges fetched at once for large files, 1 = disabled
+    private int urlCacheSize = 500; // URLs remembered for reusing stored downloads, 0 = disabled
+    private int urlCacheFreshness = 300; // seconds a remembered URL is reused without asking the server
     private long maxDuration = -1; // -1 = unlimited, otherwise in milliseconds
     private List<String> supportedFormats = List.of("mp3", "ogg", "wav");
     private boolean enableProgressUpdates = true;
@@ -31,6 +38,20 @@ public class AudioDiscConfig {
     private double audioRange = 64.0; // Audio range in blocks (default jukebox range)
     private boolean autoInstallYtDlp = true; // Automatically install yt-dlp on server start
     private boolean autoInstallFFmpeg = true; // Automatically install FFmpeg on server start
+    private boolean streamYouTubeDownloads = true; // Pipe yt-dlp output through FFmpeg into storage instead of using temp files (needs FFmpeg)
+    private int maxConcurrentToolJobs = 2; // YouTube downloads and conversions running external tools at once
+    private int toolJobQueueSize = 20; // tool jobs allowed to wait for a free slot
+    private int toolProcessNiceness = 10; // CPU niceness of yt-dlp/FFmpeg processes on Unix-like systems, 0 = unchanged
+    private int toolJobTimeout = 600; // seconds a tool job may run before its processes are killed
+    private boolean ingestNormalize = false; // Re-encode uploads with FFmpeg to 48kHz mono at a normalized loudness (lossy, so off by default)
+    private String ingestFormat = "mp3"; // Storage format of converted uploads: "mp3" or "wav"
+    private double ingestLoudness = -16.0; // EBU R128 integrated loudness target in LUFS
+    private int audioCacheSizeMb = 256; // Memory budget for loaded audio files
+    private boolean memoryMapAudio = true; // Memory-map stored audio instead of copying it onto the heap
+    private int pcmCacheSizeMb = 256; // Memory budget for decoded PCM shared between jukeboxes (at least 1)
+    private boolean preparePlaybackSidecars = true; // Decode uploads to a PCM sidecar file at upload time
+    private boolean preEncodedOpus = false; // Encode each track to Opus once and send packets directly
+    private int opusFrameCacheSizeMb = 64; // Memory budget for pre-encoded Opus frames
     
     /**
      * Loads configuration from the specified path.
@@ -100,6 +121,71 @@ public class AudioDiscConfig {
             return false;
         }
         
+        if (maxConcurrentDownloads < 1 || maxConcurrentDownloads > 32) {
+            LOGGER.warn("Invalid maxConcurrentDownloads: {}. Must be between 1 and 32", maxConcurrentDownloads);
+            return false;
+        }
+        
+        if (downloadQueueSize < 0 || downloadQueueSize > 500) {
+            LOGGER.warn("Invalid downloadQueueSize: {}. Must be between 0 and 500", downloadQueueSize);
+            return false;
+        }
+        
+        if (downloadQueueTimeout <= 0 || downloadQueueTimeout > 3600) {
+            LOGGER.warn("Invalid downloadQueueTimeout: {}. Must be between 1 and 3600 seconds", downloadQueueTimeout);
+            return false;
+        }
+        
+        if (downloadResumeAttempts < 0 || downloadResumeAttempts > 10) {
+            LOGGER.warn("Invalid downloadResumeAttempts: {}. Must be between 0 and 10", downloadResumeAttempts);
+            return false;
+        }
+        
+        if (parallelDownloadRanges < 1 || parallelDownloadRanges > 8) {
+            LOGGER.warn("Invalid parallelDownloadRanges: {}. Must be between 1 and 8", parallelDownloadRanges);
+            return false;
+        }
+        
+        if (urlCacheSize < 0 || urlCacheSize > 100000) {
+            LOGGER.warn("Invalid urlCacheSize: {}. Must be between 0 and 100000", urlCacheSize);
+            return false;
+        }
+        
+        if (urlCacheFreshness < 0 || urlCacheFreshness > 86400) {
+            LOGGER.warn("Invalid urlCacheFreshness: {}. Must be between 0 and 86400 seconds", urlCacheFreshness);
+            return false;
+        }
+        
+        if (maxConcurrentToolJobs < 1 || maxConcurrentToolJobs > 16) {
+            LOGGER.warn("Invalid maxConcurrentToolJobs: {}. Must be between 1 and 16", maxConcurrentToolJobs);
+            return false;
+        }
+        
+        if (toolJobQueueSize < 0 || toolJobQueueSize > 200) {
+            LOGGER.warn("Invalid toolJobQueueSize: {}. Must be between 0 and 200", toolJobQueueSize);
+            return false;
+        }
+        
+        if (toolProcessNiceness < 0 || toolProcessNiceness > 19) {
+            LOGGER.warn("Invalid toolProcessNiceness: {}. Must be between 0 and 19", toolProcessNiceness);
+            return false;
+        }
+        
+        if (toolJobTimeout < 10 || toolJobTimeout > 3600) {
+            LOGGER.warn("Invalid toolJobTimeout: {}. Must be between 10 and 3600 seconds", toolJobTimeout);
+            return false;
+        }
+        
+        if (!"mp3".equals(ingestFormat) && !"wav".equals(ingestFormat)) {
+            LOGGER.warn("Invalid ingestFormat: {}. Must be mp3 or wav", ingestFormat);
+            return false;
+        }
+        
+        if (ingestLoudness < -36.0 || ingestLoudness > -5.0) {
+            LOGGER.warn("Invalid ingestLoudness: {}. Must be between -36 and -5 LUFS", ingestLoudness);
+            return false;
+        }
+        
         if (maxDuration != -1 && maxDuration <= 0) {
             LOGGER.warn("Invalid maxDuration: {}. Must be -1 (unlimited) or positive value in milliseconds", maxDuration);
             return false;
@@ -130,6 +216,22 @@ public class AudioDiscConfig {
             return false;
         }
         
+        if (audioCacheSizeMb < 0 || audioCacheSizeMb > 4096) {
+            LOGGER.warn("Invalid audioCacheSizeMb: {}. Must be between 0 and 4096", audioCacheSizeMb);
+            return false;
+        }
+        
+        // Playback always decodes through this cache, so it cannot be turned off
+        if (pcmCacheSizeMb < 1 || pcmCacheSizeMb > 4096) {
+            LOGGER.warn("Invalid pcmCacheSizeMb: {}. Must be between 1 and 4096", pcmCacheSizeMb);
+            return false;
+        }
+        
+        if (opusFrameCacheSizeMb < 1 || opusFrameCacheSizeMb > 1024) {
+            LOGGER.warn("Invalid opusFrameCacheSizeMb: {}. Must be between 1 and 1024", opusFrameCacheSizeMb);
+            return false;
+        }
+        
         return true;
     }
     
@@ -142,6 +244,62 @@ public class AudioDiscConfig {
         return downloadTimeout;
     }
     
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+    
+    public int getDownloadQueueSize() {
+        return downloadQueueSize;
+    }
+    
+    public int getDownloadQueueTimeout() {
+        return downloadQueueTimeout;
+    }
+    
+    public int getDownloadResumeAttempts() {
+        return downloadResumeAttempts;
+    }
+    
+    public int getParallelDownloadRanges() {
+        return parallelDownloadRanges;
+    }
+    
+    public int getUrlCacheSize() {
+        return urlCacheSize;
+    }
+    
+    public int getUrlCacheFreshness() {
+        return urlCacheFreshness;
+    }
+    
+    public int getMaxConcurrentToolJobs() {
+        return maxConcurrentToolJobs;
+    }
+    
+    public int getToolJobQueueSize() {
+        return toolJobQueueSize;
+    }
+    
+    public int getToolProcessNiceness() {
+        return toolProcessNiceness;
+    }
+    
+    public int getToolJobTimeout() {
+        return toolJobTimeout;
+    }
+    
+    public boolean isIngestNormalize() {
+        return ingestNormalize;
+    }
+    
+    public String getIngestFormat() {
+        return ingestFormat;
+    }
+    
+    public double getIngestLoudness() {
+        return ingestLoudness;
+    }
+    
     public long getMaxDuration() {
         return maxDuration;
     }
@@ -181,4 +339,51 @@ public class AudioDiscConfig {
     public boolean isAutoInstallFFmpeg() {
         return autoInstallFFmpeg;
     }
+    
+    /**
+     * Gets the audio file cache budget.
+     * 
+     * @return The budget in bytes
+     */
+    public long getAudioCacheSize() {
+        return audioCacheSizeMb * 1024L * 1024L;
+    }
+    
+    public boolean isMemoryMapAudio() {
+        return memoryMapAudio;
+    }
+    
+    public boolean isStreamYouTubeDownloads() {
+        return streamYouTubeDownloads;
+    }
+    
+    public boolean isPreparePlaybackSidecars() {
+        return preparePlaybackSidecars;
+    }
+    
+    public int getPcmCacheSizeMb() {
+        return pcmCacheSizeMb;
+    }
+    
+    /**
+     * Gets the decoded PCM cache budget.
+     * 
+     * @return The budget in bytes
+     */
+    public long getPcmCacheSize() {
+        return pcmCacheSizeMb * 1024L * 1024L;
+    }
+    
+    public boolean isPreEncodedOpus() {
+        return preEncodedOpus;
+    }
+    
+    /**
+     * Gets the pre-encoded Opus frame budget.
+     * 
+     * @return The budget in bytes, or 0 if pre-encoded playback is disabled
+     */
+    public long getOpusFrameCacheSize() {
+        return preEncodedOpus ? opusFrameCacheSizeMb * 1024L * 1024L : 0;
+    }
 }
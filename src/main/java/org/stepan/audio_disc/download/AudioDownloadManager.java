@@ -6,40 +6,155 @@ import org.stepan.audio_disc.model.DownloadStatus;
 
 import java.net.InetAddress;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 
+/**
+ * Runs URL downloads on a fixed number of threads. Downloads beyond that limit wait
+ * in a bounded queue that is served round-robin by player, so one player queueing
+ * several downloads cannot hold everyone else back.
+ *
+ * <p>Identical uploads running at the same time, such as several players uploading
+ * the same URL or video, can be coalesced so the work is done once and every caller
+ * attaches to the same result.</p>
+ */
 public class AudioDownloadManager {
     private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
     
     private final ExecutorService downloadExecutor;
+    private final ScheduledExecutorService queueTimer;
     private final Map<UUID, DownloadTask> activeDownloads;
     private final long maxFileSize;
     private final int timeoutSeconds;
     private final int maxConcurrentDownloads;
-    private final Semaphore downloadSemaphore;
+    private final int maxQueuedDownloads;
+    private final long queueTimeoutMillis;
+    private final HttpTransfer.RangeOptions rangeOptions;
+    private final UrlCache urlCache;
+    
+    // Waiting downloads by player; iteration order is the round-robin order
+    private final Object queueLock = new Object();
+    private final Map<UUID, Deque<QueuedDownload>> queuedByPlayer = new LinkedHashMap<>(); // guarded by queueLock
+    private int queuedCount; // guarded by queueLock
+    private int runningCount; // guarded by queueLock
+
+    // Uploads in progress by normalized URL or video key
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
 
     public AudioDownloadManager(long maxFileSize, int timeoutSeconds, int maxConcurrentDownloads) {
+        this(maxFileSize, timeoutSeconds, maxConcurrentDownloads, maxConcurrentDownloads * 4, 120,
+            HttpTransfer.RangeOptions.NONE, null);
+    }
+
+    /**
+     * Creates a download manager with a waiting queue.
+     *
+     * @param maxFileSize Maximum download size in bytes
+     * @param timeoutSeconds Connect and read timeout of a running download
+     * @param maxConcurrentDownloads Number of downloads running at once
+     * @param maxQueuedDownloads Number of downloads allowed to wait for a free slot
+     * @param queueTimeoutSeconds How long a download may wait before it fails
+     * @param rangeOptions How downloads may resume and fetch ranges in parallel
+     * @param urlCache Remembers stored downloads by URL, may be null to disable reuse
+     */
+    public AudioDownloadManager(long maxFileSize, int timeoutSeconds, int maxConcurrentDownloads,
+                                int maxQueuedDownloads, int queueTimeoutSeconds,
+                                HttpTransfer.RangeOptions rangeOptions, UrlCache urlCache) {
         this.downloadExecutor = Executors.newFixedThreadPool(maxConcurrentDownloads);
+        this.queueTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-DownloadQueue");
+            thread.setDaemon(true);
+            return thread;
+        });
         this.activeDownloads = new ConcurrentHashMap<>();
         this.maxFileSize = maxFileSize;
         this.timeoutSeconds = timeoutSeconds;
         this.maxConcurrentDownloads = maxConcurrentDownloads;
-        this.downloadSemaphore = new Semaphore(maxConcurrentDownloads);
+        this.maxQueuedDownloads = maxQueuedDownloads;
+        this.queueTimeoutMillis = TimeUnit.SECONDS.toMillis(queueTimeoutSeconds);
+        this.rangeOptions = rangeOptions;
+        this.urlCache = urlCache;
+    }
+
+    /**
+     * Gets the cache of stored downloads by URL.
+     *
+     * @return The cache, or null if reuse is disabled
+     */
+    public UrlCache getUrlCache() {
+        return urlCache;
+    }
+
+    /**
+     * Initiates an asynchronous audio download straight to a file.
+     *
+     * @param url The URL to download from
+     * @param playerId The UUID of the player initiating the download
+     * @param target The file to download into; deleted if the download fails
+     * @param progressCallback Callback for progress updates (0-100)
+     * @return CompletableFuture completing with the target file once it is fully written
+     */
+    public CompletableFuture<Path> downloadAudio(String url, UUID playerId, Path target, Consumer<Integer> progressCallback) {
+        return downloadAudio(url, playerId, target, progressCallback, null);
+    }
+
+    /**
+     * Initiates an asynchronous audio download straight to a file, queueing it if every
+     * download slot is busy. Cancelling the returned future removes a queued download
+     * or stops a running one.
+     *
+     * @param url The URL to download from
+     * @param playerId The UUID of the player initiating the download
+     * @param target The file to download into; deleted if the download fails
+     * @param progressCallback Callback for progress updates (0-100)
+     * @param queuePositionCallback Called once with the estimated queue position if the download has to wait, may be null
+     * @return CompletableFuture completing with the target file once it is fully written
+     */
+    public CompletableFuture<Path> downloadAudio(String url, UUID playerId, Path target, Consumer<Integer> progressCallback,
+                                                 IntConsumer queuePositionCallback) {
+        CompletableFuture<DownloadResult> result = downloadAudio(url, playerId, target, progressCallback,
+            queuePositionCallback, HttpTransfer.Validators.NONE);
+        CompletableFuture<Path> file = result.thenApply(DownloadResult::file);
+        file.whenComplete((path, error) -> {
+            if (file.isCancelled()) {
+                result.cancel(false);
+            }
+        });
+        return file;
     }
 
     /**
-     * Initiates an asynchronous audio download.
+     * Initiates an asynchronous audio download straight to a file unless the file is
+     * unchanged since an earlier download, queueing it if every download slot is busy.
+     * Cancelling the returned future removes a queued download or stops a running one.
      *
      * @param url The URL to download from
      * @param playerId The UUID of the player initiating the download
+     * @param target The file to download into; deleted if the download fails or the file is unchanged
      * @param progressCallback Callback for progress updates (0-100)
-     * @return CompletableFuture containing the downloaded audio data
+     * @param queuePositionCallback Called once with the estimated queue position if the download has to wait, may be null
+     * @param conditions Validators of the earlier download, or {@link HttpTransfer.Validators#NONE} to always download
+     * @return CompletableFuture completing with the downloaded file, or with a not-modified result
      */
-    public CompletableFuture<byte[]> downloadAudio(String url, UUID playerId, Consumer<Integer> progressCallback) {
+    public CompletableFuture<DownloadResult> downloadAudio(String url, UUID playerId, Path target,
+                                                           Consumer<Integer> progressCallback,
+                                                           IntConsumer queuePositionCallback,
+                                                           HttpTransfer.Validators conditions) {
         // Validate URL first
         try {
             validateUrl(url);
@@ -47,34 +162,180 @@ public class AudioDownloadManager {
             return CompletableFuture.failedFuture(e);
         }
 
-        // Check if we can start a new download
-        if (!downloadSemaphore.tryAcquire()) {
-            return CompletableFuture.failedFuture(
-                new IllegalStateException("Server download limit reached. Please try again later.")
-            );
+        UUID taskId = UUID.randomUUID();
+        DownloadTask task = new DownloadTask(taskId, url, playerId, progressCallback, maxFileSize, timeoutSeconds,
+            rangeOptions, conditions);
+        QueuedDownload download = new QueuedDownload(task, target);
+
+        int position;
+        synchronized (queueLock) {
+            if (runningCount < maxConcurrentDownloads && queuedCount == 0) {
+                runningCount++;
+                position = 0;
+            } else if (queuedCount >= maxQueuedDownloads) {
+                return CompletableFuture.failedFuture(
+                    new IllegalStateException("Server download queue is full. Please try again later.")
+                );
+            } else {
+                queuedByPlayer.computeIfAbsent(playerId, id -> new ArrayDeque<>()).add(download);
+                queuedCount++;
+                position = estimatePosition(playerId);
+            }
         }
 
-        UUID taskId = UUID.randomUUID();
-        DownloadTask task = new DownloadTask(taskId, url, playerId, progressCallback, maxFileSize, timeoutSeconds);
         activeDownloads.put(taskId, task);
+        download.future.whenComplete((path, error) -> {
+            if (download.future.isCancelled()) {
+                cancel(download);
+            }
+        });
 
-        LOGGER.info("Starting download for player {} from URL: {}", playerId, url);
+        if (position == 0) {
+            start(download);
+        } else {
+            LOGGER.info("Queued download for player {} at position {}: {}", playerId, position, url);
+            download.timeout = queueTimer.schedule(() -> expire(download), queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (queuePositionCallback != null) {
+                queuePositionCallback.accept(position);
+            }
+        }
+        return download.future;
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                byte[] data = task.execute();
-                LOGGER.info("Download completed for player {}: {} bytes", playerId, data.length);
-                return data;
-            } catch (Exception e) {
-                LOGGER.error("Download failed for player {}: {}", playerId, e.getMessage());
-                throw new CompletionException(e);
-            } finally {
-                activeDownloads.remove(taskId);
-                downloadSemaphore.release();
+    /**
+     * Estimates the position of a player's newest queued download, assuming no further
+     * downloads arrive: the round-robin serves every player once per pass.
+     */
+    private int estimatePosition(UUID playerId) {
+        int ownIndex = queuedByPlayer.get(playerId).size() - 1;
+        int position = ownIndex + 1;
+        boolean beforePlayer = true;
+        for (Map.Entry<UUID, Deque<QueuedDownload>> entry : queuedByPlayer.entrySet()) {
+            if (entry.getKey().equals(playerId)) {
+                beforePlayer = false;
+                continue;
+            }
+            // Players ahead in this pass are served once more before us
+            position += Math.min(entry.getValue().size(), beforePlayer ? ownIndex + 1 : ownIndex);
+        }
+        return position;
+    }
+
+    /**
+     * Runs a download in a slot that has already been reserved.
+     */
+    private void start(QueuedDownload download) {
+        DownloadTask task = download.task;
+        LOGGER.info("Starting download for player {} from URL: {}", task.getPlayerId(), task.getUrl());
+
+        // The transfer itself needs no thread; the caller's follow-up work runs on the download pool
+        task.start(download.target).whenCompleteAsync((size, error) -> {
+            activeDownloads.remove(task.getTaskId());
+            releaseSlot();
+            if (error == null) {
+                LOGGER.info("Download completed for player {}: {} bytes", task.getPlayerId(), size);
+                download.future.complete(new DownloadResult(download.target, false, task.getResponseValidators()));
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof HttpTransfer.NotModifiedException) {
+                    LOGGER.info("Download for player {} not modified since last time: {}", task.getPlayerId(), task.getUrl());
+                    download.future.complete(new DownloadResult(null, true, HttpTransfer.Validators.NONE));
+                    return;
+                }
+                LOGGER.error("Download failed for player {}: {}", task.getPlayerId(), cause.getMessage());
+                download.future.completeExceptionally(cause);
             }
         }, downloadExecutor);
     }
 
+    /**
+     * Frees a download slot and hands it to the next queued download.
+     */
+    private void releaseSlot() {
+        QueuedDownload next;
+        synchronized (queueLock) {
+            runningCount--;
+            next = pollNext();
+            if (next != null) {
+                runningCount++;
+            }
+        }
+        if (next != null) {
+            cancelTimeout(next);
+            start(next);
+        }
+    }
+
+    /**
+     * Takes the next download in round-robin order by player.
+     */
+    private QueuedDownload pollNext() {
+        Iterator<Map.Entry<UUID, Deque<QueuedDownload>>> iterator = queuedByPlayer.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Map.Entry<UUID, Deque<QueuedDownload>> first = iterator.next();
+        iterator.remove();
+        QueuedDownload next = first.getValue().poll();
+        if (!first.getValue().isEmpty()) {
+            queuedByPlayer.put(first.getKey(), first.getValue()); // Move the player to the end of the pass
+        }
+        queuedCount--;
+        return next;
+    }
+
+    /**
+     * Removes a download from the queue.
+     *
+     * @return true if it was still queued
+     */
+    private boolean dequeue(QueuedDownload download) {
+        synchronized (queueLock) {
+            UUID playerId = download.task.getPlayerId();
+            Deque<QueuedDownload> queue = queuedByPlayer.get(playerId);
+            if (queue == null || !queue.remove(download)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                queuedByPlayer.remove(playerId);
+            }
+            queuedCount--;
+            return true;
+        }
+    }
+
+    /**
+     * Fails a download that waited in the queue for too long.
+     */
+    private void expire(QueuedDownload download) {
+        if (dequeue(download)) {
+            activeDownloads.remove(download.task.getTaskId());
+            LOGGER.info("Queued download for player {} timed out", download.task.getPlayerId());
+            download.future.completeExceptionally(
+                new TimeoutException("Timed out waiting for a free download slot. Please try again later.")
+            );
+        }
+    }
+
+    private static void cancelTimeout(QueuedDownload download) {
+        ScheduledFuture<?> timeout = download.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels a download, removing it from the queue or stopping it if it is running.
+     */
+    private void cancel(QueuedDownload download) {
+        download.task.cancel();
+        if (dequeue(download)) {
+            cancelTimeout(download);
+            activeDownloads.remove(download.task.getTaskId());
+            download.future.cancel(false);
+        }
+    }
+
     /**
      * Reports download progress for a specific task.
      *
@@ -97,11 +358,29 @@ public class AudioDownloadManager {
         DownloadTask task = activeDownloads.get(downloadId);
         if (task != null) {
             task.cancel();
+            removeQueued(download -> download.task == task);
             activeDownloads.remove(downloadId);
             LOGGER.info("Download {} cancelled", downloadId);
         }
     }
 
+    /**
+     * Removes and cancels every queued download matching a filter.
+     */
+    private void removeQueued(Predicate<QueuedDownload> filter) {
+        List<QueuedDownload> removed = new ArrayList<>();
+        synchronized (queueLock) {
+            for (Deque<QueuedDownload> queue : queuedByPlayer.values()) {
+                queue.forEach(download -> {
+                    if (filter.test(download)) {
+                        removed.add(download);
+                    }
+                });
+            }
+        }
+        removed.forEach(this::cancel);
+    }
+
     /**
      * Gets the status of an active download.
      *
@@ -113,6 +392,81 @@ public class AudioDownloadManager {
         return task != null ? task.getStatus() : null;
     }
 
+    /**
+     * Runs an upload once for all callers asking for the same key at the same time.
+     * The first caller runs the upload; callers arriving while it is in progress attach
+     * to it and receive its result and its further progress updates. Each caller gets
+     * its own future, so cancelling one does not affect the others.
+     *
+     * @param key Identifies the upload, e.g. from {@link #normalizeUrl(String)} or a video ID
+     * @param progressCallback This caller's progress callback (0-100), may be null
+     * @param upload Runs the upload, reporting progress to the given callback; only called for the first caller
+     * @return CompletableFuture completing with the audio ID the upload stored
+     */
+    public CompletableFuture<String> coalesce(String key, Consumer<Integer> progressCallback,
+                                              Function<Consumer<Integer>, CompletableFuture<String>> upload) {
+        InFlight created = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            LOGGER.info("Joining upload already in progress: {}", key);
+            existing.attach(progressCallback);
+            return existing.future.copy();
+        }
+
+        created.attach(progressCallback);
+        CompletableFuture<String> result;
+        try {
+            result = upload.apply(created::progress);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((audioId, error) -> {
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else {
+                created.future.complete(audioId);
+            }
+        });
+        return created.future.copy();
+    }
+
+    /**
+     * Normalizes a URL so that trivially different spellings of the same address
+     * coalesce: the scheme and host are lower-cased, a default port and the fragment
+     * are dropped, and an empty path becomes "/".
+     *
+     * @param url The URL
+     * @return The normalized URL, or the trimmed input if it cannot be parsed
+     */
+    public static String normalizeUrl(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            boolean defaultPort = port == -1 || (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            StringBuilder normalized = new StringBuilder(scheme).append("://")
+                .append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (!defaultPort) {
+                normalized.append(':').append(port);
+            }
+            normalized.append(path);
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+
     /**
      * Validates a URL for security and format.
      *
@@ -202,17 +556,30 @@ public class AudioDownloadManager {
         return activeDownloads.size();
     }
 
+    /**
+     * Gets the number of downloads waiting for a free slot.
+     *
+     * @return The count of queued downloads
+     */
+    public int getQueuedDownloadCount() {
+        synchronized (queueLock) {
+            return queuedCount;
+        }
+    }
+
     /**
      * Shuts down the download manager and cancels all active downloads.
      */
     public void shutdown() {
         LOGGER.info("Shutting down AudioDownloadManager");
         
-        // Cancel all active downloads
+        // Cancel queued and active downloads
+        removeQueued(download -> true);
         activeDownloads.values().forEach(DownloadTask::cancel);
         activeDownloads.clear();
         
-        // Shutdown executor
+        // Shutdown executors
+        queueTimer.shutdownNow();
         downloadExecutor.shutdown();
         try {
             if (!downloadExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -222,5 +589,61 @@ public class AudioDownloadManager {
             downloadExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+
+        if (urlCache != null) {
+            urlCache.close();
+        }
+    }
+
+    /**
+     * The outcome of a download.
+     *
+     * @param file The downloaded file, or null if the file was not modified
+     * @param notModified true if the server confirmed the earlier download is still current
+     * @param validators The validators sent with the downloaded file; none if the file was not modified
+     */
+    public record DownloadResult(Path file, boolean notModified, HttpTransfer.Validators validators) {
+    }
+
+    /**
+     * An upload in progress and the progress callbacks of everyone waiting for it.
+     */
+    private static class InFlight {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final List<Consumer<Integer>> callbacks = new CopyOnWriteArrayList<>();
+        volatile int lastProgress = -1;
+
+        void attach(Consumer<Integer> callback) {
+            if (callback == null) {
+                return;
+            }
+            callbacks.add(callback);
+            int progress = lastProgress;
+            if (progress >= 0) {
+                callback.accept(progress); // Catch up a late joiner
+            }
+        }
+
+        void progress(Integer progress) {
+            lastProgress = progress;
+            for (Consumer<Integer> callback : callbacks) {
+                callback.accept(progress);
+            }
+        }
+    }
+
+    /**
+     * A download with the file it writes and the future it completes.
+     */
+    private static class QueuedDownload {
+        final DownloadTask task;
+        final Path target;
+        final CompletableFuture<DownloadResult> future = new CompletableFuture<>();
+        volatile ScheduledFuture<?> timeout; // set once queued, may still be null when dequeued
+
+        QueuedDownload(DownloadTask task, Path target) {
+            this.task = task;
+            this.target = target;
+        }
     }
 }
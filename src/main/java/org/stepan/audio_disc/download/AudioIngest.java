@@ -0,0 +1,102 @@
+package org.stepan.audio_disc.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The FFmpeg stage every upload can pass through before it is stored: one invocation
+ * that downmixes to mono, resamples to 48 kHz, normalizes loudness to an EBU R128
+ * target and encodes to the storage format.
+ *
+ * <p>Audio stored this way decodes straight to the 48 kHz mono PCM that playback
+ * sends, so no sample rate or channel conversion is needed when it is played.</p>
+ */
+public final class AudioIngest {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final double TRUE_PEAK = -1.5; // dBTP
+    private static final double LOUDNESS_RANGE = 11; // LU
+
+    private AudioIngest() {
+    }
+
+    /**
+     * How uploads are converted.
+     *
+     * @param normalize Whether to downmix, resample and normalize loudness; false only re-encodes
+     * @param format The storage format, "mp3" or "wav"
+     * @param loudness Integrated loudness target in LUFS
+     */
+    public record Options(boolean normalize, String format, double loudness) {
+        /**
+         * Plain conversion to MP3 at the best quality, without normalization.
+         */
+        public static final Options CONVERT_ONLY = new Options(false, "mp3", 0);
+
+        /**
+         * Builds the FFmpeg arguments that go between the input and the output.
+         *
+         * @return The filter, channel, rate, codec and container arguments
+         */
+        public List<String> outputArguments() {
+            List<String> arguments = new ArrayList<>();
+            arguments.add("-vn"); // Audio only
+            if (normalize) {
+                arguments.addAll(List.of(
+                    "-af", String.format(Locale.ROOT, "loudnorm=I=%.1f:TP=%.1f:LRA=%.0f",
+                        loudness, TRUE_PEAK, LOUDNESS_RANGE),
+                    "-ac", "1",      // Mono, as played through voice chat
+                    "-ar", "48000"   // loudnorm works at 192 kHz internally, so resample afterwards
+                ));
+            }
+            if ("wav".equals(format)) {
+                arguments.addAll(List.of("-c:a", "pcm_s16le", "-f", "wav"));
+            } else {
+                arguments.addAll(List.of("-c:a", "libmp3lame", "-q:a", normalize ? "2" : "0", "-f", "mp3"));
+            }
+            return arguments;
+        }
+    }
+
+    /**
+     * Converts an audio file with one FFmpeg process.
+     *
+     * @param context Starts the process within the calling tool job
+     * @param ffmpegPath The FFmpeg executable
+     * @param input The file to convert
+     * @param output The file to write
+     * @param options How to convert
+     * @return true if the output was written
+     * @throws IOException if FFmpeg cannot be started
+     * @throws InterruptedException if interrupted while waiting for FFmpeg
+     */
+    public static boolean transcode(ToolJobScheduler.JobContext context, String ffmpegPath, Path input, Path output,
+                                    Options options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+            ffmpegPath, "-hide_banner", "-nostdin", "-loglevel", "error", "-y",
+            "-i", input.toAbsolutePath().toString()));
+        command.addAll(options.outputArguments());
+        command.add(output.toAbsolutePath().toString());
+
+        Process process = context.start(ToolRegistry.Tool.FFMPEG, new ProcessBuilder(command).redirectErrorStream(true));
+        String log;
+        try (InputStream in = process.getInputStream()) {
+            log = new String(in.readAllBytes()).trim(); // Only errors are printed
+        }
+        int exitCode = process.waitFor();
+
+        if (exitCode != 0 || !Files.exists(output) || Files.size(output) == 0) {
+            LOGGER.warn("FFmpeg ingest failed with exit code {}: {}", exitCode, log);
+            return false;
+        }
+        LOGGER.debug("Ingested {} -> {} ({} bytes)", input.getFileName(), output.getFileName(), Files.size(output));
+        return true;
+    }
+}
@@ -2,15 +2,17 @@ package org.stepan.audio_disc.download;
 
 import org.stepan.audio_disc.model.DownloadStatus;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class DownloadTask {
+    private static final String USER_AGENT = "AudioDisc-Minecraft-Mod/1.0";
+
     private final UUID taskId;
     private final String url;
     private final UUID playerId;
@@ -20,9 +22,14 @@ public class DownloadTask {
     private final Consumer<Integer> progressCallback;
     private final long maxFileSize;
     private final int timeoutSeconds;
+    private final HttpTransfer.RangeOptions rangeOptions;
+    private final HttpTransfer.Validators conditions;
+    private volatile HttpTransfer.Validators responseValidators = HttpTransfer.Validators.NONE;
+    private volatile HttpTransfer.Transfer transfer;
 
     public DownloadTask(UUID taskId, String url, UUID playerId, 
-                       Consumer<Integer> progressCallback, long maxFileSize, int timeoutSeconds) {
+                       Consumer<Integer> progressCallback, long maxFileSize, int timeoutSeconds,
+                       HttpTransfer.RangeOptions rangeOptions, HttpTransfer.Validators conditions) {
         this.taskId = taskId;
         this.url = url;
         this.playerId = playerId;
@@ -32,98 +39,99 @@ public class DownloadTask {
         this.progressCallback = progressCallback;
         this.maxFileSize = maxFileSize;
         this.timeoutSeconds = timeoutSeconds;
+        this.rangeOptions = rangeOptions;
+        this.conditions = conditions;
     }
 
-    public byte[] execute() throws IOException {
+    /**
+     * Starts downloading the file straight to disk through the shared transfer engine,
+     * so memory use does not depend on the file size and no thread waits on the
+     * network. An interrupted download resumes where it stopped if the server
+     * supports range requests. A partial file is deleted on failure. If the task
+     * has validators from an earlier download and the file is unchanged, the
+     * future fails with {@link HttpTransfer.NotModifiedException}.
+     *
+     * @param target The file to write
+     * @return A future completing with the number of bytes downloaded
+     */
+    public CompletableFuture<Long> start(Path target) {
         if (cancelled) {
             status = DownloadStatus.CANCELLED;
-            throw new IOException("Download cancelled");
+            return CompletableFuture.failedFuture(new IOException("Download cancelled"));
         }
 
         status = DownloadStatus.DOWNLOADING;
-        
-        URL downloadUrl = new URL(url);
-        HttpURLConnection connection = (HttpURLConnection) downloadUrl.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(timeoutSeconds * 1000);
-        connection.setReadTimeout(timeoutSeconds * 1000);
-        connection.setRequestProperty("User-Agent", "AudioDisc-Minecraft-Mod/1.0");
-
-        try {
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("HTTP error code: " + responseCode);
-            }
 
-            // Validate content type
-            String contentType = connection.getContentType();
-            if (contentType != null) {
-                contentType = contentType.toLowerCase();
-                boolean validContentType = contentType.contains("audio/") || 
-                                          contentType.contains("application/octet-stream") ||
-                                          contentType.contains("application/ogg") ||
-                                          contentType.contains("application/binary");
-                if (!validContentType) {
-                    throw new IOException("Invalid content type: " + contentType + ". Expected audio file.");
-                }
-            }
+        transfer = HttpTransfer.download(url, target, USER_AGENT, Duration.ofSeconds(timeoutSeconds),
+            new HttpTransfer.Listener() {
+                private int lastReportedProgress = 0;
+
+                @Override
+                public void onResponse(HttpResponse.ResponseInfo response, long contentLength) throws IOException {
+                    // Validate content type
+                    String contentType = response.headers().firstValue("content-type").orElse(null);
+                    if (contentType != null) {
+                        contentType = contentType.toLowerCase();
+                        boolean validContentType = contentType.contains("audio/") || 
+                                                  contentType.contains("application/octet-stream") ||
+                                                  contentType.contains("application/ogg") ||
+                                                  contentType.contains("application/binary");
+                        if (!validContentType) {
+                            throw new IOException("Invalid content type: " + contentType + ". Expected audio file.");
+                        }
+                    }
 
-            long contentLength = connection.getContentLengthLong();
-            if (contentLength > maxFileSize) {
-                throw new IOException("File too large: " + contentLength + " bytes (max: " + maxFileSize + ")");
-            }
+                    if (contentLength > maxFileSize) {
+                        throw new IOException("File too large: " + contentLength + " bytes (max: " + maxFileSize + ")");
+                    }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            InputStream inputStream = connection.getInputStream();
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            long totalBytesRead = 0;
-            int lastReportedProgress = 0;
-
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                if (cancelled) {
-                    status = DownloadStatus.CANCELLED;
-                    throw new IOException("Download cancelled");
+                    responseValidators = HttpTransfer.Validators.of(response.headers());
                 }
 
-                outputStream.write(buffer, 0, bytesRead);
-                totalBytesRead += bytesRead;
+                @Override
+                public void onData(long received, long contentLength) throws IOException {
+                    if (cancelled) {
+                        status = DownloadStatus.CANCELLED;
+                        throw new IOException("Download cancelled");
+                    }
 
-                // Check size limit during download
-                if (totalBytesRead > maxFileSize) {
-                    throw new IOException("File size exceeded during download");
-                }
+                    // Check size limit during download
+                    if (received > maxFileSize) {
+                        throw new IOException("File size exceeded during download");
+                    }
 
-                // Calculate and report progress
-                if (contentLength > 0) {
-                    int currentProgress = (int) ((totalBytesRead * 100) / contentLength);
-                    if (currentProgress >= lastReportedProgress + 25) {
-                        progress = currentProgress;
-                        lastReportedProgress = currentProgress;
-                        if (progressCallback != null) {
-                            progressCallback.accept(currentProgress);
+                    // Calculate and report progress
+                    if (contentLength > 0) {
+                        int currentProgress = (int) ((received * 100) / contentLength);
+                        if (currentProgress >= lastReportedProgress + 25) {
+                            progress = currentProgress;
+                            lastReportedProgress = currentProgress;
+                            if (progressCallback != null) {
+                                progressCallback.accept(currentProgress);
+                            }
                         }
                     }
                 }
-            }
+            }, rangeOptions, conditions);
 
+        return transfer.result().thenApply(size -> {
             progress = 100;
             if (progressCallback != null) {
                 progressCallback.accept(100);
             }
 
             status = DownloadStatus.COMPLETE;
-            return outputStream.toByteArray();
-
-        } finally {
-            connection.disconnect();
-        }
+            return size;
+        });
     }
 
     public void cancel() {
         this.cancelled = true;
         this.status = DownloadStatus.CANCELLED;
+        HttpTransfer.Transfer running = transfer;
+        if (running != null) {
+            running.cancel();
+        }
     }
 
     public UUID getTaskId() {
@@ -149,4 +157,13 @@ public class DownloadTask {
     public boolean isCancelled() {
         return cancelled;
     }
+
+    /**
+     * Gets the validators the server sent with the downloaded file.
+     *
+     * @return The ETag and Last-Modified of the response, or {@link HttpTransfer.Validators#NONE} before it arrives
+     */
+    public HttpTransfer.Validators getResponseValidators() {
+        return responseValidators;
+    }
 }
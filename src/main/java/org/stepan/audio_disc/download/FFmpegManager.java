@@ -5,11 +5,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -29,32 +30,24 @@ public class FFmpegManager {
     
     /**
      * Checks if FFmpeg is available (either system-installed or mod-installed).
+     * The result of the first check is cached by {@link ToolRegistry}.
      */
     public static boolean isAvailable() {
-        // First check if system FFmpeg is available
-        if (isSystemFFmpegAvailable()) {
-            return true;
-        }
-        
-        // Then check if mod-installed FFmpeg is available
-        return isModFFmpegAvailable();
+        return ToolRegistry.isAvailable(ToolRegistry.Tool.FFMPEG);
     }
     
     /**
      * Gets the path to FFmpeg executable.
      */
     public static String getExecutablePath() {
-        // Prefer system FFmpeg if available
-        if (isSystemFFmpegAvailable()) {
-            return "ffmpeg";
-        }
-        
-        // Use mod-installed FFmpeg
-        if (ffmpegExecutable != null && Files.exists(ffmpegExecutable)) {
-            return ffmpegExecutable.toString();
-        }
-        
-        return null;
+        return ToolRegistry.get(ToolRegistry.Tool.FFMPEG).map(ToolRegistry.ToolInfo::path).orElse(null);
+    }
+    
+    /**
+     * Gets the version reported by FFmpeg.
+     */
+    public static String getVersion() {
+        return ToolRegistry.get(ToolRegistry.Tool.FFMPEG).map(ToolRegistry.ToolInfo::version).orElse(null);
     }
     
     /**
@@ -117,7 +110,8 @@ public class FFmpegManager {
                 LOGGER.info("Successfully downloaded and installed FFmpeg to: {}", executable);
                 
                 // Test the installation
-                if (testFFmpeg(executable.toString())) {
+                ToolRegistry.invalidate(ToolRegistry.Tool.FFMPEG);
+                if (isAvailable()) {
                     LOGGER.info("FFmpeg installation verified successfully");
                     return true;
                 } else {
@@ -133,40 +127,21 @@ public class FFmpegManager {
     }
     
     /**
-     * Checks if system FFmpeg is available.
+     * Lists the FFmpeg executables to probe: the system one first, then the mod-installed one.
      */
-    private static boolean isSystemFFmpegAvailable() {
-        return testFFmpeg("ffmpeg");
-    }
-    
-    /**
-     * Checks if mod-installed FFmpeg is available.
-     */
-    private static boolean isModFFmpegAvailable() {
+    static List<String> candidates() {
+        List<String> candidates = new ArrayList<>();
+        candidates.add("ffmpeg");
+        
         if (ffmpegExecutable == null) {
             // Try to find existing installation
-            Path executable = findFFmpegExecutable();
-            if (executable != null && Files.exists(executable)) {
-                ffmpegExecutable = executable;
-                return testFFmpeg(executable.toString());
-            }
+            ffmpegExecutable = findFFmpegExecutable();
         }
-        
-        return ffmpegExecutable != null && Files.exists(ffmpegExecutable) && testFFmpeg(ffmpegExecutable.toString());
-    }
-    
-    /**
-     * Tests if FFmpeg executable works.
-     */
-    private static boolean testFFmpeg(String executable) {
-        try {
-            ProcessBuilder pb = new ProcessBuilder(executable, "-version");
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
+        if (ffmpegExecutable != null && Files.exists(ffmpegExecutable)) {
+            candidates.add(ffmpegExecutable.toString());
         }
+        
+        return candidates;
     }
     
     /**
@@ -174,25 +149,13 @@ public class FFmpegManager {
      */
     private static boolean downloadFile(String urlString, Path destination) {
         try {
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(300000); // 5 minutes for large files
-            connection.setRequestProperty("User-Agent", "AudioDisc-Mod/1.0");
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                LOGGER.error("Failed to download FFmpeg: HTTP {}", responseCode);
-                return false;
-            }
-            
-            long fileSize = connection.getContentLengthLong();
-            LOGGER.info("Downloading FFmpeg ({} MB)...", fileSize > 0 ? String.format("%.1f", fileSize / 1024.0 / 1024.0) : "unknown size");
-            
-            try (InputStream in = connection.getInputStream()) {
-                Files.copy(in, destination, StandardCopyOption.REPLACE_EXISTING);
-            }
+            HttpTransfer.downloadBlocking(urlString, destination, "AudioDisc-Mod/1.0", Duration.ofSeconds(300),
+                new HttpTransfer.Listener() {
+                    @Override
+                    public void onResponse(HttpResponse.ResponseInfo response, long fileSize) {
+                        LOGGER.info("Downloading FFmpeg ({} MB)...", fileSize > 0 ? String.format("%.1f", fileSize / 1024.0 / 1024.0) : "unknown size");
+                    }
+                }, new HttpTransfer.RangeOptions(3, 1));
             
             LOGGER.info("Download completed: {}", destination);
             return true;
@@ -310,6 +273,7 @@ public class FFmpegManager {
             if (ffmpegExecutable != null && Files.exists(ffmpegExecutable)) {
                 Files.delete(ffmpegExecutable);
                 ffmpegExecutable = null;
+                ToolRegistry.invalidate(ToolRegistry.Tool.FFMPEG);
                 LOGGER.info("Uninstalled mod-installed FFmpeg");
                 return true;
             }
@@ -0,0 +1,651 @@
+package org.stepan.audio_disc.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared HTTP transfer engine for every download the mod makes.
+ *
+ * <p>All transfers go through one {@link HttpClient}, so connections are pooled and
+ * reused, HTTP/2 is negotiated where the server supports it, and concurrent transfers
+ * to the same host are multiplexed over one connection. Response bodies are written
+ * to disk as they arrive without blocking a thread per download.</p>
+ *
+ * <p>When the server advertises {@code Accept-Ranges: bytes}, an interrupted transfer
+ * resumes from the last byte written instead of starting over, and a large file can be
+ * fetched as several ranges in parallel, each written at its own offset. Servers that
+ * do not support ranges get a single plain GET.</p>
+ *
+ * <p>A transfer can also be made conditional on validators from an earlier download;
+ * if the file has not changed, the server answers 304 and the transfer fails with
+ * {@link NotModifiedException} without any body being written.</p>
+ */
+public final class HttpTransfer {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final long PARALLEL_MIN_BYTES = 4L * 1024 * 1024; // smaller files are fetched in one request
+    private static final long RESUME_DELAY_MS = 1000;
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(CONNECT_TIMEOUT)
+        .build();
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AudioDisc-HttpWatchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HttpTransfer() {
+    }
+
+    /**
+     * Receives the events of a transfer. Throwing from a callback aborts the transfer
+     * with that exception. Callbacks are never run concurrently for one transfer.
+     */
+    public interface Listener {
+        /**
+         * Called once the first response headers arrive, before any data is written.
+         *
+         * @param response The response status and headers
+         * @param contentLength The announced body size, or -1 if unknown
+         * @throws IOException to reject the response
+         */
+        default void onResponse(HttpResponse.ResponseInfo response, long contentLength) throws IOException {
+        }
+
+        /**
+         * Called after each chunk of the body is written.
+         *
+         * @param received Total bytes written so far
+         * @param contentLength The announced body size, or -1 if unknown
+         * @throws IOException to abort the transfer
+         */
+        default void onData(long received, long contentLength) throws IOException {
+        }
+    }
+
+    /**
+     * How a transfer may use HTTP range requests.
+     *
+     * @param resumeAttempts How many times an interrupted transfer, or each parallel range, may resume
+     * @param parallelRanges Number of ranges to fetch at once for large files; 1 fetches the file in one request
+     */
+    public record RangeOptions(int resumeAttempts, int parallelRanges) {
+        /**
+         * A single request that is not resumed.
+         */
+        public static final RangeOptions NONE = new RangeOptions(0, 1);
+    }
+
+    /**
+     * Validators identifying a version of a file, as sent by the server.
+     *
+     * @param etag The ETag header, or null
+     * @param lastModified The Last-Modified header, or null
+     */
+    public record Validators(String etag, String lastModified) {
+        /**
+         * No validators: the request is unconditional.
+         */
+        public static final Validators NONE = new Validators(null, null);
+
+        /**
+         * Reads the validators of a response.
+         *
+         * @param headers The response headers
+         * @return The validators, fields null where the header is missing
+         */
+        public static Validators of(HttpHeaders headers) {
+            return new Validators(headers.firstValue("etag").orElse(null),
+                headers.firstValue("last-modified").orElse(null));
+        }
+
+        /**
+         * @return true if there is at least one validator to revalidate with
+         */
+        public boolean isPresent() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Thrown when a conditional transfer finds the file unchanged.
+     */
+    public static class NotModifiedException extends IOException {
+        public NotModifiedException() {
+            super("Not modified");
+        }
+    }
+
+    /**
+     * Downloads a URL into a file in a single request. Only a 200 response is accepted.
+     * The file is deleted if the transfer fails.
+     *
+     * @param url The URL to download
+     * @param target The file to write, replaced if it exists
+     * @param userAgent The User-Agent header to send
+     * @param idleTimeout Maximum time to wait for the response or the next chunk of data
+     * @param listener Receives transfer events, may be null
+     * @return The running transfer
+     */
+    public static Transfer download(String url, Path target, String userAgent, Duration idleTimeout, Listener listener) {
+        return download(url, target, userAgent, idleTimeout, listener, RangeOptions.NONE);
+    }
+
+    /**
+     * Downloads a URL into a file, using range requests where the server supports them.
+     * The file is deleted if the transfer fails.
+     *
+     * @param url The URL to download
+     * @param target The file to write, replaced if it exists
+     * @param userAgent The User-Agent header to send
+     * @param idleTimeout Maximum time to wait for the response or the next chunk of data
+     * @param listener Receives transfer events, may be null
+     * @param ranges How range requests may be used
+     * @return The running transfer
+     */
+    public static Transfer download(String url, Path target, String userAgent, Duration idleTimeout, Listener listener,
+                                    RangeOptions ranges) {
+        return download(url, target, userAgent, idleTimeout, listener, ranges, Validators.NONE);
+    }
+
+    /**
+     * Downloads a URL into a file unless it is unchanged since an earlier download,
+     * using range requests where the server supports them. The file is deleted if the
+     * transfer fails, including when it fails with {@link NotModifiedException}.
+     *
+     * @param url The URL to download
+     * @param target The file to write, replaced if it exists
+     * @param userAgent The User-Agent header to send
+     * @param idleTimeout Maximum time to wait for the response or the next chunk of data
+     * @param listener Receives transfer events, may be null
+     * @param ranges How range requests may be used
+     * @param conditions Validators of the earlier download, sent as If-None-Match and If-Modified-Since
+     * @return The running transfer
+     */
+    public static Transfer download(String url, Path target, String userAgent, Duration idleTimeout, Listener listener,
+                                    RangeOptions ranges, Validators conditions) {
+        Transfer transfer = new Transfer(target, userAgent, idleTimeout,
+            listener != null ? listener : new Listener() { }, ranges, conditions);
+        transfer.start(url);
+        return transfer;
+    }
+
+    /**
+     * Downloads a URL into a file, waiting for it to finish. Intended for one-off
+     * downloads that already run on a background thread.
+     *
+     * @param url The URL to download
+     * @param target The file to write, replaced if it exists
+     * @param userAgent The User-Agent header to send
+     * @param idleTimeout Maximum time to wait for the response or the next chunk of data
+     * @param listener Receives transfer events, may be null
+     * @param ranges How range requests may be used
+     * @return The number of bytes written
+     * @throws IOException if the download fails
+     */
+    public static long downloadBlocking(String url, Path target, String userAgent, Duration idleTimeout,
+                                        Listener listener, RangeOptions ranges) throws IOException {
+        try {
+            return download(url, target, userAgent, idleTimeout, listener, ranges).result().join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Best effort
+        }
+    }
+
+    /**
+     * A running transfer.
+     */
+    public static final class Transfer {
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final Set<CompletableFuture<?>> exchanges = ConcurrentHashMap.newKeySet();
+        private final AtomicLong received = new AtomicLong();
+        private final Path target;
+        private final String userAgent;
+        private final Duration idleTimeout;
+        private final Listener listener;
+        private final RangeOptions ranges;
+        private final Validators conditions;
+        private URI uri;
+        private FileChannel channel;
+        private volatile boolean cancelled; // by the caller
+        private volatile boolean aborted; // by a failed parallel range
+        private final AtomicReference<Throwable> rangeFailure = new AtomicReference<>(); // first failed parallel range
+
+        // Learned from the first response
+        private boolean responded; // guarded by this
+        private volatile long totalLength = -1;
+        private volatile boolean acceptsRanges;
+        private volatile String validator; // strong ETag or Last-Modified, sent as If-Range when resuming
+
+        private Transfer(Path target, String userAgent, Duration idleTimeout, Listener listener, RangeOptions ranges,
+                         Validators conditions) {
+            this.target = target;
+            this.userAgent = userAgent;
+            this.idleTimeout = idleTimeout;
+            this.listener = listener;
+            this.ranges = ranges;
+            this.conditions = conditions;
+        }
+
+        /**
+         * Gets the transfer result.
+         *
+         * @return A future completing with the number of bytes written, or failing
+         */
+        public CompletableFuture<Long> result() {
+            return result;
+        }
+
+        /**
+         * Aborts the transfer. The result fails and the partial file is deleted.
+         */
+        public void cancel() {
+            cancelled = true;
+            exchanges.forEach(exchange -> exchange.cancel(true));
+        }
+
+        private void start(String url) {
+            try {
+                uri = URI.create(url);
+                channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IllegalArgumentException | IOException e) {
+                finish(null, e);
+                return;
+            }
+
+            // A conditional request goes straight to a GET, which can answer 304 in one round trip
+            CompletableFuture<Long> body = ranges.parallelRanges() > 1 && !conditions.isPresent()
+                ? probe().thenCompose(parallel -> parallel ? fetchParallel() : fetch(0, -1, ranges.resumeAttempts()))
+                : fetch(0, -1, ranges.resumeAttempts());
+            body.whenComplete(this::finish);
+        }
+
+        /**
+         * Sends a HEAD request to find out whether the file is worth fetching in parallel ranges.
+         */
+        private CompletableFuture<Boolean> probe() {
+            HttpRequest request = newRequest().method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+            CompletableFuture<HttpResponse<Void>> exchange = CLIENT.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+            exchanges.add(exchange);
+            return exchange.handle((response, error) -> {
+                exchanges.remove(exchange);
+                if (error != null || response.statusCode() != 200) {
+                    return false; // Fall back to a plain GET, which reports any real error
+                }
+                long length = response.headers().firstValueAsLong("content-length").orElse(-1);
+                if (!supportsRanges(response.headers()) || length < PARALLEL_MIN_BYTES) {
+                    return false;
+                }
+                try {
+                    acceptResponse(new HeadInfo(response.statusCode(), response.headers(), response.version()), length);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                return true;
+            });
+        }
+
+        /**
+         * Fetches the file as several ranges at once. If the server turns out not to honour
+         * ranges after all, the file is fetched again in a single request.
+         */
+        private CompletableFuture<Long> fetchParallel() {
+            long length = totalLength;
+            int count = ranges.parallelRanges();
+            long rangeSize = (length + count - 1) / count;
+            LOGGER.debug("Fetching {} in {} ranges of {} bytes", uri, count, rangeSize);
+
+            List<CompletableFuture<Long>> parts = new ArrayList<>();
+            for (long start = 0; start < length; start += rangeSize) {
+                // Waiting on the callback, not the range, keeps a late abort from cancelling the fallback
+                parts.add(fetch(start, Math.min(length, start + rangeSize) - 1, ranges.resumeAttempts())
+                    .whenComplete((end, error) -> {
+                        if (error != null) {
+                            // One range failed, stop the others; their failures are only the cancellation
+                            rangeFailure.compareAndSet(null, unwrap(error));
+                            aborted = true;
+                            exchanges.forEach(exchange -> exchange.cancel(true));
+                        }
+                    }));
+            }
+
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+                .thenApply(done -> length)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = rangeFailure.getAndSet(null);
+                    if (cause == null) {
+                        cause = unwrap(error);
+                    }
+                    if (cause instanceof RangeIgnoredException && !cancelled) {
+                        LOGGER.debug("Server ignored range requests for {}, fetching in one request", uri);
+                        aborted = false;
+                        received.set(0);
+                        return fetch(0, -1, ranges.resumeAttempts());
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+        }
+
+        /**
+         * Fetches part of the file, resuming it if it is interrupted.
+         *
+         * @param start The first byte to fetch
+         * @param end The last byte to fetch, or -1 for the rest of the file
+         * @param attemptsLeft How many more times the range may be resumed
+         * @return A future completing with the file position after the last byte written
+         */
+        private CompletableFuture<Long> fetch(long start, long end, int attemptsLeft) {
+            if (cancelled || aborted) {
+                return CompletableFuture.failedFuture(new IOException("Download cancelled"));
+            }
+
+            HttpRequest.Builder builder = newRequest().GET();
+            boolean ranged = start > 0 || end >= 0;
+            if (ranged) {
+                builder.header("Range", "bytes=" + start + "-" + (end >= 0 ? end : ""));
+                String ifRange = validator;
+                if (ifRange != null) {
+                    builder.header("If-Range", ifRange);
+                }
+            } else {
+                if (conditions.etag() != null) {
+                    builder.header("If-None-Match", conditions.etag());
+                }
+                if (conditions.lastModified() != null) {
+                    builder.header("If-Modified-Since", conditions.lastModified());
+                }
+            }
+
+            RangeSubscriber[] subscriber = new RangeSubscriber[1];
+            CompletableFuture<HttpResponse<Long>> exchange = CLIENT.sendAsync(builder.build(), info -> {
+                subscriber[0] = new RangeSubscriber(this, info, start, end, ranged);
+                return subscriber[0];
+            });
+            exchanges.add(exchange);
+
+            return exchange.thenApply(HttpResponse::body).exceptionallyCompose(error -> {
+                exchanges.remove(exchange);
+                Throwable cause = unwrap(error);
+                RangeSubscriber failed = subscriber[0];
+                if (cancelled || aborted || attemptsLeft <= 0 || !acceptsRanges || failed == null || !failed.isRetryable()) {
+                    return CompletableFuture.failedFuture(cause);
+                }
+                long resumeAt = failed.getPosition();
+                LOGGER.info("Download of {} interrupted at byte {} ({}), resuming", uri, resumeAt, cause.getMessage());
+                return CompletableFuture.supplyAsync(() -> null,
+                        CompletableFuture.delayedExecutor(RESUME_DELAY_MS, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> fetch(resumeAt, end, attemptsLeft - 1));
+            }).whenComplete((position, error) -> exchanges.remove(exchange));
+        }
+
+        private HttpRequest.Builder newRequest() {
+            return HttpRequest.newBuilder(uri)
+                .timeout(idleTimeout)
+                .header("User-Agent", userAgent);
+        }
+
+        /**
+         * Records what the first response says about the file and passes it to the listener.
+         */
+        private synchronized void acceptResponse(HttpResponse.ResponseInfo response, long length) throws IOException {
+            if (responded) {
+                return;
+            }
+            responded = true;
+            listener.onResponse(response, length);
+
+            HttpHeaders headers = response.headers();
+            totalLength = length;
+            acceptsRanges = supportsRanges(headers);
+            validator = headers.firstValue("etag").filter(etag -> !etag.startsWith("W/"))
+                .or(() -> headers.firstValue("last-modified"))
+                .orElse(null);
+        }
+
+        private synchronized void onProgress(long delta) throws IOException {
+            listener.onData(received.addAndGet(delta), totalLength);
+        }
+
+        private void finish(Long size, Throwable error) {
+            exchanges.clear();
+            try {
+                if (channel != null) {
+                    if (error == null) {
+                        channel.truncate(size); // A restarted transfer may have left a longer file
+                    }
+                    channel.close();
+                }
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+
+            if (error != null) {
+                deleteQuietly(target);
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(size);
+            }
+        }
+
+        private static boolean supportsRanges(HttpHeaders headers) {
+            return headers.firstValue("accept-ranges").map(value -> value.equalsIgnoreCase("bytes")).orElse(false);
+        }
+    }
+
+    /**
+     * The status and headers of a HEAD response, passed to the listener like those of a GET.
+     */
+    private record HeadInfo(int statusCode, HttpHeaders headers, HttpClient.Version version)
+        implements HttpResponse.ResponseInfo {
+    }
+
+    /**
+     * Thrown when a server answers a range request for part of the file with the whole file.
+     */
+    private static class RangeIgnoredException extends IOException {
+        RangeIgnoredException() {
+            super("Server ignored the range request");
+        }
+    }
+
+    /**
+     * Writes one response body into the transfer's file at its range offset as it arrives.
+     */
+    private static class RangeSubscriber implements HttpResponse.BodySubscriber<Long> {
+        private final CompletableFuture<Long> body = new CompletableFuture<>();
+        private final Transfer transfer;
+        private final long end;
+        private final long idleTimeoutNanos;
+        private final IOException rejection;
+        private Flow.Subscription subscription;
+        private ScheduledFuture<?> watchdog;
+        private volatile long position;
+        private volatile boolean retryable;
+        private volatile long lastActivity = System.nanoTime();
+
+        RangeSubscriber(Transfer transfer, HttpResponse.ResponseInfo info, long start, long end, boolean ranged) {
+            this.transfer = transfer;
+            this.end = end;
+            this.idleTimeoutNanos = transfer.idleTimeout.toNanos();
+            this.position = start;
+
+            IOException rejected = null;
+            long length = info.headers().firstValueAsLong("content-length").orElse(-1);
+            try {
+                if (!ranged && info.statusCode() == 304) {
+                    throw new NotModifiedException();
+                } else if (ranged && info.statusCode() == 206) {
+                    String contentRange = info.headers().firstValue("content-range").orElse("");
+                    if (!contentRange.startsWith("bytes " + start + "-")) {
+                        throw new IOException("Unexpected Content-Range: " + contentRange);
+                    }
+                } else if (info.statusCode() == 200) {
+                    if (ranged) {
+                        if (end >= 0) {
+                            throw new RangeIgnoredException();
+                        }
+                        // The file changed or the server ignored the range: start over
+                        LOGGER.debug("Server sent the whole file instead of resuming, restarting");
+                        position = 0;
+                        transfer.received.set(0);
+                        transfer.totalLength = length;
+                    }
+                    transfer.acceptResponse(info, length);
+                } else {
+                    throw new IOException("HTTP error code: " + info.statusCode());
+                }
+            } catch (IOException e) {
+                rejected = e;
+            }
+            this.rejection = rejected;
+        }
+
+        /**
+         * @return The file position after the last byte written
+         */
+        long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return true if the body failed in a way that resuming can fix, such as a dropped connection
+         */
+        boolean isRetryable() {
+            return retryable;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (rejection != null) {
+                subscription.cancel();
+                fail(rejection, false);
+                return;
+            }
+            long period = Math.max(1, idleTimeoutNanos / 2);
+            watchdog = WATCHDOG.scheduleWithFixedDelay(this::checkIdle, period, period, TimeUnit.NANOSECONDS);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            try {
+                long written = 0;
+                for (ByteBuffer buffer : buffers) {
+                    while (buffer.hasRemaining()) {
+                        written += transfer.channel.write(buffer, position + written);
+                    }
+                }
+                position += written;
+                if (end >= 0 && position > end + 1) {
+                    throw new IOException("Server sent more data than requested");
+                }
+                transfer.onProgress(written);
+            } catch (IOException e) {
+                subscription.cancel();
+                fail(e, false);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable, true);
+        }
+
+        @Override
+        public void onComplete() {
+            long expectedEnd = end >= 0 ? end + 1 : transfer.totalLength;
+            if (expectedEnd >= 0 && position < expectedEnd) {
+                fail(new IOException("Connection closed after " + position + " of " + expectedEnd + " bytes"), true);
+                return;
+            }
+            stopWatchdog();
+            body.complete(position);
+        }
+
+        @Override
+        public CompletionStage<Long> getBody() {
+            return body;
+        }
+
+        private void checkIdle() {
+            if (System.nanoTime() - lastActivity > idleTimeoutNanos) {
+                subscription.cancel();
+                fail(new HttpTimeoutException("No data received for " + TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos) + " seconds"), true);
+            }
+        }
+
+        private void fail(Throwable error, boolean canResume) {
+            stopWatchdog();
+            retryable = canResume;
+            body.completeExceptionally(error);
+        }
+
+        private void stopWatchdog() {
+            ScheduledFuture<?> running = watchdog;
+            if (running != null) {
+                running.cancel(false);
+            }
+        }
+    }
+}
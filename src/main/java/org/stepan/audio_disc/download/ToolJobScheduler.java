@@ -0,0 +1,399 @@
+package org.stepan.audio_disc.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs jobs that start external tools such as yt-dlp and FFmpeg on a small pool of
+ * dedicated threads, so a burst of uploads cannot fork an unbounded number of heavy
+ * processes or tie up shared thread pools while waiting for them.
+ *
+ * <p>At most a fixed number of jobs run at once; the rest wait in a bounded queue and
+ * are told their position whenever it changes. Processes started by a job run at a
+ * lowered CPU priority, and a job still running after its timeout has its processes
+ * killed and fails.</p>
+ */
+public class ToolJobScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final long KILL_GRACE_MILLIS = 2000;
+
+    private final int maxConcurrentJobs;
+    private final int maxQueuedJobs;
+    private final long timeoutMillis;
+    private final List<String> nicePrefix;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+
+    private final Object queueLock = new Object();
+    private final Deque<QueuedJob<?>> queue = new ArrayDeque<>(); // guarded by queueLock
+    private final Set<QueuedJob<?>> running = new HashSet<>(); // guarded by queueLock
+    private int runningCount; // guarded by queueLock
+
+    /**
+     * A piece of work that runs external tools.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface Job<T> {
+        /**
+         * Runs the job on a scheduler thread.
+         *
+         * @param context Starts the job's processes
+         * @return The result
+         * @throws Exception if the job fails
+         */
+        T run(JobContext context) throws Exception;
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param maxConcurrentJobs Jobs running at once
+     * @param maxQueuedJobs Jobs allowed to wait for a free slot
+     * @param niceness CPU niceness of started processes on Unix-like systems (0-19), 0 = unchanged
+     * @param timeoutSeconds How long a job may run before its processes are killed
+     */
+    public ToolJobScheduler(int maxConcurrentJobs, int maxQueuedJobs, int niceness, int timeoutSeconds) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.nicePrefix = findNice(niceness);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-ToolJob-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-ToolJobTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a job, queueing it if every slot is busy. Cancelling the returned future
+     * removes a queued job or kills the processes of a running one.
+     *
+     * @param description Short description for the log
+     * @param job The job
+     * @param queuePositionCallback Called with the job's queue position each time it changes while it waits, may be null
+     * @param <T> The result type
+     * @return Completes with the job's result, or with a {@link TimeoutException} if it ran too long
+     */
+    public <T> CompletableFuture<T> submit(String description, Job<T> job, IntConsumer queuePositionCallback) {
+        QueuedJob<T> queued = new QueuedJob<>(description, job, queuePositionCallback);
+        int position;
+        synchronized (queueLock) {
+            if (runningCount < maxConcurrentJobs) {
+                runningCount++;
+                position = 0;
+            } else if (queue.size() >= maxQueuedJobs) {
+                return CompletableFuture.failedFuture(
+                    new IllegalStateException("Server is busy processing other uploads. Please try again later."));
+            } else {
+                queue.add(queued);
+                position = queue.size();
+            }
+        }
+
+        queued.future.whenComplete((result, error) -> {
+            if (queued.future.isCancelled()) {
+                cancel(queued);
+            }
+        });
+
+        if (position == 0) {
+            start(queued);
+        } else {
+            LOGGER.info("Queued tool job at position {}: {}", position, description);
+            if (queuePositionCallback != null) {
+                queuePositionCallback.accept(position);
+            }
+        }
+        return queued.future;
+    }
+
+    /**
+     * Gets the number of jobs waiting for a free slot.
+     *
+     * @return The queue length
+     */
+    public int getQueuedCount() {
+        synchronized (queueLock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Kills all running processes and stops the worker threads.
+     */
+    public void shutdown() {
+        List<QueuedJob<?>> waiting;
+        List<QueuedJob<?>> active;
+        synchronized (queueLock) {
+            waiting = new ArrayList<>(queue);
+            queue.clear();
+            active = new ArrayList<>(running);
+        }
+        waiting.forEach(queued -> queued.future.cancel(false));
+        // No grace period: the server is stopping and nothing would be left to finish the kill
+        active.forEach(queued -> queued.context.killNow());
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private <T> void start(QueuedJob<T> queued) {
+        synchronized (queueLock) {
+            running.add(queued);
+        }
+        workers.execute(() -> {
+            try {
+                if (queued.future.isDone()) {
+                    return; // Cancelled while being handed to a worker
+                }
+                queued.timeout = timer.schedule(() -> expire(queued), timeoutMillis, TimeUnit.MILLISECONDS);
+                try {
+                    queued.future.complete(queued.job.run(queued.context));
+                } catch (Throwable t) {
+                    queued.future.completeExceptionally(t);
+                }
+            } finally {
+                if (queued.timeout != null) {
+                    queued.timeout.cancel(false);
+                }
+                queued.context.kill(); // Nothing a finished job started may outlive it
+                synchronized (queueLock) {
+                    running.remove(queued);
+                }
+                finished();
+            }
+        });
+    }
+
+    /**
+     * Hands the freed slot to the next queued job and tells the others their new positions.
+     */
+    private void finished() {
+        QueuedJob<?> next;
+        List<QueuedJob<?>> waiting;
+        synchronized (queueLock) {
+            next = queue.poll();
+            if (next == null) {
+                runningCount--;
+                return;
+            }
+            waiting = new ArrayList<>(queue);
+        }
+        start(next);
+        notifyPositions(waiting);
+    }
+
+    private void cancel(QueuedJob<?> queued) {
+        boolean removed;
+        List<QueuedJob<?>> waiting;
+        synchronized (queueLock) {
+            removed = queue.remove(queued);
+            waiting = new ArrayList<>(queue);
+        }
+        if (removed) {
+            notifyPositions(waiting);
+        } else {
+            queued.context.kill();
+        }
+    }
+
+    private void expire(QueuedJob<?> queued) {
+        LOGGER.warn("Tool job timed out after {} seconds, killing its processes: {}",
+            TimeUnit.MILLISECONDS.toSeconds(timeoutMillis), queued.description);
+        queued.future.completeExceptionally(new TimeoutException("Processing took too long and was stopped"));
+        queued.context.kill();
+    }
+
+    private static void notifyPositions(List<QueuedJob<?>> waiting) {
+        for (int i = 0; i < waiting.size(); i++) {
+            IntConsumer callback = waiting.get(i).queuePositionCallback;
+            if (callback != null) {
+                callback.accept(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Finds the {@code nice} command used to lower the priority of started processes.
+     *
+     * @return The command prefix, or an empty list if priorities are not lowered
+     */
+    private static List<String> findNice(int niceness) {
+        if (niceness <= 0) {
+            return List.of();
+        }
+        for (String candidate : List.of("/usr/bin/nice", "/bin/nice")) {
+            if (Files.isExecutable(Path.of(candidate))) {
+                return List.of(candidate, "-n", String.valueOf(niceness));
+            }
+        }
+        LOGGER.info("'nice' is not available, external tools run at normal priority");
+        return List.of();
+    }
+
+    /**
+     * Checks whether an executable exists, looking it up on the PATH if it is a bare name.
+     */
+    private static boolean isExecutable(String executable) {
+        if (executable.contains("/")) { // nice is only used on Unix-like systems
+            return Files.isExecutable(Path.of(executable));
+        }
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String directory : path.split(":")) {
+            if (!directory.isEmpty() && Files.isExecutable(Path.of(directory, executable))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts the processes of one job, so they can be killed when it times out or is cancelled.
+     */
+    public final class JobContext {
+        private final List<Process> processes = new CopyOnWriteArrayList<>();
+        private volatile boolean killed;
+
+        private JobContext() {
+        }
+
+        /**
+         * Starts a process of a tool at the scheduler's priority.
+         *
+         * @param tool The tool being run
+         * @param builder The process to start
+         * @return The started process
+         * @throws IOException if the process cannot be started, or the job was already stopped
+         */
+        public Process start(ToolRegistry.Tool tool, ProcessBuilder builder) throws IOException {
+            return register(List.of(ToolRegistry.start(tool, prioritised(tool, builder)))).get(0);
+        }
+
+        /**
+         * Starts processes connected by pipes at the scheduler's priority.
+         *
+         * @param builders The processes to start, in pipeline order
+         * @param tools The tools being run
+         * @return The started processes
+         * @throws IOException if the processes cannot be started, or the job was already stopped
+         */
+        public List<Process> startPipeline(List<ProcessBuilder> builders, ToolRegistry.Tool... tools) throws IOException {
+            for (int i = 0; i < builders.size(); i++) {
+                prioritised(tools[Math.min(i, tools.length - 1)], builders.get(i));
+            }
+            return register(ToolRegistry.startPipeline(builders, tools));
+        }
+
+        private ProcessBuilder prioritised(ToolRegistry.Tool tool, ProcessBuilder builder) throws IOException {
+            if (!nicePrefix.isEmpty()) {
+                // Under nice a missing tool only shows as nice exiting with 127, so check it
+                // first and fail the way starting it directly would, which re-probes the tool
+                String executable = builder.command().get(0);
+                if (!isExecutable(executable)) {
+                    ToolRegistry.invalidate(tool);
+                    throw new IOException("Cannot run program \"" + executable + "\": not found");
+                }
+                List<String> command = new ArrayList<>(nicePrefix);
+                command.addAll(builder.command());
+                builder.command(command);
+            }
+            return builder;
+        }
+
+        /**
+         * Checks whether the job timed out or was cancelled. Its future has already failed
+         * by then, so a job that is still running should stop before storing anything or
+         * telling a player about its result.
+         *
+         * @return true if the job was stopped
+         */
+        public boolean isStopped() {
+            return killed;
+        }
+
+        private List<Process> register(List<Process> started) throws IOException {
+            processes.addAll(started);
+            if (killed) {
+                kill(); // Timed out or cancelled while starting
+                throw new IOException("Job was stopped");
+            }
+            return started;
+        }
+
+        /**
+         * Asks the job's processes and their children to exit, and kills them forcibly
+         * if they are still running after a short grace period.
+         */
+        private void kill() {
+            killed = true;
+            for (Process process : processes) {
+                if (!process.isAlive()) {
+                    continue;
+                }
+                process.descendants().forEach(ProcessHandle::destroy);
+                process.destroy();
+                process.onExit().completeOnTimeout(null, KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS)
+                    .thenRun(() -> destroyForcibly(process));
+            }
+        }
+
+        /**
+         * Kills the job's processes and their children at once.
+         */
+        private void killNow() {
+            killed = true;
+            processes.forEach(JobContext::destroyForcibly);
+        }
+
+        private static void destroyForcibly(Process process) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    private final class QueuedJob<T> {
+        final String description;
+        final Job<T> job;
+        final IntConsumer queuePositionCallback;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final JobContext context = new JobContext();
+        volatile ScheduledFuture<?> timeout;
+
+        QueuedJob(String description, Job<T> job, IntConsumer queuePositionCallback) {
+            this.description = description;
+            this.job = job;
+            this.queuePositionCallback = queuePositionCallback;
+        }
+    }
+}
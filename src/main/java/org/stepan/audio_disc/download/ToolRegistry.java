@@ -0,0 +1,223 @@
+package org.stepan.audio_disc.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remembers where the external tools were found and which version they reported, so
+ * availability checks don't start a process each time.
+ *
+ * <p>Each tool is probed once, normally at startup, by running its version command on
+ * each candidate path in turn. The result, found or not, is kept until the tool fails
+ * to start, the mod installs or removes it, or an admin asks for a refresh.</p>
+ */
+public final class ToolRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final long PROBE_TIMEOUT_SECONDS = 10;
+
+    private static final Map<Tool, Optional<ToolInfo>> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * An external tool the mod runs.
+     */
+    public enum Tool {
+        YT_DLP("yt-dlp", "--version"),
+        FFMPEG("FFmpeg", "-version");
+
+        private final String displayName;
+        private final String versionArgument;
+
+        Tool(String displayName, String versionArgument) {
+            this.displayName = displayName;
+            this.versionArgument = versionArgument;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * @return Executables to try, in order of preference
+         */
+        private List<String> candidates() {
+            return switch (this) {
+                case YT_DLP -> YtDlpManager.candidates();
+                case FFMPEG -> FFmpegManager.candidates();
+            };
+        }
+    }
+
+    /**
+     * A working tool.
+     *
+     * @param path The executable, as passed to {@link ProcessBuilder}
+     * @param version The version it reported
+     */
+    public record ToolInfo(String path, String version) {
+    }
+
+    private ToolRegistry() {
+    }
+
+    /**
+     * Gets a tool, probing for it if it has not been probed yet.
+     *
+     * @param tool The tool
+     * @return The tool, or empty if no candidate works
+     */
+    public static Optional<ToolInfo> get(Tool tool) {
+        // Concurrent callers of the same tool wait for one probe
+        return resolved.computeIfAbsent(tool, ToolRegistry::probe);
+    }
+
+    /**
+     * Checks whether a tool is available.
+     *
+     * @param tool The tool
+     * @return true if a working executable was found
+     */
+    public static boolean isAvailable(Tool tool) {
+        return get(tool).isPresent();
+    }
+
+    /**
+     * Forgets the result for a tool, so the next use probes it again.
+     *
+     * @param tool The tool
+     */
+    public static void invalidate(Tool tool) {
+        resolved.remove(tool);
+    }
+
+    /**
+     * Probes all tools again.
+     */
+    public static void refresh() {
+        for (Tool tool : Tool.values()) {
+            invalidate(tool);
+            get(tool);
+        }
+    }
+
+    /**
+     * Starts a process of a tool. If it cannot be started, the tool is probed again on
+     * its next use, since the executable was probably moved or removed.
+     *
+     * @param tool The tool being run
+     * @param builder The process to start
+     * @return The started process
+     * @throws IOException if the process cannot be started
+     */
+    public static Process start(Tool tool, ProcessBuilder builder) throws IOException {
+        try {
+            return builder.start();
+        } catch (IOException e) {
+            invalidate(tool);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts processes connected by pipes, like {@link ProcessBuilder#startPipeline}.
+     * If they cannot be started, all of the given tools are probed again on their next use.
+     *
+     * @param builders The processes to start, in pipeline order
+     * @param tools The tools being run
+     * @return The started processes
+     * @throws IOException if the processes cannot be started
+     */
+    public static List<Process> startPipeline(List<ProcessBuilder> builders, Tool... tools) throws IOException {
+        try {
+            return ProcessBuilder.startPipeline(builders);
+        } catch (IOException e) {
+            for (Tool tool : tools) {
+                invalidate(tool);
+            }
+            throw e;
+        }
+    }
+
+    private static Optional<ToolInfo> probe(Tool tool) {
+        for (String candidate : tool.candidates()) {
+            String version = readVersion(candidate, tool.versionArgument);
+            if (version != null) {
+                LOGGER.info("Found {} {} at {}", tool.displayName, version, candidate);
+                return Optional.of(new ToolInfo(candidate, version));
+            }
+        }
+        LOGGER.info("{} not found", tool.displayName);
+        return Optional.empty();
+    }
+
+    /**
+     * Runs the version command of an executable.
+     *
+     * @return The reported version, or null if the executable does not work
+     */
+    private static String readVersion(String executable, String versionArgument) {
+        try {
+            Process process = new ProcessBuilder(executable, versionArgument).redirectErrorStream(true).start();
+
+            // Read on another thread, so a tool that hangs cannot outlast the timeout
+            AtomicReference<String> firstLine = new AtomicReference<>();
+            Thread reader = new Thread(() -> readFirstLine(process, firstLine), "AudioDisc-ToolProbe");
+            reader.setDaemon(true);
+            reader.start();
+
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} {} did not finish within {} seconds", executable, versionArgument, PROBE_TIMEOUT_SECONDS);
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                return null;
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(1));
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            return parseVersion(firstLine.get());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static void readFirstLine(Process process, AtomicReference<String> firstLine) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            firstLine.set(reader.readLine());
+            while (reader.readLine() != null) {
+                // Drain the rest so the process can exit
+            }
+        } catch (IOException e) {
+            // The process was killed or closed its output
+        }
+    }
+
+    /**
+     * Takes the version from the first line of the output: the whole line for yt-dlp,
+     * the word after "version" for FFmpeg.
+     */
+    private static String parseVersion(String line) {
+        if (line == null || line.isBlank()) {
+            return "unknown";
+        }
+        String[] words = line.trim().split("\\s+");
+        for (int i = 0; i + 1 < words.length; i++) {
+            if (words[i].equals("version")) {
+                return words[i + 1];
+            }
+        }
+        return words[0];
+    }
+}
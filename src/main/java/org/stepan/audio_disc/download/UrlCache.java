@@ -0,0 +1,247 @@
+package org.stepan.audio_disc.download;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stepan.audio_disc.util.DurableFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which stored audio each downloaded URL produced, together with the
+ * validators the server sent, so a repeat upload of the same URL can reuse the
+ * stored file instead of downloading and processing it again.
+ *
+ * <p>An entry validated within the freshness window is reused without touching the
+ * network. An older entry is revalidated with a conditional GET; a 304 answer reuses
+ * it, anything else downloads the file as usual. The cache keeps the most recently
+ * used URLs and is saved to a small JSON file shortly after it changes, so a burst of
+ * uploads is written once.</p>
+ *
+ * <p>URLs are keyed by {@link AudioDownloadManager#normalizeUrl(String)}, the same key
+ * concurrent uploads coalesce on, so every spelling of an address shares one entry.</p>
+ */
+public class UrlCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    private final Path file;
+    private final int maxEntries;
+    private final long freshMillis;
+    private final Gson gson = new Gson();
+    private final ScheduledThreadPoolExecutor saver = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "AudioDisc-UrlCacheSave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object saveLock = new Object(); // orders writes of the file
+    private boolean saveScheduled; // guarded by this
+
+    // Access-ordered, so the eldest entry is the least recently used URL
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) { // guarded by this
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * A stored download.
+     *
+     * @param audioId An audio ID holding the downloaded content
+     * @param contentHash The SHA-256 of the content, used to check the audio still holds it
+     * @param validators The ETag and Last-Modified the server sent with the content
+     * @param validatedAt When the server last confirmed the content (milliseconds since epoch)
+     */
+    public record Entry(String audioId, String contentHash, HttpTransfer.Validators validators, long validatedAt) {
+    }
+
+    /**
+     * Creates a cache and loads any entries saved earlier.
+     *
+     * @param file The file the cache is saved to
+     * @param maxEntries Maximum number of URLs remembered; 0 disables the cache
+     * @param freshSeconds How long an entry is reused without revalidating it
+     */
+    public UrlCache(Path file, int maxEntries, int freshSeconds) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.freshMillis = freshSeconds * 1000L;
+        this.saver.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        load();
+    }
+
+    /**
+     * Looks up the stored download of a URL.
+     *
+     * @param url The URL
+     * @return The entry, or empty if the URL has not been downloaded
+     */
+    public synchronized Optional<Entry> get(String url) {
+        return Optional.ofNullable(entries.get(key(url)));
+    }
+
+    /**
+     * Checks whether an entry can be reused without asking the server.
+     *
+     * @param entry The entry
+     * @return true if it was validated within the freshness window
+     */
+    public boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() - entry.validatedAt() < freshMillis;
+    }
+
+    /**
+     * Records a completed download, or a reuse confirmed by the server.
+     *
+     * @param url The URL
+     * @param audioId An audio ID holding the content
+     * @param contentHash The SHA-256 of the content
+     * @param validators The validators the server sent
+     */
+    public void put(String url, String audioId, String contentHash, HttpTransfer.Validators validators) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(key(url), new Entry(audioId, contentHash, validators, System.currentTimeMillis()));
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Points an entry at another audio ID holding the same content, keeping its
+     * validation time. Used after a fresh entry is reused without asking the server.
+     *
+     * @param url The URL
+     * @param audioId The new audio ID
+     */
+    public synchronized void relink(String url, String audioId) {
+        String key = key(url);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entries.put(key, new Entry(audioId, entry.contentHash(), entry.validators(), entry.validatedAt()));
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Forgets a URL, for example because its audio was removed.
+     *
+     * @param url The URL
+     */
+    public synchronized void invalidate(String url) {
+        if (entries.remove(key(url)) != null) {
+            scheduleSave();
+        }
+    }
+
+    private static String key(String url) {
+        return AudioDownloadManager.normalizeUrl(url);
+    }
+
+    private void load() {
+        if (maxEntries <= 0 || !Files.exists(file)) {
+            return;
+        }
+        try {
+            JsonObject root = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+            synchronized (this) {
+                for (Map.Entry<String, JsonElement> element : root.entrySet()) {
+                    JsonObject obj = element.getValue().getAsJsonObject();
+                    entries.put(key(element.getKey()), new Entry(
+                        obj.get("audioId").getAsString(),
+                        obj.get("contentHash").getAsString(),
+                        new HttpTransfer.Validators(
+                            obj.has("etag") ? obj.get("etag").getAsString() : null,
+                            obj.has("lastModified") ? obj.get("lastModified").getAsString() : null),
+                        obj.get("validatedAt").getAsLong()
+                    ));
+                }
+            }
+            LOGGER.info("Loaded {} cached URL downloads", root.size());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to load URL download cache, starting empty: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes any unsaved changes now and stops saving in the background.
+     * Called when the server stops.
+     */
+    public void close() {
+        // A save already running finishes; interrupting it would abort its write
+        saver.shutdown();
+        boolean pending;
+        synchronized (this) {
+            pending = saveScheduled;
+        }
+        if (pending) {
+            save();
+        }
+    }
+
+    /**
+     * Saves the cache after a short delay, unless a save is already pending.
+     * Called while holding this object's lock.
+     */
+    private void scheduleSave() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        try {
+            saver.schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed: close() has written or is writing the file
+        }
+    }
+
+    /**
+     * Writes the cache durably, replacing the file atomically.
+     */
+    private void save() {
+        synchronized (saveLock) {
+            String json;
+            synchronized (this) {
+                saveScheduled = false;
+                json = gson.toJson(toJson());
+            }
+            try {
+                DurableFiles.replace(file, json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                LOGGER.warn("Failed to save URL download cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    private JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        entries.forEach((url, entry) -> {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("audioId", entry.audioId());
+            obj.addProperty("contentHash", entry.contentHash());
+            if (entry.validators().etag() != null) {
+                obj.addProperty("etag", entry.validators().etag());
+            }
+            if (entry.validators().lastModified() != null) {
+                obj.addProperty("lastModified", entry.validators().lastModified());
+            }
+            obj.addProperty("validatedAt", entry.validatedAt());
+            root.add(url, obj);
+        });
+        return root;
+    }
+}
@@ -5,11 +5,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -28,32 +29,24 @@ public class YtDlpManager {
     
     /**
      * Checks if yt-dlp is available (either system-installed or mod-installed).
+     * The result of the first check is cached by {@link ToolRegistry}.
      */
     public static boolean isAvailable() {
-        // First check if system yt-dlp is available
-        if (isSystemYtDlpAvailable()) {
-            return true;
-        }
-        
-        // Then check if mod-installed yt-dlp is available
-        return isModYtDlpAvailable();
+        return ToolRegistry.isAvailable(ToolRegistry.Tool.YT_DLP);
     }
     
     /**
      * Gets the path to yt-dlp executable.
      */
     public static String getExecutablePath() {
-        // Prefer system yt-dlp if available
-        if (isSystemYtDlpAvailable()) {
-            return "yt-dlp";
-        }
-        
-        // Use mod-installed yt-dlp
-        if (ytDlpExecutable != null && Files.exists(ytDlpExecutable)) {
-            return ytDlpExecutable.toString();
-        }
-        
-        return null;
+        return ToolRegistry.get(ToolRegistry.Tool.YT_DLP).map(ToolRegistry.ToolInfo::path).orElse(null);
+    }
+    
+    /**
+     * Gets the version reported by yt-dlp.
+     */
+    public static String getVersion() {
+        return ToolRegistry.get(ToolRegistry.Tool.YT_DLP).map(ToolRegistry.ToolInfo::version).orElse(null);
     }
     
     /**
@@ -101,7 +94,8 @@ public class YtDlpManager {
                 LOGGER.info("Successfully downloaded and installed yt-dlp to: {}", executable);
                 
                 // Test the installation
-                if (testYtDlp(executable.toString())) {
+                ToolRegistry.invalidate(ToolRegistry.Tool.YT_DLP);
+                if (isAvailable()) {
                     LOGGER.info("yt-dlp installation verified successfully");
                     return true;
                 } else {
@@ -117,43 +111,24 @@ public class YtDlpManager {
     }
     
     /**
-     * Checks if system yt-dlp is available.
+     * Lists the yt-dlp executables to probe: the system one first, then the mod-installed one.
      */
-    private static boolean isSystemYtDlpAvailable() {
-        return testYtDlp("yt-dlp");
-    }
-    
-    /**
-     * Checks if mod-installed yt-dlp is available.
-     */
-    private static boolean isModYtDlpAvailable() {
+    static List<String> candidates() {
+        List<String> candidates = new ArrayList<>();
+        candidates.add("yt-dlp");
+        
         if (ytDlpExecutable == null) {
             // Try to find existing installation
             String fileName = getExecutableNameForPlatform();
-            if (fileName != null) {
-                Path executable = YT_DLP_DIR.resolve(fileName);
-                if (Files.exists(executable)) {
-                    ytDlpExecutable = executable;
-                    return testYtDlp(executable.toString());
-                }
+            if (fileName != null && Files.exists(YT_DLP_DIR.resolve(fileName))) {
+                ytDlpExecutable = YT_DLP_DIR.resolve(fileName);
             }
         }
-        
-        return ytDlpExecutable != null && Files.exists(ytDlpExecutable) && testYtDlp(ytDlpExecutable.toString());
-    }
-    
-    /**
-     * Tests if yt-dlp executable works.
-     */
-    private static boolean testYtDlp(String executable) {
-        try {
-            ProcessBuilder pb = new ProcessBuilder(executable, "--version");
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
+        if (ytDlpExecutable != null && Files.exists(ytDlpExecutable)) {
+            candidates.add(ytDlpExecutable.toString());
         }
+        
+        return candidates;
     }
     
     /**
@@ -161,25 +136,13 @@ public class YtDlpManager {
      */
     private static boolean downloadFile(String urlString, Path destination) {
         try {
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
-            connection.setRequestProperty("User-Agent", "AudioDisc-Mod/1.0");
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                LOGGER.error("Failed to download yt-dlp: HTTP {}", responseCode);
-                return false;
-            }
-            
-            long fileSize = connection.getContentLengthLong();
-            LOGGER.info("Downloading yt-dlp ({} MB)...", fileSize > 0 ? String.format("%.1f", fileSize / 1024.0 / 1024.0) : "unknown size");
-            
-            try (InputStream in = connection.getInputStream()) {
-                Files.copy(in, destination, StandardCopyOption.REPLACE_EXISTING);
-            }
+            HttpTransfer.downloadBlocking(urlString, destination, "AudioDisc-Mod/1.0", Duration.ofSeconds(60),
+                new HttpTransfer.Listener() {
+                    @Override
+                    public void onResponse(HttpResponse.ResponseInfo response, long fileSize) {
+                        LOGGER.info("Downloading yt-dlp ({} MB)...", fileSize > 0 ? String.format("%.1f", fileSize / 1024.0 / 1024.0) : "unknown size");
+                    }
+                }, new HttpTransfer.RangeOptions(3, 1));
             
             LOGGER.info("Download completed: {}", destination);
             return true;
@@ -249,6 +212,7 @@ public class YtDlpManager {
             if (ytDlpExecutable != null && Files.exists(ytDlpExecutable)) {
                 Files.delete(ytDlpExecutable);
                 ytDlpExecutable = null;
+                ToolRegistry.invalidate(ToolRegistry.Tool.YT_DLP);
                 LOGGER.info("Uninstalled mod-installed yt-dlp");
                 return true;
             }
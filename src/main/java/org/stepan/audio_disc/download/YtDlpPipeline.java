@@ -0,0 +1,194 @@
+package org.stepan.audio_disc.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams the audio of a video from yt-dlp's standard output into a file, through one
+ * FFmpeg process that converts it on the way with the {@link AudioIngest} stage.
+ *
+ * <p>FFmpeg is required: most videos only offer audio in M4A or WebM containers,
+ * which the mod cannot play as downloaded.</p>
+ *
+ * <p>The processes are connected by operating system pipes, and the last one writes
+ * straight into the target file, so no intermediate files are written or read back.
+ * yt-dlp's log on standard error is read alongside for progress and error reporting,
+ * and so are FFmpeg's errors.</p>
+ */
+public final class YtDlpPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The outcome of a pipeline run.
+     *
+     * @param exitCode 0 if every process succeeded, otherwise the first failing exit code
+     * @param log What yt-dlp printed, for matching known error messages
+     * @param ffmpegLog What FFmpeg printed; only errors are printed
+     * @param bytes Bytes written to the target file
+     */
+    public record Result(int exitCode, String log, String ffmpegLog, long bytes) {
+        public boolean succeeded() {
+            return exitCode == 0 && bytes > 0;
+        }
+    }
+
+    private YtDlpPipeline() {
+    }
+
+    /**
+     * Downloads the audio of a video into a file.
+     *
+     * @param context Starts the processes of the calling job
+     * @param ytDlpPath The yt-dlp executable
+     * @param ffmpegPath The FFmpeg executable to convert with
+     * @param ingest How FFmpeg converts the audio
+     * @param url The video URL
+     * @param target The file to write
+     * @param maxBytes Maximum size of the written file
+     * @param progress Receives the download progress (0-100)
+     * @return The outcome
+     * @throws IOException if a process cannot be started, the file cannot be written or it grows too large
+     * @throws InterruptedException if interrupted while waiting for the processes
+     */
+    public static Result run(ToolJobScheduler.JobContext context, String ytDlpPath, String ffmpegPath,
+                             AudioIngest.Options ingest, String url, Path target, long maxBytes,
+                             Consumer<Integer> progress) throws IOException, InterruptedException {
+        if (ffmpegPath == null) {
+            throw new IllegalArgumentException("FFmpeg is required to stream YouTube audio");
+        }
+
+        List<ProcessBuilder> builders = new ArrayList<>();
+        builders.add(new ProcessBuilder(
+            ytDlpPath,
+            "--format", "bestaudio",
+            "--max-filesize", "50M",     // Max file size
+            "--no-playlist",             // Single video only
+            "--no-part",                 // Nothing to resume when writing to a pipe
+            "--newline",                 // One progress line per update
+            "--output", "-",             // Write the media to standard output
+            url
+        ));
+        List<String> command = new ArrayList<>(List.of(
+            ffmpegPath,
+            "-hide_banner", "-nostdin",
+            "-loglevel", "error",
+            "-i", "pipe:0"
+        ));
+        command.addAll(ingest.outputArguments());
+        command.add("pipe:1");
+        builders.add(new ProcessBuilder(command));
+
+        List<Process> processes = context.startPipeline(builders, ToolRegistry.Tool.YT_DLP, ToolRegistry.Tool.FFMPEG);
+        Process ytDlp = processes.get(0);
+        Process ffmpeg = processes.get(processes.size() - 1);
+
+        StringBuilder log = new StringBuilder();
+        Thread logReader = new Thread(() -> readLog(ytDlp.getErrorStream(), log, progress), "AudioDisc-yt-dlp-log");
+        logReader.setDaemon(true);
+        logReader.start();
+
+        StringBuilder ffmpegLog = new StringBuilder();
+        Thread ffmpegLogReader = new Thread(() -> readLog(ffmpeg.getErrorStream(), ffmpegLog, null), "AudioDisc-ffmpeg-log");
+        ffmpegLogReader.setDaemon(true);
+        ffmpegLogReader.start();
+
+        long bytes;
+        try (InputStream in = ffmpeg.getInputStream();
+             OutputStream out = Files.newOutputStream(target)) {
+            bytes = copy(in, out, maxBytes);
+        } catch (IOException e) {
+            processes.forEach(Process::destroyForcibly);
+            throw e;
+        }
+
+        int exitCode = 0;
+        for (Process process : processes) {
+            int code = process.waitFor();
+            if (exitCode == 0) {
+                exitCode = code;
+            }
+        }
+        logReader.join();
+        ffmpegLogReader.join();
+
+        String output;
+        synchronized (log) {
+            output = log.toString();
+        }
+        String ffmpegOutput;
+        synchronized (ffmpegLog) {
+            ffmpegOutput = ffmpegLog.toString().trim();
+        }
+        return new Result(exitCode, output, ffmpegOutput, bytes);
+    }
+
+    /**
+     * Reads a percentage from a yt-dlp progress line such as
+     * {@code [download]  42.5% of 3.20MiB at 1.10MiB/s ETA 00:01}.
+     *
+     * @param line A line of yt-dlp output
+     * @return The percentage, or -1 if the line is not a progress line
+     */
+    public static int parseProgress(String line) {
+        if (!line.contains("[download]") || !line.contains("%")) {
+            return -1;
+        }
+        String percent = line.substring(line.indexOf(']') + 1).trim();
+        int end = percent.indexOf('%');
+        if (end < 0) {
+            return -1;
+        }
+        percent = percent.substring(0, end).trim();
+        return percent.matches("\\d+(\\.\\d+)?") ? (int) Double.parseDouble(percent) : -1;
+    }
+
+    /**
+     * Collects a process's standard error, passing yt-dlp progress lines to the callback.
+     *
+     * @param progress Receives the download progress, or null if the lines are not progress
+     */
+    private static void readLog(InputStream stream, StringBuilder log, Consumer<Integer> progress) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LOGGER.debug("{}: {}", progress != null ? "yt-dlp" : "FFmpeg", line);
+                int percent = progress != null ? parseProgress(line) : -1;
+                if (percent >= 0) {
+                    progress.accept(percent);
+                } else {
+                    synchronized (log) {
+                        log.append(line).append('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Stopped reading tool output: {}", e.getMessage());
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, long maxBytes) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new IOException("Downloaded audio exceeds maximum size of " + maxBytes + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+}
@@ -14,7 +14,6 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.stepan.audio_disc.Audio_disc;
-import org.stepan.audio_disc.model.AudioData;
 import org.stepan.audio_disc.model.AudioMetadata;
 import org.stepan.audio_disc.storage.AudioStorageManager;
 
@@ -53,14 +52,13 @@ public abstract class ItemStackMixin {
         }
 
         String audioId = audioIdOpt.get();
-        Optional<AudioData> audioDataOpt = storageManager.getAudio(audioId);
+        Optional<AudioMetadata> metadataOpt = storageManager.getMetadata(audioId);
         
-        if (audioDataOpt.isEmpty()) {
+        if (metadataOpt.isEmpty()) {
             return;
         }
 
-        AudioData audioData = audioDataOpt.get();
-        AudioMetadata metadata = audioData.metadata();
+        AudioMetadata metadata = metadataOpt.get();
         
         List<Text> tooltip = cir.getReturnValue();
         
@@ -110,6 +108,6 @@ public abstract class ItemStackMixin {
         
         // Add uploader
         tooltip.add(Text.literal("Uploaded by: ").formatted(Formatting.GRAY)
-            .append(Text.literal(audioData.uploadedBy()).formatted(Formatting.AQUA)));
+            .append(Text.literal(storageManager.getUploadedBy(audioId).orElse("?")).formatted(Formatting.AQUA)));
     }
 }
@@ -1,18 +1,20 @@
 package org.stepan.audio_disc.model;
 
+import java.nio.ByteBuffer;
+
 /**
  * Represents audio data with associated metadata and tracking information.
  */
 public class AudioData {
     private final String id;
-    private final byte[] data;
+    private final ByteBuffer data; // read-only
     private final AudioMetadata metadata;
     private final String uploadedBy;
     private final long uploadTime;
 
     /**
      * Creates a new AudioData instance.
-     * 
+     *
      * @param id The unique identifier for this audio
      * @param data The raw audio data bytes
      * @param metadata The audio metadata
@@ -20,10 +22,24 @@ public class AudioData {
      * @param uploadTime The timestamp when this audio was uploaded (milliseconds since epoch)
      */
     public AudioData(String id, byte[] data, AudioMetadata metadata, String uploadedBy, long uploadTime) {
+        this(id, data == null ? null : ByteBuffer.wrap(data.clone()), metadata, uploadedBy, uploadTime); // Defensive copy
+    }
+
+    /**
+     * Creates a new AudioData instance over a buffer without copying it, for example
+     * a memory-mapped audio file. Only a read-only view of the buffer is kept.
+     *
+     * @param id The unique identifier for this audio
+     * @param data The raw audio data; its remaining bytes are the audio file
+     * @param metadata The audio metadata
+     * @param uploadedBy The username of the player who uploaded this audio
+     * @param uploadTime The timestamp when this audio was uploaded (milliseconds since epoch)
+     */
+    public AudioData(String id, ByteBuffer data, AudioMetadata metadata, String uploadedBy, long uploadTime) {
         if (id == null || id.isBlank()) {
             throw new IllegalArgumentException("ID cannot be null or blank");
         }
-        if (data == null || data.length == 0) {
+        if (data == null || !data.hasRemaining()) {
             throw new IllegalArgumentException("Data cannot be null or empty");
         }
         if (metadata == null) {
@@ -35,9 +51,9 @@ public class AudioData {
         if (uploadTime < 0) {
             throw new IllegalArgumentException("UploadTime cannot be negative");
         }
-        
+
         this.id = id;
-        this.data = data.clone(); // Defensive copy
+        this.data = data.slice().asReadOnlyBuffer();
         this.metadata = metadata;
         this.uploadedBy = uploadedBy;
         this.uploadTime = uploadTime;
@@ -47,8 +63,34 @@ public class AudioData {
         return id;
     }
 
+    /**
+     * Gets a copy of the audio data. Prefer {@link #getBuffer()}, which does not copy.
+     *
+     * @return A new array holding the audio file
+     */
     public byte[] getData() {
-        return data.clone(); // Defensive copy
+        byte[] copy = new byte[data.capacity()];
+        data.duplicate().get(copy); // Defensive copy
+        return copy;
+    }
+
+    /**
+     * Gets a read-only view of the audio data without copying it.
+     * Each call returns an independent view positioned at the start.
+     *
+     * @return A read-only buffer holding the audio file
+     */
+    public ByteBuffer getBuffer() {
+        return data.duplicate();
+    }
+
+    /**
+     * Gets the size of the audio data without copying it.
+     *
+     * @return The size in bytes
+     */
+    public int getSize() {
+        return data.capacity();
     }
 
     public AudioMetadata getMetadata() {
@@ -0,0 +1,477 @@
+package org.stepan.audio_disc.playback;
+
+import de.maxhenkel.voicechat.api.audiochannel.AudioChannel;
+import de.maxhenkel.voicechat.api.audiochannel.AudioPlayer;
+import de.maxhenkel.voicechat.api.opus.OpusEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Plays one stored audio file through a single decode/encode pipeline and fans every Opus
+ * packet out to all attached channels. Jukeboxes that start the same audio within
+ * the join window share a hub, so each extra jukebox costs only a packet send.
+ */
+public class BroadcastHub {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final long FRAME_INTERVAL_MICROS = 20_000;
+
+    /**
+     * How long a new hub waits for other jukebox starts before sending its first frame (one server tick).
+     */
+    private static final long JOIN_WINDOW_MICROS = 50_000;
+
+    private final String fileKey;
+    private final PacketSource source;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<BroadcastHub> onSealed;
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> task;
+    private boolean joinable = true; // guarded by this
+    private volatile boolean closed;
+
+    private BroadcastHub(String fileKey, PacketSource source, ScheduledExecutorService scheduler,
+                         Consumer<BroadcastHub> onSealed) {
+        this.fileKey = fileKey;
+        this.source = source;
+        this.scheduler = scheduler;
+        this.onSealed = onSealed;
+    }
+
+    /**
+     * Creates a hub that sends pre-encoded Opus frames without running an encoder.
+     *
+     * @param frames The pre-encoded frames
+     * @param scheduler The scheduler that paces the packets
+     * @param onSealed Called once the hub stops accepting new channels
+     * @return The hub, not yet started
+     */
+    public static BroadcastHub ofFrames(OpusFrames frames, ScheduledExecutorService scheduler,
+                                        Consumer<BroadcastHub> onSealed) {
+        return new BroadcastHub(frames.getFileKey(), new FrameSource(frames), scheduler, onSealed);
+    }
+
+    /**
+     * Creates a hub that encodes shared decoded PCM with a single encoder.
+     *
+     * @param decodedAudio The shared decoded audio
+     * @param resume Opens the audio file at a sample offset, used if decoding is truncated
+     * @param encoder The encoder, closed when the hub ends
+     * @param scheduler The scheduler that paces the packets
+     * @param onSealed Called once the hub stops accepting new channels
+     * @return The hub, not yet started
+     */
+    public static BroadcastHub ofDecoded(DecodedAudio decodedAudio, IntFunction<CompletableFuture<MonoPcmReader>> resume,
+                                         OpusEncoder encoder, ScheduledExecutorService scheduler,
+                                         Consumer<BroadcastHub> onSealed) {
+        return new BroadcastHub(decodedAudio.getFileKey(), new EncodingSource(decodedAudio, resume, encoder), scheduler, onSealed);
+    }
+
+    /**
+     * Creates a hub that decodes and encodes a track frame by frame as it plays,
+     * for tracks too large to keep decoded in memory.
+     *
+     * @param fileKey The storage key of the audio file
+     * @param fileData The audio file
+     * @param encoder The encoder, closed when the hub ends
+     * @param scheduler The scheduler that paces the packets
+     * @param onSealed Called once the hub stops accepting new channels
+     * @return The hub, not yet started
+     */
+    public static BroadcastHub ofStream(String fileKey, ByteBuffer fileData, OpusEncoder encoder,
+                                        ScheduledExecutorService scheduler, Consumer<BroadcastHub> onSealed) {
+        return new BroadcastHub(fileKey, new StreamingSource(fileData, encoder), scheduler, onSealed);
+    }
+
+    /**
+     * Starts the hub. The first frame is sent once the join window has passed.
+     */
+    public synchronized void start() {
+        if (task == null && !closed) {
+            task = scheduler.scheduleAtFixedRate(this::tick, JOIN_WINDOW_MICROS, FRAME_INTERVAL_MICROS, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Attaches a channel to the hub.
+     *
+     * @param channel The channel to send packets to
+     * @return The player controlling this channel, or null if the hub has already started sending
+     */
+    public synchronized Member attach(AudioChannel channel) {
+        if (!joinable || closed) {
+            return null;
+        }
+        Member member = new Member(channel);
+        members.add(member);
+        return member;
+    }
+
+    /**
+     * Sends the next packet to every playing member.
+     */
+    private void tick() {
+        seal();
+        if (closed) {
+            return;
+        }
+
+        try {
+            byte[] packet;
+            boolean finished;
+            synchronized (source) {
+                packet = closed ? null : source.next();
+                finished = source.isFinished();
+            }
+            if (packet == null) {
+                if (finished) {
+                    close();
+                }
+                return; // Source has not caught up yet
+            }
+
+            for (Member member : members) {
+                if (!member.started || member.stopped) {
+                    continue;
+                }
+                if (member.channel.isClosed()) {
+                    member.stopPlaying();
+                } else {
+                    member.channel.send(packet);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error broadcasting audio {}: {}", fileKey, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Stops accepting new channels.
+     */
+    private void seal() {
+        synchronized (this) {
+            if (!joinable) {
+                return;
+            }
+            joinable = false;
+        }
+        onSealed.accept(this);
+    }
+
+    /**
+     * Stops the hub and every member.
+     */
+    private void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+        seal();
+        // Wait for an in-flight frame so the encoder is not closed while encoding
+        synchronized (source) {
+            source.close();
+        }
+        for (Member member : members) {
+            member.finish();
+        }
+        members.clear();
+    }
+
+    private void detach(Member member) {
+        members.remove(member);
+        if (members.isEmpty()) {
+            close();
+        }
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Gets the number of attached channels.
+     *
+     * @return The member count
+     */
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    /**
+     * A single channel attached to a hub, exposed as an {@link AudioPlayer} so it
+     * can be controlled like any other jukebox player.
+     */
+    public class Member implements AudioPlayer {
+        private final AudioChannel channel;
+        private volatile boolean started;
+        private volatile boolean stopped;
+        private volatile Runnable onStopped;
+
+        private Member(AudioChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void startPlaying() {
+            started = true;
+            start();
+        }
+
+        @Override
+        public void stopPlaying() {
+            if (finish()) {
+                detach(this);
+            }
+        }
+
+        /**
+         * Marks the member as stopped.
+         *
+         * @return true if this call stopped it
+         */
+        private synchronized boolean finish() {
+            if (stopped) {
+                return false;
+            }
+            stopped = true;
+            channel.flush();
+
+            Runnable callback = onStopped;
+            if (callback != null) {
+                callback.run();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isStarted() {
+            return started;
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return started && !stopped;
+        }
+
+        @Override
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        @Override
+        public void setOnStopped(Runnable onStopped) {
+            this.onStopped = onStopped;
+        }
+    }
+
+    /**
+     * Produces one Opus packet per 20ms frame.
+     */
+    private interface PacketSource {
+        /**
+         * @return The next packet, or null if nothing should be sent this frame
+         */
+        byte[] next();
+
+        boolean isFinished();
+
+        void close();
+    }
+
+    /**
+     * Reads packets from pre-encoded frames.
+     */
+    private static class FrameSource implements PacketSource {
+        private final OpusFrames frames;
+        private int frame;
+
+        FrameSource(OpusFrames frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public byte[] next() {
+            return frame < frames.getFrameCount() ? frames.getPacket(frame++) : null;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return frame >= frames.getFrameCount();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Encodes shared decoded PCM as it becomes available. If the cache stops decoding
+     * part way through, the rest of the track is streamed from the audio file.
+     */
+    private static class EncodingSource implements PacketSource {
+        private final DecodedAudio decodedAudio;
+        private final IntFunction<CompletableFuture<MonoPcmReader>> resume;
+        private final OpusEncoder encoder;
+        private final short[] frame = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
+        private final short[] streamed = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
+        private CompletableFuture<MonoPcmReader> stream; // opened once decoding is truncated
+        private int position;
+        private boolean finished;
+
+        EncodingSource(DecodedAudio decodedAudio, IntFunction<CompletableFuture<MonoPcmReader>> resume,
+                       OpusEncoder encoder) {
+            this.decodedAudio = decodedAudio;
+            this.resume = resume;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public byte[] next() {
+            if (finished) {
+                return null;
+            }
+            if (decodedAudio.isFailed()) {
+                finished = true;
+                return null;
+            }
+
+            // Read the flag first: once it is set, the available count is final
+            boolean truncated = decodedAudio.isTruncated();
+            if (truncated && stream == null) {
+                // Start skipping to where the decoded samples end while they still play
+                stream = resume.apply(decodedAudio.getAvailable());
+            }
+            if (!truncated && !decodedAudio.isComplete() && decodedAudio.getAvailable() - position < frame.length) {
+                return null; // Decoder has not caught up yet
+            }
+
+            int count = decodedAudio.read(position, frame, frame.length);
+            if (truncated && count < frame.length) {
+                if (!stream.isDone()) {
+                    return null; // Stream has not reached the end of the decoded samples yet
+                }
+                int more = readStream(frame.length - count);
+                System.arraycopy(streamed, 0, frame, count, more);
+                count += more;
+            }
+            if (count == 0) {
+                finished = true;
+                return null;
+            }
+
+            // A short final frame is padded with silence
+            Arrays.fill(frame, count, frame.length, (short) 0);
+            position += count;
+            return encoder.encode(frame);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Reads samples that follow the decoded part from the stream.
+         *
+         * @return The number of samples read into the scratch frame, 0 at the end or on failure
+         */
+        private int readStream(int length) {
+            try {
+                return stream.join().read(streamed, length);
+            } catch (Exception | NoClassDefFoundError e) {
+                LOGGER.error("Failed to stream the rest of audio {}: {}", decodedAudio.getFileKey(), e.getMessage());
+                return 0;
+            }
+        }
+
+        @Override
+        public void close() {
+            encoder.close();
+            if (stream != null) {
+                stream.thenAccept(reader -> {
+                    try {
+                        reader.close();
+                    } catch (IOException ignored) {
+                        // Nothing left to release
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Decodes and encodes one frame per tick without keeping the decoded track.
+     */
+    private static class StreamingSource implements PacketSource {
+        private final ByteBuffer fileData;
+        private final OpusEncoder encoder;
+        private final short[] frame = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
+        private MonoPcmReader reader; // opened on the first frame, off the server thread
+        private boolean finished;
+
+        StreamingSource(ByteBuffer fileData, OpusEncoder encoder) {
+            this.fileData = fileData;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public byte[] next() {
+            if (finished) {
+                return null;
+            }
+
+            int count;
+            try {
+                if (reader == null) {
+                    reader = new MonoPcmReader(PcmDecoder.openPcmStream(fileData));
+                }
+                count = reader.read(frame, frame.length);
+            } catch (Exception | NoClassDefFoundError e) {
+                LOGGER.error("Failed to decode streamed audio: {}", e.getMessage());
+                count = 0;
+            }
+            if (count == 0) {
+                finished = true;
+                return null;
+            }
+
+            // A short final frame is padded with silence
+            Arrays.fill(frame, count, frame.length, (short) 0);
+            return encoder.encode(frame);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public void close() {
+            encoder.close();
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+}
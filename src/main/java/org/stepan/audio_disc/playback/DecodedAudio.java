@@ -0,0 +1,201 @@
+package org.stepan.audio_disc.playback;
+
+import java.io.IOException;
+
+/**
+ * Decoded 48kHz mono 16-bit PCM for a single stored audio file.
+ * One decoder thread appends samples while any number of playbacks read them.
+ */
+public class DecodedAudio {
+    private static final int MIN_GROWTH_SAMPLES = PcmDecoder.SAMPLE_RATE; // one second
+
+    private final String fileKey;
+    private final Budget budget;
+    private final long maxSamples;
+    private volatile short[] samples = new short[0];
+    private volatile long sizeBytes;
+    private volatile int available;
+    private volatile boolean complete;
+    private volatile boolean failed;
+    private volatile boolean truncated;
+
+    /**
+     * Thrown when the budget will not let a buffer grow. The samples already decoded stay valid.
+     */
+    static class BudgetExceededException extends IOException {
+        BudgetExceededException() {
+            super("Decoded audio does not fit in the PCM cache budget");
+        }
+    }
+
+    /**
+     * Grants the memory a buffer needs before it grows.
+     */
+    @FunctionalInterface
+    public interface Budget {
+        /**
+         * Reserves memory for a buffer, replacing its previous reservation.
+         *
+         * @param target The buffer that is about to grow
+         * @param sizeBytes The new total size of its sample array
+         * @return false if the memory is not available
+         */
+        boolean reserve(DecodedAudio target, long sizeBytes);
+    }
+
+    /**
+     * Creates an empty buffer. Memory is only taken, from the budget, as samples arrive.
+     *
+     * @param fileKey The storage key of the audio file being decoded
+     * @param budget Grants memory before the buffer grows
+     * @param maxBytes The size of the whole budget, which growth never asks for more than
+     */
+    public DecodedAudio(String fileKey, Budget budget, long maxBytes) {
+        this.fileKey = fileKey;
+        this.budget = budget;
+        this.maxSamples = maxBytes / 2;
+    }
+
+    /**
+     * Makes room for a known number of samples up front, such as the length of a
+     * sidecar, so filling the buffer does not copy it. Only called from the decoder thread.
+     *
+     * @param capacity The total number of samples expected
+     * @throws BudgetExceededException if the budget cannot hold them
+     */
+    void ensureCapacity(long capacity) throws BudgetExceededException {
+        if (capacity > samples.length) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Appends decoded samples. Only called from the decoder thread.
+     *
+     * @param source The samples to append
+     * @param count The number of samples to take from the start of source
+     * @throws BudgetExceededException if the budget cannot hold the grown buffer
+     */
+    void append(short[] source, int count) throws BudgetExceededException {
+        int size = available;
+        if (size + count > samples.length) {
+            // Grow by half, but never past the budget while the samples themselves still fit
+            long length = samples.length;
+            long step = Math.min(maxSamples, Math.max(length + (length >> 1), length + MIN_GROWTH_SAMPLES));
+            grow(Math.max(size + count, step));
+        }
+        System.arraycopy(source, 0, samples, size, count);
+        available = size + count;
+    }
+
+    /**
+     * Replaces the sample array with a larger one once the budget allows it.
+     */
+    private void grow(long capacity) throws BudgetExceededException {
+        int length = (int) Math.min(Integer.MAX_VALUE - 8, capacity);
+        if (length < capacity || !budget.reserve(this, (long) length * 2)) {
+            throw new BudgetExceededException();
+        }
+        short[] grown = new short[length];
+        System.arraycopy(samples, 0, grown, 0, available);
+        samples = grown;
+    }
+
+    /**
+     * Marks decoding as finished and trims unused capacity.
+     */
+    void markComplete() {
+        int size = available;
+        if (samples.length != size) {
+            short[] trimmed = new short[size];
+            System.arraycopy(samples, 0, trimmed, 0, size);
+            samples = trimmed;
+            sizeBytes = (long) size * 2;
+        }
+        complete = true;
+    }
+
+    /**
+     * Marks decoding as failed.
+     */
+    void markFailed() {
+        failed = true;
+    }
+
+    /**
+     * Marks decoding as stopped early because the budget ran out. The samples decoded so
+     * far stay readable, and readers continue from the audio file where they end.
+     */
+    void markTruncated() {
+        truncated = true;
+    }
+
+    /**
+     * Copies up to {@code length} samples starting at {@code position}.
+     *
+     * @param position The sample offset to read from
+     * @param target The destination array
+     * @param length The maximum number of samples to copy
+     * @return The number of samples copied
+     */
+    public int read(int position, short[] target, int length) {
+        int size = available;
+        short[] current = samples;
+        int count = Math.min(length, size - position);
+        if (count <= 0) {
+            return 0;
+        }
+        System.arraycopy(current, position, target, 0, count);
+        return count;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Gets the number of samples decoded so far.
+     *
+     * @return The available sample count
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Checks whether decoding stopped early because the budget ran out. Once this is true,
+     * {@link #getAvailable()} no longer changes.
+     *
+     * @return true if the rest of the track has to be decoded by the reader
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Gets the heap size of the sample buffer, including memory reserved for it to grow into.
+     *
+     * @return The size in bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Records a reservation granted by the budget. Must be called by the budget while it
+     * holds the lock it accounts under, so the next reservation sees this one.
+     *
+     * @param sizeBytes The reserved size in bytes
+     */
+    void setReservedBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+}
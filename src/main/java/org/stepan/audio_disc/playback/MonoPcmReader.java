@@ -0,0 +1,151 @@
+package org.stepan.audio_disc.playback;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads 48kHz mono 16-bit samples from a 16-bit PCM stream of any sample rate and
+ * channel count, downmixing and resampling with {@link Resampler} as it goes.
+ */
+public final class MonoPcmReader implements Closeable {
+    private final AudioInputStream stream;
+    private final int channels;
+    private final boolean bigEndian;
+    private final int bytesPerFrame;
+    private final Resampler resampler;
+    private final byte[] buffer;
+    private final float[] mono;
+    private final PcmDecoder.SampleSink queue = this::queue;
+    private int leftover; // bytes of an incomplete frame at the start of buffer
+
+    private short[] pending = new short[PcmDecoder.FRAME_SIZE_SAMPLES * 2];
+    private int pendingStart;
+    private int pendingCount;
+    private boolean ended;
+
+    /**
+     * Creates a reader over a decoded stream.
+     *
+     * @param stream Signed 16-bit PCM, as opened by {@link PcmDecoder#openPcmStream}
+     * @throws IOException if the stream is not signed 16-bit PCM
+     */
+    public MonoPcmReader(AudioInputStream stream) throws IOException {
+        AudioFormat format = stream.getFormat();
+        if (format.getSampleSizeInBits() != 16 || !AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())) {
+            throw new IOException("Unsupported decoded format: " + format);
+        }
+        this.stream = stream;
+        this.channels = Math.max(1, format.getChannels());
+        this.bigEndian = format.isBigEndian();
+        this.bytesPerFrame = channels * 2;
+        this.resampler = new Resampler(Math.round(format.getSampleRate()), PcmDecoder.SAMPLE_RATE);
+        this.buffer = new byte[PcmDecoder.FRAME_SIZE_SAMPLES * bytesPerFrame];
+        this.mono = new float[PcmDecoder.FRAME_SIZE_SAMPLES];
+    }
+
+    /**
+     * Reads samples until the target is full or the stream ends.
+     *
+     * @param target The array to fill
+     * @param length The maximum number of samples to read
+     * @return The number of samples read, 0 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public int read(short[] target, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            if (pendingCount == 0 && !fill()) {
+                break;
+            }
+            int count = Math.min(length - total, pendingCount);
+            System.arraycopy(pending, pendingStart, target, total, count);
+            pendingStart += count;
+            pendingCount -= count;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Averages the channels of interleaved 16-bit PCM frames into mono samples.
+     *
+     * @param pcm The interleaved frames
+     * @param frames The number of frames to take from the start of pcm
+     * @param channels Channels per frame
+     * @param bigEndian Whether samples are big endian
+     * @param target Receives one sample per frame
+     */
+    public static void downmix(byte[] pcm, int frames, int channels, boolean bigEndian, float[] target) {
+        int hiOffset = bigEndian ? 0 : 1;
+        int loOffset = 1 - hiOffset;
+        if (channels == 1) {
+            for (int i = 0; i < frames; i++) {
+                target[i] = (pcm[2 * i + hiOffset] << 8) | (pcm[2 * i + loOffset] & 0xFF);
+            }
+        } else if (channels == 2) {
+            for (int i = 0; i < frames; i++) {
+                int left = (pcm[4 * i + hiOffset] << 8) | (pcm[4 * i + loOffset] & 0xFF);
+                int right = (pcm[4 * i + 2 + hiOffset] << 8) | (pcm[4 * i + 2 + loOffset] & 0xFF);
+                target[i] = (left + right) * 0.5f;
+            }
+        } else {
+            float scale = 1.0f / channels;
+            int bytesPerFrame = channels * 2;
+            for (int i = 0; i < frames; i++) {
+                int sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    int index = i * bytesPerFrame + c * 2;
+                    sum += (pcm[index + hiOffset] << 8) | (pcm[index + loOffset] & 0xFF);
+                }
+                target[i] = sum * scale;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    /**
+     * Decodes input until some output is pending.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        pendingStart = 0;
+        while (pendingCount == 0) {
+            if (ended) {
+                return false;
+            }
+            int read = stream.read(buffer, leftover, buffer.length - leftover);
+            if (read == -1) {
+                ended = true;
+                resampler.flush(queue);
+                continue;
+            }
+
+            int total = leftover + read;
+            int frames = total / bytesPerFrame;
+            downmix(buffer, frames, channels, bigEndian, mono);
+            resampler.process(mono, frames, queue);
+
+            leftover = total - frames * bytesPerFrame;
+            if (leftover > 0) {
+                System.arraycopy(buffer, frames * bytesPerFrame, buffer, 0, leftover);
+            }
+        }
+        return true;
+    }
+
+    private void queue(short[] samples, int count) {
+        if (pendingCount + count > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingCount + count, pending.length * 2));
+        }
+        System.arraycopy(samples, 0, pending, pendingCount, count);
+        pendingCount += count;
+    }
+}
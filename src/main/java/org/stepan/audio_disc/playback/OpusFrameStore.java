@@ -0,0 +1,238 @@
+package org.stepan.audio_disc.playback;
+
+import de.maxhenkel.voicechat.api.VoicechatServerApi;
+import de.maxhenkel.voicechat.api.opus.OpusEncoder;
+import de.maxhenkel.voicechat.api.opus.OpusEncoderMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stepan.audio_disc.model.AudioData;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size-bounded store of pre-encoded Opus frames, keyed by storage file key so uploads
+ * that share content share their frames. Each stored file is encoded once and
+ * persisted as an indexed container, so playback can send packets straight to the
+ * voice chat channel without running an Opus encoder per jukebox.
+ */
+public class OpusFrameStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+
+    private final SimpleVoiceChatIntegration voiceChatIntegration;
+    private final long maxBytes;
+    private final LinkedHashMap<String, OpusFrames> entries;
+    private final Set<String> pending;
+    private final ExecutorService encoderExecutor;
+
+    /**
+     * Creates a new Opus frame store.
+     *
+     * @param voiceChatIntegration The voice chat integration providing the encoder
+     * @param maxBytes Maximum total size of frames kept in memory in bytes
+     */
+    public OpusFrameStore(SimpleVoiceChatIntegration voiceChatIntegration, long maxBytes) {
+        this.voiceChatIntegration = voiceChatIntegration;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.encoderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-OpusEncoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the pre-encoded frames for an audio file. On a miss the frames are loaded
+     * from the container, or encoded and written to it, in the background; the caller
+     * should fall back to live encoding until they are ready.
+     *
+     * @param fileKey The storage key of the audio file
+     * @param audioData The stored audio
+     * @param sidecar The PCM sidecar path for this audio, used as encoder input when present
+     * @param container The frame container path for this audio
+     * @return The frames if they are ready
+     */
+    public Optional<OpusFrames> get(String fileKey, AudioData audioData, Path sidecar, Path container) {
+        synchronized (entries) {
+            OpusFrames frames = entries.get(fileKey);
+            if (frames != null) {
+                return Optional.of(frames);
+            }
+        }
+
+        if (pending.add(fileKey)) {
+            ByteBuffer fileData = audioData.getBuffer();
+            encoderExecutor.execute(() -> {
+                try {
+                    prepare(fileKey, fileData, sidecar, container);
+                } finally {
+                    pending.remove(fileKey);
+                }
+            });
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Loads or encodes the frames for a stored file and adds them to the store.
+     */
+    private void prepare(String fileKey, ByteBuffer fileData, Path sidecar, Path container) {
+        OpusFrames frames = null;
+
+        if (Files.exists(container)) {
+            try {
+                frames = OpusFrames.read(fileKey, container);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to read Opus frames for audio {}, re-encoding: {}", fileKey, e.getMessage());
+            }
+        }
+
+        if (frames == null) {
+            frames = encode(fileKey, fileData, sidecar);
+            if (frames == null) {
+                return;
+            }
+            try {
+                frames.write(container);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to write Opus frames for audio {}: {}", fileKey, e.getMessage());
+            }
+        }
+
+        synchronized (entries) {
+            entries.put(fileKey, frames);
+            evictIfNeeded(frames);
+        }
+    }
+
+    /**
+     * Encodes a track into 20ms Opus packets.
+     */
+    private OpusFrames encode(String fileKey, ByteBuffer fileData, Path sidecar) {
+        VoicechatServerApi api = voiceChatIntegration.getVoicechatApi();
+        if (api == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        OpusEncoder encoder = api.createEncoder(OpusEncoderMode.AUDIO);
+        try {
+            List<byte[]> packets = new ArrayList<>();
+            short[] frame = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
+            int[] filled = new int[1];
+
+            PcmDecoder.SampleSink sink = (samples, count) -> {
+                int offset = 0;
+                while (offset < count) {
+                    int take = Math.min(count - offset, frame.length - filled[0]);
+                    System.arraycopy(samples, offset, frame, filled[0], take);
+                    filled[0] += take;
+                    offset += take;
+                    if (filled[0] == frame.length) {
+                        packets.add(encoder.encode(frame));
+                        filled[0] = 0;
+                    }
+                }
+            };
+
+            if (Files.exists(sidecar)) {
+                PcmDecoder.readSidecar(sidecar, sink);
+            } else {
+                PcmDecoder.decode(fileData, sink);
+            }
+
+            // Pad the last partial frame with silence
+            if (filled[0] > 0) {
+                Arrays.fill(frame, filled[0], frame.length, (short) 0);
+                packets.add(encoder.encode(frame));
+            }
+
+            LOGGER.info("Encoded audio {} into {} Opus frames in {} ms",
+                fileKey, packets.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return new OpusFrames(fileKey, packets.toArray(new byte[0][]));
+        } catch (Exception | NoClassDefFoundError e) {
+            LOGGER.error("Failed to encode Opus frames for audio {}: {}", fileKey, e.getMessage());
+            return null;
+        } finally {
+            encoder.close();
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the store fits its byte budget.
+     * Must be called while holding the entries lock.
+     *
+     * @param keep An entry that must not be evicted
+     */
+    private void evictIfNeeded(OpusFrames keep) {
+        long currentBytes = totalBytes();
+        Iterator<Map.Entry<String, OpusFrames>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            OpusFrames eldest = iterator.next().getValue();
+            if (eldest == keep) {
+                continue;
+            }
+            iterator.remove();
+            currentBytes -= eldest.getSizeBytes();
+            LOGGER.debug("Evicted audio {} from Opus frame store", eldest.getFileKey());
+        }
+    }
+
+    /**
+     * Sums the size of all entries. Must be called while holding the entries lock.
+     */
+    private long totalBytes() {
+        long total = 0;
+        for (OpusFrames frames : entries.values()) {
+            total += frames.getSizeBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Removes a stored file from the store.
+     *
+     * @param fileKey The storage key of the audio file
+     */
+    public void invalidate(String fileKey) {
+        synchronized (entries) {
+            entries.remove(fileKey);
+        }
+    }
+
+    /**
+     * Gets the number of tracks held in memory.
+     *
+     * @return The entry count
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Stops the encoder thread and clears the store.
+     */
+    public void shutdown() {
+        encoderExecutor.shutdownNow();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.stepan.audio_disc.playback;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Pre-encoded Opus packets for a single stored audio file, one packet per 20ms frame.
+ *
+ * <p>The container file is indexed so any frame can be located without scanning:
+ * a magic number, a version, the frame count, a table of packet lengths and
+ * finally the packets themselves.</p>
+ */
+public class OpusFrames {
+    /**
+     * File extension of pre-encoded Opus frame containers.
+     */
+    public static final String CONTAINER_EXTENSION = "opf";
+
+    private static final int MAGIC = 0x41444F50; // "ADOP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12; // magic, version and frame count
+
+    private final String fileKey;
+    private final byte[][] packets;
+    private final long sizeBytes;
+
+    public OpusFrames(String fileKey, byte[][] packets) {
+        this.fileKey = fileKey;
+        this.packets = packets;
+
+        long size = 0;
+        for (byte[] packet : packets) {
+            size += packet.length;
+        }
+        this.sizeBytes = size;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Gets the number of 20ms frames.
+     *
+     * @return The frame count
+     */
+    public int getFrameCount() {
+        return packets.length;
+    }
+
+    /**
+     * Gets the encoded packet for a frame. The returned array is shared and must not be modified.
+     *
+     * @param frame The frame index
+     * @return The Opus packet
+     */
+    public byte[] getPacket(int frame) {
+        return packets[frame];
+    }
+
+    /**
+     * Gets the total size of the encoded packets.
+     *
+     * @return The size in bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Reads a frame container.
+     *
+     * @param fileKey The storage key of the audio file the container belongs to
+     * @param container The container file
+     * @return The loaded frames
+     * @throws IOException if the file cannot be read or is not a valid container
+     */
+    public static OpusFrames read(String fileKey, Path container) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(container)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an Opus frame container: " + container.getFileName());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported Opus frame container version: " + version);
+            }
+
+            // Check the counts against the file before allocating anything sized by them
+            long size = Files.size(container);
+            int frameCount = in.readInt();
+            if (frameCount < 0 || HEADER_BYTES + 2L * frameCount > size) {
+                throw new IOException("Invalid frame count: " + frameCount);
+            }
+
+            int[] lengths = new int[frameCount];
+            long packetBytes = 0;
+            for (int i = 0; i < frameCount; i++) {
+                lengths[i] = in.readUnsignedShort();
+                packetBytes += lengths[i];
+            }
+            if (HEADER_BYTES + 2L * frameCount + packetBytes > size) {
+                throw new IOException("Truncated Opus frame container: " + container.getFileName());
+            }
+
+            byte[][] packets = new byte[frameCount][];
+            for (int i = 0; i < frameCount; i++) {
+                packets[i] = new byte[lengths[i]];
+                in.readFully(packets[i]);
+            }
+            return new OpusFrames(fileKey, packets);
+        }
+    }
+
+    /**
+     * Writes these frames to a container file, replacing it atomically.
+     *
+     * @param container The container file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path container) throws IOException {
+        // Unique name, so concurrent writers of the same container never share a temp file
+        Path tempFile = Files.createTempFile(container.getParent(), container.getFileName() + ".", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(packets.length);
+            for (byte[] packet : packets) {
+                out.writeShort(packet.length);
+            }
+            for (byte[] packet : packets) {
+                out.write(packet);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, container, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
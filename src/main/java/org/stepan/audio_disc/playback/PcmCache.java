@@ -0,0 +1,320 @@
+package org.stepan.audio_disc.playback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stepan.audio_disc.model.AudioData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Size-bounded cache of decoded PCM shared by every playback of the same stored file.
+ * Entries are keyed by the storage file key, so uploads that share content also share
+ * one decode.
+ * A track is decoded once in the background; jukeboxes that start while decoding is
+ * still running read the samples that are already available.
+ *
+ * <p>Buffers grow as samples arrive and reserve their memory from the budget first, so
+ * decodes still in progress count against it too. A track whose decoded size alone is
+ * larger than the budget is not cached at all; callers stream it instead. When the budget
+ * runs out part way through a decode, the entry is dropped but playbacks already reading
+ * it keep the decoded part and stream the rest.</p>
+ */
+public class PcmCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final int DECODER_THREADS = 2;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, DecodedAudio> entries;
+    private final Set<String> oversized; // file keys too large to cache, guarded by entries
+    private final ExecutorService decoderExecutor;
+
+    /**
+     * Creates a new PCM cache.
+     *
+     * @param maxBytes Maximum total size of cached PCM in bytes
+     */
+    public PcmCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.oversized = new HashSet<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.decoderExecutor = Executors.newFixedThreadPool(DECODER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-Decoder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the decoded PCM for an audio file, starting a background decode on a miss.
+     * On a miss the PCM sidecar is streamed from disk when it exists; otherwise the
+     * audio file is decoded and the sidecar is written for the next miss.
+     *
+     * @param fileKey The storage key of the audio file
+     * @param audioData The stored audio
+     * @param sidecar The playback sidecar path for this audio, or null if unavailable
+     * @return The shared decoded audio, possibly still being filled, or null if the
+     *         track is too large to cache and should be streamed
+     */
+    public DecodedAudio getOrDecode(String fileKey, AudioData audioData, Path sidecar) {
+        boolean hasSidecar = sidecar != null && Files.exists(sidecar);
+        long expectedBytes = expectedBytes(audioData, hasSidecar ? sidecar : null);
+        DecodedAudio decoded;
+
+        synchronized (entries) {
+            decoded = entries.get(fileKey);
+            if (decoded != null && !decoded.isFailed()) {
+                return decoded;
+            }
+            if (expectedBytes > maxBytes || oversized.contains(fileKey)) {
+                LOGGER.info("Audio {} is too large for the PCM cache ({} MB decoded), streaming it",
+                    fileKey, expectedBytes / (1024 * 1024));
+                return null;
+            }
+
+            decoded = new DecodedAudio(fileKey, this::reserve, maxBytes);
+            entries.put(fileKey, decoded);
+        }
+
+        DecodedAudio target = decoded;
+        if (hasSidecar) {
+            decoderExecutor.execute(() -> load(target, sidecar));
+        } else {
+            ByteBuffer fileData = audioData.getBuffer();
+            decoderExecutor.execute(() -> decode(target, fileData, expectedBytes, sidecar));
+        }
+        return decoded;
+    }
+
+    /**
+     * Gets the decoded size of a track: exact from its sidecar, otherwise estimated
+     * from its duration.
+     */
+    private static long expectedBytes(AudioData audioData, Path sidecar) {
+        if (sidecar != null) {
+            try {
+                return Files.size(sidecar);
+            } catch (IOException e) {
+                // Fall back to the duration
+            }
+        }
+        return Math.max(0, audioData.metadata().duration()) * PcmDecoder.SAMPLE_RATE / 1000 * 2;
+    }
+
+    /**
+     * Streams a PCM sidecar into its cache entry.
+     */
+    private void load(DecodedAudio target, Path sidecar) {
+        long start = System.nanoTime();
+        try {
+            target.ensureCapacity(Files.size(sidecar) / 2);
+            PcmDecoder.readSidecar(sidecar, target);
+            target.markComplete();
+            LOGGER.debug("Loaded PCM sidecar for audio {}: {} samples in {} ms",
+                target.getFileKey(), target.getAvailable(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (DecodedAudio.BudgetExceededException e) {
+            LOGGER.info("Stopped loading audio {} at {} samples: {}", target.getFileKey(), target.getAvailable(), e.getMessage());
+            target.markTruncated();
+        } catch (IOException e) {
+            LOGGER.error("Failed to read PCM sidecar for audio {}: {}", target.getFileKey(), e.getMessage());
+            target.markFailed();
+        }
+        finish(target);
+    }
+
+    /**
+     * Decodes a track into its cache entry.
+     */
+    private void decode(DecodedAudio target, ByteBuffer fileData, long expectedBytes, Path sidecar) {
+        long start = System.nanoTime();
+        try {
+            // Size the buffer from the duration so it rarely has to be copied while growing
+            target.ensureCapacity(expectedBytes / 2);
+            PcmDecoder.decodeInto(fileData, target);
+            target.markComplete();
+            LOGGER.info("Decoded audio {} into PCM cache: {} samples in {} ms",
+                target.getFileKey(), target.getAvailable(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (DecodedAudio.BudgetExceededException e) {
+            LOGGER.info("Stopped decoding audio {} at {} samples: {}", target.getFileKey(), target.getAvailable(), e.getMessage());
+            target.markTruncated();
+        } catch (Exception | NoClassDefFoundError e) {
+            LOGGER.error("Failed to decode audio {}: {}", target.getFileKey(), e.getMessage());
+            target.markFailed();
+        }
+
+        // Backfill the sidecar for audio uploaded before sidecars existed
+        if (sidecar != null && target.isComplete()) {
+            try {
+                PcmDecoder.writeSidecar(sidecar, target);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write PCM sidecar for audio {}: {}", target.getFileKey(), e.getMessage());
+            }
+        }
+        finish(target);
+    }
+
+    /**
+     * Drops failed and truncated entries once loading ends. Hubs already reading a
+     * truncated entry keep it and stream the rest of the track.
+     */
+    private void finish(DecodedAudio target) {
+        synchronized (entries) {
+            if (entries.get(target.getFileKey()) == target && (target.isFailed() || target.isTruncated())) {
+                entries.remove(target.getFileKey());
+            }
+        }
+    }
+
+    /**
+     * Reserves memory for a growing entry, evicting completed entries to make room.
+     * Fails if the entry was evicted or replaced, if it alone would exceed the budget,
+     * or if decodes still in progress hold the rest of it.
+     */
+    private boolean reserve(DecodedAudio target, long sizeBytes) {
+        synchronized (entries) {
+            if (entries.get(target.getFileKey()) != target) {
+                return false;
+            }
+            if (sizeBytes > maxBytes) {
+                oversized.add(target.getFileKey());
+                return false;
+            }
+            long otherBytes = evictIfNeeded(maxBytes - sizeBytes, target);
+            if (otherBytes + sizeBytes > maxBytes) {
+                LOGGER.warn("PCM cache is full of decodes in progress, cannot decode audio {}", target.getFileKey());
+                return false;
+            }
+            target.setReservedBytes(sizeBytes);
+            return true;
+        }
+    }
+
+    /**
+     * Evicts least recently used completed entries until the other entries fit in the
+     * given number of bytes. Must be called while holding the entries lock.
+     *
+     * @param limit The size the entries other than keep should fit in
+     * @param keep An entry that must not be evicted and is not counted
+     * @return The size of the remaining entries other than keep
+     */
+    private long evictIfNeeded(long limit, DecodedAudio keep) {
+        long otherBytes = totalBytes() - keep.getSizeBytes();
+        Iterator<Map.Entry<String, DecodedAudio>> iterator = entries.entrySet().iterator();
+        while (otherBytes > limit && iterator.hasNext()) {
+            DecodedAudio eldest = iterator.next().getValue();
+            if (eldest == keep || !eldest.isComplete()) {
+                continue;
+            }
+            iterator.remove();
+            otherBytes -= eldest.getSizeBytes();
+            LOGGER.debug("Evicted audio {} from PCM cache", eldest.getFileKey());
+        }
+        return otherBytes;
+    }
+
+    /**
+     * Opens a track on a decoder thread and skips to a sample offset, so a playback
+     * can stream the part of a track that a truncated entry does not hold.
+     *
+     * @param fileData The audio file
+     * @param offset The number of samples to skip
+     * @return The reader, positioned at the offset
+     */
+    public CompletableFuture<MonoPcmReader> openStream(ByteBuffer fileData, int offset) {
+        return CompletableFuture.supplyAsync(() -> {
+            MonoPcmReader reader = null;
+            try {
+                reader = new MonoPcmReader(PcmDecoder.openPcmStream(fileData));
+                short[] skipped = new short[PcmDecoder.SAMPLE_RATE];
+                int remaining = offset;
+                while (remaining > 0) {
+                    int count = reader.read(skipped, Math.min(skipped.length, remaining));
+                    if (count == 0) {
+                        break;
+                    }
+                    remaining -= count;
+                }
+                return reader;
+            } catch (Exception | NoClassDefFoundError e) {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException ignored) {
+                        // Nothing left to release
+                    }
+                }
+                throw new CompletionException(e);
+            }
+        }, decoderExecutor);
+    }
+
+    /**
+     * Removes a stored file from the cache.
+     *
+     * @param fileKey The storage key of the audio file
+     */
+    public void invalidate(String fileKey) {
+        synchronized (entries) {
+            entries.remove(fileKey);
+            oversized.remove(fileKey);
+        }
+    }
+
+    /**
+     * Gets the current size of cached PCM.
+     *
+     * @return The size in bytes
+     */
+    public long getCurrentBytes() {
+        synchronized (entries) {
+            return totalBytes();
+        }
+    }
+
+    /**
+     * Sums the size of all entries. Must be called while holding the entries lock.
+     */
+    private long totalBytes() {
+        long total = 0;
+        for (DecodedAudio decoded : entries.values()) {
+            total += decoded.getSizeBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of cached tracks.
+     *
+     * @return The entry count
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Stops the decoder threads and clears the cache.
+     */
+    public void shutdown() {
+        decoderExecutor.shutdownNow();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.stepan.audio_disc.playback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stepan.audio_disc.util.ByteBufferInputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes stored audio files into 16-bit PCM suitable for Simple Voice Chat.
+ */
+public final class PcmDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+
+    /**
+     * Sample rate expected by Simple Voice Chat.
+     */
+    public static final int SAMPLE_RATE = 48000;
+
+    /**
+     * Simple Voice Chat expects exactly 960 samples per frame (20ms at 48kHz).
+     */
+    public static final int FRAME_SIZE_SAMPLES = 960;
+
+    /**
+     * 16-bit PCM, mono, 48kHz, little endian.
+     */
+    public static final AudioFormat TARGET_FORMAT = new AudioFormat(
+        AudioFormat.Encoding.PCM_SIGNED,
+        SAMPLE_RATE, // 48kHz sample rate
+        16,          // 16-bit
+        1,           // mono
+        2,           // frame size (16-bit mono = 2 bytes per frame)
+        SAMPLE_RATE, // frame rate
+        false        // little endian
+    );
+
+    /**
+     * File extension of playback-ready PCM sidecar files.
+     */
+    public static final String SIDECAR_EXTENSION = "pcm";
+
+    private PcmDecoder() {
+    }
+
+    /**
+     * Receives decoded mono samples.
+     */
+    @FunctionalInterface
+    public interface SampleSink {
+        /**
+         * @param samples Buffer holding the decoded samples; reused between calls
+         * @param count Number of valid samples at the start of the buffer
+         */
+        void accept(short[] samples, int count) throws IOException;
+    }
+
+    /**
+     * Opens a signed 16-bit PCM stream over the given audio file, at the file's own
+     * sample rate and channel count. {@link MonoPcmReader} converts it for playback.
+     *
+     * @param audioData The raw audio file bytes
+     * @return A PCM stream; its format may not be 16-bit PCM if no decoder supports that
+     * @throws Exception if the audio cannot be decoded
+     */
+    public static AudioInputStream openPcmStream(byte[] audioData) throws Exception {
+        return openPcmStream(ByteBuffer.wrap(audioData));
+    }
+
+    /**
+     * Opens a signed 16-bit PCM stream over the given audio file without copying it.
+     *
+     * @param audioData The raw audio file; read from its position without modifying the caller's view
+     * @return A PCM stream; its format may not be 16-bit PCM if no decoder supports that
+     * @throws Exception if the audio cannot be decoded
+     */
+    public static AudioInputStream openPcmStream(ByteBuffer audioData) throws Exception {
+        AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new ByteBufferInputStream(audioData.duplicate()));
+        AudioFormat format = audioInputStream.getFormat();
+
+        LOGGER.debug("Decoder source format: {} Hz, {} channels, {} bits, encoding: {}",
+            format.getSampleRate(), format.getChannels(), format.getSampleSizeInBits(), format.getEncoding());
+
+        if (format.getSampleSizeInBits() == 16 && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())) {
+            return audioInputStream;
+        }
+
+        // Decode compressed audio, or widen other PCM sample sizes, keeping rate and channels
+        AudioFormat pcmFormat = new AudioFormat(
+            AudioFormat.Encoding.PCM_SIGNED,
+            format.getSampleRate(),
+            16,
+            format.getChannels(),
+            format.getChannels() * 2,
+            format.getSampleRate(),
+            false
+        );
+        if (AudioSystem.isConversionSupported(pcmFormat, format)) {
+            return AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
+        }
+        LOGGER.warn("No decoder to 16-bit PCM for {}", format);
+        return audioInputStream;
+    }
+
+    /**
+     * Decodes an audio file completely into the given buffer.
+     *
+     * @param audioData The raw audio file
+     * @param target The buffer that receives the decoded samples
+     * @throws Exception if the audio cannot be decoded
+     */
+    public static void decodeInto(ByteBuffer audioData, DecodedAudio target) throws Exception {
+        decode(audioData, target::append);
+    }
+
+    /**
+     * Decodes an audio file into a playback-ready sidecar of raw little-endian
+     * 16-bit 48kHz mono PCM, replacing it atomically.
+     *
+     * @param audioData The raw audio file bytes
+     * @param sidecar The sidecar file to write
+     * @throws Exception if the audio cannot be decoded or the file cannot be written
+     */
+    public static void decodeToSidecar(byte[] audioData, Path sidecar) throws Exception {
+        decodeToSidecar(ByteBuffer.wrap(audioData), sidecar);
+    }
+
+    /**
+     * Decodes an audio file into a playback-ready sidecar without copying it.
+     *
+     * @param audioData The raw audio file; its remaining bytes are decoded
+     * @param sidecar The sidecar file to write
+     * @throws Exception if the audio cannot be decoded or the file cannot be written
+     */
+    public static void decodeToSidecar(ByteBuffer audioData, Path sidecar) throws Exception {
+        Path tempFile = createTempFile(sidecar);
+        try (FileChannel channel = openForWrite(tempFile)) {
+            ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+            decode(audioData, (samples, count) -> writeSamples(channel, buffer, samples, count));
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Decodes an audio file completely, passing 48kHz mono samples to the sink.
+     * Other sample rates are resampled and multi-channel audio is downmixed to mono.
+     *
+     * @param audioData The raw audio file bytes
+     * @param sink Receives the decoded samples
+     * @throws Exception if the audio cannot be decoded
+     */
+    public static void decode(byte[] audioData, SampleSink sink) throws Exception {
+        decode(ByteBuffer.wrap(audioData), sink);
+    }
+
+    /**
+     * Decodes an audio file completely without copying it, passing mono samples to the sink.
+     *
+     * @param audioData The raw audio file
+     * @param sink Receives the decoded samples
+     * @throws Exception if the audio cannot be decoded
+     */
+    public static void decode(ByteBuffer audioData, SampleSink sink) throws Exception {
+        try (MonoPcmReader reader = new MonoPcmReader(openPcmStream(audioData))) {
+            short[] samples = new short[FRAME_SIZE_SAMPLES];
+            int count;
+            while ((count = reader.read(samples, samples.length)) > 0) {
+                sink.accept(samples, count);
+            }
+        }
+    }
+
+    /**
+     * Reads a PCM sidecar file into the given buffer.
+     *
+     * @param sidecar The sidecar file
+     * @param target The buffer that receives the samples
+     * @throws IOException if the file cannot be read
+     */
+    public static void readSidecar(Path sidecar, DecodedAudio target) throws IOException {
+        readSidecar(sidecar, target::append);
+    }
+
+    /**
+     * Reads a PCM sidecar file, passing its samples to the sink.
+     *
+     * @param sidecar The sidecar file
+     * @param sink Receives the samples
+     * @throws IOException if the file cannot be read
+     */
+    public static void readSidecar(Path sidecar, SampleSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE_SAMPLES * 2 * 8).order(ByteOrder.LITTLE_ENDIAN);
+            short[] samples = new short[FRAME_SIZE_SAMPLES * 8];
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                int count = buffer.remaining() / 2;
+                buffer.asShortBuffer().get(samples, 0, count);
+                sink.accept(samples, count);
+                buffer.position(count * 2);
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Writes decoded audio to a PCM sidecar file, replacing it atomically.
+     *
+     * @param sidecar The sidecar file
+     * @param source The decoded audio to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeSidecar(Path sidecar, DecodedAudio source) throws IOException {
+        Path tempFile = createTempFile(sidecar);
+        try (FileChannel channel = openForWrite(tempFile)) {
+            ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE_SAMPLES * 2 * 8).order(ByteOrder.LITTLE_ENDIAN);
+            short[] samples = new short[FRAME_SIZE_SAMPLES * 8];
+            int position = 0;
+            int count;
+
+            while ((count = source.read(position, samples, samples.length)) > 0) {
+                writeSamples(channel, buffer, samples, count);
+                position += count;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates a uniquely named temp file next to a sidecar, so concurrent writers of the
+     * same sidecar never write into each other's file before it is moved into place.
+     */
+    private static Path createTempFile(Path sidecar) throws IOException {
+        return Files.createTempFile(sidecar.getParent(), sidecar.getFileName() + ".", ".tmp");
+    }
+
+    private static FileChannel openForWrite(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void writeSamples(FileChannel channel, ByteBuffer buffer, short[] samples, int count)
+            throws IOException {
+        buffer.clear();
+        buffer.asShortBuffer().put(samples, 0, count);
+        buffer.limit(count * 2);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
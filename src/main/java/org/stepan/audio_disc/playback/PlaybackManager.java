@@ -11,6 +11,8 @@ import org.stepan.audio_disc.model.AudioMetadata;
 import org.stepan.audio_disc.storage.AudioStorageManager;
 import de.maxhenkel.voicechat.api.opus.OpusEncoderMode;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,6 +20,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages audio playback for jukeboxes.
@@ -29,12 +32,40 @@ public class PlaybackManager {
     private final SimpleVoiceChatIntegration voiceChatIntegration;
     private final AudioStorageManager storageManager;
     private final ScheduledExecutorService scheduler;
+    private final PcmCache pcmCache;
+    private final OpusFrameStore opusFrameStore; // null when pre-encoded playback is disabled
+    private final ScheduledExecutorService broadcastScheduler; // paces broadcast hub packets
+    private final Map<String, BroadcastHub> joinableHubs; // hubs still accepting jukeboxes, by file key
 
     public PlaybackManager(SimpleVoiceChatIntegration voiceChatIntegration, AudioStorageManager storageManager) {
+        this(voiceChatIntegration, storageManager, 256L * 1024 * 1024, 0);
+    }
+
+    /**
+     * Creates a playback manager.
+     * 
+     * @param voiceChatIntegration The voice chat integration
+     * @param storageManager The audio storage manager
+     * @param pcmCacheBytes Memory budget for decoded PCM
+     * @param opusStoreBytes Memory budget for pre-encoded Opus frames, or 0 to always encode live
+     */
+    public PlaybackManager(SimpleVoiceChatIntegration voiceChatIntegration, AudioStorageManager storageManager,
+                           long pcmCacheBytes, long opusStoreBytes) {
         this.activePlaybacks = new ConcurrentHashMap<>();
         this.voiceChatIntegration = voiceChatIntegration;
         this.storageManager = storageManager;
         this.scheduler = Executors.newScheduledThreadPool(1);
+        this.pcmCache = new PcmCache(pcmCacheBytes);
+        this.opusFrameStore = opusStoreBytes > 0 ? new OpusFrameStore(voiceChatIntegration, opusStoreBytes) : null;
+        this.joinableHubs = new ConcurrentHashMap<>();
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        int broadcastThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        this.broadcastScheduler = Executors.newScheduledThreadPool(broadcastThreads, runnable -> {
+            Thread thread = new Thread(runnable, "AudioDisc-Broadcast-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         
         // Start monitoring task for playback completion
         startPlaybackMonitor();
@@ -66,7 +97,7 @@ public class PlaybackManager {
             if (streamInfo instanceof SimpleVoiceChatIntegration.PersonalAudioPlayerInfo) {
                 SimpleVoiceChatIntegration.PersonalAudioPlayerInfo playerInfo = 
                     (SimpleVoiceChatIntegration.PersonalAudioPlayerInfo) streamInfo;
-                audioFinished = playerInfo.getAudioSupplier().isFinished();
+                audioFinished = playerInfo.isFinished();
             }
             
             if (!playback.isPlaying() || playback.isComplete() || audioFinished) {
@@ -134,15 +165,18 @@ public class PlaybackManager {
 
         try {
             // Call API listeners for audio modification
-            AudioModificationContext modContext = new AudioModificationContext(
-                audioId,
-                audioData.data(),
-                metadata,
-                jukeboxPos,
-                world
-            );
-            
-            AudioModification modification = AudioDiscAPIImpl.getInstance().callModifyAudio(modContext);
+            // The API hands listeners a byte array, so the file is only copied when someone listens
+            AudioModification modification = AudioModification.noChange();
+            if (AudioDiscAPIImpl.getInstance().hasEventListeners()) {
+                AudioModificationContext modContext = new AudioModificationContext(
+                    audioId,
+                    audioData.data(),
+                    metadata,
+                    jukeboxPos,
+                    world
+                );
+                modification = AudioDiscAPIImpl.getInstance().callModifyAudio(modContext);
+            }
             
             // Check if playback was cancelled
             if (modification.isCancelled()) {
@@ -151,9 +185,9 @@ public class PlaybackManager {
             }
             
             // Apply modifications if any
-            byte[] finalAudioData = modification.isModified() && modification.getModifiedData() != null
-                ? modification.getModifiedData()
-                : audioData.data();
+            boolean modified = modification.isModified() && modification.getModifiedData() != null;
+            // Unmodified tracks are read through the shared pipeline and need no array
+            byte[] finalAudioData = modified ? modification.getModifiedData() : null;
             
             // Create audio stream using AudioPlayer approach
             UUID streamId = UUID.randomUUID();
@@ -182,18 +216,25 @@ public class PlaybackManager {
             
             LOGGER.info("Jukebox audio channel created at {} with distance: 64.0", jukeboxPos);
             
-            // Create AudioPlayer with custom audio supplier
-            SimpleVoiceChatIntegration.PersonalAudioSupplier audioSupplier = new SimpleVoiceChatIntegration.PersonalAudioSupplier(finalAudioData);
-            
-            // TODO: Set context for API event firing
-            // Note: setContext method exists in PersonalAudioSupplier but may need to be called differently
-            // audioSupplier.setContext(world, jukeboxPos, metadata.title(), audioId);
-            
-            de.maxhenkel.voicechat.api.audiochannel.AudioPlayer audioPlayer = voiceChatIntegration.getVoicechatApi().createAudioPlayer(
-                channel, 
-                voiceChatIntegration.getVoicechatApi().createEncoder(OpusEncoderMode.AUDIO), 
-                audioSupplier
-            );
+            SimpleVoiceChatIntegration.PersonalAudioSupplier audioSupplier = null;
+            de.maxhenkel.voicechat.api.audiochannel.AudioPlayer audioPlayer;
+            if (!modified) {
+                // Unmodified tracks started together share one broadcast pipeline
+                audioPlayer = attachToBroadcast(audioData, channel);
+            } else {
+                // Create AudioPlayer with custom audio supplier
+                audioSupplier = new SimpleVoiceChatIntegration.PersonalAudioSupplier(finalAudioData);
+                
+                // TODO: Set context for API event firing
+                // Note: setContext method exists in PersonalAudioSupplier but may need to be called differently
+                // audioSupplier.setContext(world, jukeboxPos, metadata.title(), audioId);
+                
+                audioPlayer = voiceChatIntegration.getVoicechatApi().createAudioPlayer(
+                    channel, 
+                    voiceChatIntegration.getVoicechatApi().createEncoder(OpusEncoderMode.AUDIO), 
+                    audioSupplier
+                );
+            }
             
             if (audioPlayer == null) {
                 LOGGER.error("Failed to create audio player for jukebox");
@@ -243,6 +284,71 @@ public class PlaybackManager {
         }
     }
 
+    /**
+     * Attaches a jukebox channel to the broadcast hub for a stored file, creating a hub
+     * if none is accepting jukeboxes. Jukeboxes that start within the hub's join window
+     * hear the same packets from a single decode and encode, even when their discs hold
+     * different uploads of the same content.
+     * 
+     * @param audioData The unmodified audio
+     * @param channel The jukebox channel
+     * @return The player controlling this jukebox
+     */
+    private de.maxhenkel.voicechat.api.audiochannel.AudioPlayer attachToBroadcast(AudioData audioData,
+                                                                              de.maxhenkel.voicechat.api.audiochannel.LocationalAudioChannel channel) {
+        String fileKey = storageManager.getFileKey(audioData.id());
+        while (true) {
+            BroadcastHub hub = joinableHubs.computeIfAbsent(fileKey, key -> createHub(key, audioData));
+            BroadcastHub.Member member = hub.attach(channel);
+            if (member != null) {
+                LOGGER.debug("Attached jukebox to broadcast of audio {} ({} channels)", fileKey, hub.getMemberCount());
+                return member;
+            }
+            // Hub started sending while we were attaching
+            joinableHubs.remove(fileKey, hub);
+        }
+    }
+
+    /**
+     * Creates a broadcast hub, using pre-encoded Opus frames when they are ready.
+     */
+    private BroadcastHub createHub(String fileKey, AudioData audioData) {
+        String audioId = audioData.id();
+        Path sidecar = storageManager.getPlaybackSidecarPath(audioId);
+        
+        Optional<OpusFrames> opusFrames = Optional.empty();
+        if (opusFrameStore != null) {
+            opusFrames = opusFrameStore.get(fileKey, audioData, sidecar, storageManager.getOpusFramesPath(audioId));
+        }
+        
+        if (opusFrames.isPresent()) {
+            LOGGER.debug("Using pre-encoded Opus frames for audio {}", fileKey);
+            return BroadcastHub.ofFrames(opusFrames.get(), broadcastScheduler,
+                hub -> joinableHubs.remove(fileKey, hub));
+        }
+        
+        // Shares one decode through the PCM cache
+        DecodedAudio decodedAudio = pcmCache.getOrDecode(fileKey, audioData, sidecar);
+        if (decodedAudio == null) {
+            // Too large to keep decoded, so the hub decodes as it plays
+            return BroadcastHub.ofStream(
+                fileKey,
+                audioData.getBuffer(),
+                voiceChatIntegration.getVoicechatApi().createEncoder(OpusEncoderMode.AUDIO),
+                broadcastScheduler,
+                hub -> joinableHubs.remove(fileKey, hub)
+            );
+        }
+        ByteBuffer fileData = audioData.getBuffer();
+        return BroadcastHub.ofDecoded(
+            decodedAudio,
+            offset -> pcmCache.openStream(fileData, offset),
+            voiceChatIntegration.getVoicechatApi().createEncoder(OpusEncoderMode.AUDIO),
+            broadcastScheduler,
+            hub -> joinableHubs.remove(fileKey, hub)
+        );
+    }
+
     /**
      * Stops playback at a jukebox position.
      * 
@@ -334,6 +440,24 @@ public class PlaybackManager {
         return activePlaybacks.size();
     }
 
+    /**
+     * Gets the decoded PCM cache shared by all playbacks.
+     * 
+     * @return The PCM cache
+     */
+    public PcmCache getPcmCache() {
+        return pcmCache;
+    }
+
+    /**
+     * Gets the pre-encoded Opus frame store.
+     * 
+     * @return The frame store, or null if pre-encoded playback is disabled
+     */
+    public OpusFrameStore getOpusFrameStore() {
+        return opusFrameStore;
+    }
+
     /**
      * Handles disc ejection when playback completes naturally.
      * 
@@ -361,6 +485,11 @@ public class PlaybackManager {
     public void shutdown() {
         LOGGER.info("Shutting down PlaybackManager");
         stopAllPlaybacks();
+        pcmCache.shutdown();
+        if (opusFrameStore != null) {
+            opusFrameStore.shutdown();
+        }
+        broadcastScheduler.shutdownNow();
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -0,0 +1,222 @@
+package org.stepan.audio_disc.playback;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Converts mono PCM from one sample rate to another with a polyphase windowed-sinc
+ * filter, block by block, without going through the AudioSystem format converters.
+ *
+ * <p>The rate ratio is reduced to L/M and the Kaiser-windowed sinc filter is computed
+ * once for each of the L positions an output sample can fall between two input
+ * samples. Each output sample is then one dot product over consecutive input samples
+ * in plain float arrays. The result depends only on the input, so decoding the same
+ * file twice gives identical samples.</p>
+ */
+public final class Resampler {
+    private static final int ZERO_CROSSINGS = 16;    // filter half-length, in zero crossings of the cutoff
+    private static final double PASSBAND = 0.95;    // cutoff as a fraction of the lower Nyquist frequency
+    private static final double KAISER_BETA = 8.6;  // about 90 dB stopband attenuation
+    private static final int MAX_PHASES = 1024;     // finer positions are rounded down to one of these
+
+    private final int up;
+    private final int down;
+    private final boolean passthrough;
+    private final int phases;
+    private final int taps;
+    private final float[] coefficients; // phases rows of taps coefficients
+
+    private float[] history;  // input samples not yet fully used
+    private int buffered;     // samples in history
+    private int position;     // index in history of the first tap of the next output sample
+    private int phase;        // position of the next output sample between two inputs, in 1/up steps
+
+    private final short[] output = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
+    private int outputCount;
+
+    /**
+     * Creates a resampler.
+     *
+     * @param sourceRate The input sample rate in Hz
+     * @param targetRate The output sample rate in Hz
+     */
+    public Resampler(int sourceRate, int targetRate) {
+        if (sourceRate <= 0 || targetRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rates: " + sourceRate + " -> " + targetRate);
+        }
+        int gcd = gcd(sourceRate, targetRate);
+        this.up = targetRate / gcd;
+        this.down = sourceRate / gcd;
+        this.passthrough = up == down;
+
+        if (passthrough) {
+            this.phases = 1;
+            this.taps = 0;
+            this.coefficients = new float[0];
+            this.history = new float[0];
+            return;
+        }
+
+        double cutoff = PASSBAND * Math.min(1.0, (double) targetRate / sourceRate);
+        int half = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        half += half & 1; // Whole blocks of four taps
+        this.phases = Math.min(up, MAX_PHASES);
+        this.taps = 2 * half;
+        this.coefficients = createFilter(phases, taps, cutoff);
+
+        // Start with silence before the first sample, so the first output is centred on it
+        this.history = new float[taps * 4];
+        this.buffered = half - 1;
+    }
+
+    /**
+     * Resamples a block of input, passing finished output to the sink in blocks of
+     * up to {@link PcmDecoder#FRAME_SIZE_SAMPLES} samples.
+     *
+     * @param input Samples in the 16-bit range
+     * @param count The number of samples to take from the start of input
+     * @param sink Receives the output
+     * @throws IOException if the sink fails
+     */
+    public void process(float[] input, int count, PcmDecoder.SampleSink sink) throws IOException {
+        if (passthrough) {
+            for (int i = 0; i < count; i++) {
+                emit(input[i], sink);
+            }
+            return;
+        }
+        if (buffered + count > history.length) {
+            history = Arrays.copyOf(history, Math.max(buffered + count, history.length * 2));
+        }
+        System.arraycopy(input, 0, history, buffered, count);
+        buffered += count;
+        produce(sink);
+    }
+
+    /**
+     * Finishes the output after the last input, including the filter's tail.
+     *
+     * @param sink Receives the rest of the output
+     * @throws IOException if the sink fails
+     */
+    public void flush(PcmDecoder.SampleSink sink) throws IOException {
+        if (!passthrough) {
+            int half = taps / 2;
+            process(new float[half], half, sink);
+        }
+        if (outputCount > 0) {
+            sink.accept(output, outputCount);
+            outputCount = 0;
+        }
+    }
+
+    private void produce(PcmDecoder.SampleSink sink) throws IOException {
+        while (position + taps <= buffered) {
+            int row = (phases == up ? phase : (int) ((long) phase * phases / up)) * taps;
+            emit(dot(coefficients, row, history, position, taps), sink);
+            phase += down;
+            position += phase / up;
+            phase %= up;
+        }
+
+        // Keep only the samples later outputs still need
+        if (position > 0) {
+            System.arraycopy(history, position, history, 0, buffered - position);
+            buffered -= position;
+            position = 0;
+        }
+    }
+
+    private void emit(float sample, PcmDecoder.SampleSink sink) throws IOException {
+        int value = Math.round(sample);
+        output[outputCount++] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        if (outputCount == output.length) {
+            sink.accept(output, outputCount);
+            outputCount = 0;
+        }
+    }
+
+    /**
+     * Multiplies and sums two runs of samples, with independent partial sums so
+     * the additions can run in parallel.
+     */
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Computes the filter for each phase. Row p holds the taps for an output sample
+     * p/phases of the way from one input sample to the next, scaled to unity gain.
+     */
+    private static float[] createFilter(int phases, int taps, double cutoff) {
+        int half = taps / 2;
+        double windowScale = 1.0 / besselI0(KAISER_BETA);
+        float[] filter = new float[phases * taps];
+        double[] row = new double[taps];
+
+        for (int p = 0; p < phases; p++) {
+            double offset = (double) p / phases;
+            double sum = 0;
+            for (int j = 0; j < taps; j++) {
+                double distance = offset + (half - 1) - j; // from tap j to the output sample, in input samples
+                double x = distance / half;
+                double window = Math.abs(x) >= 1 ? 0
+                    : besselI0(KAISER_BETA * Math.sqrt(1 - x * x)) * windowScale;
+                row[j] = cutoff * sinc(cutoff * distance) * window;
+                sum += row[j];
+            }
+            for (int j = 0; j < taps; j++) {
+                filter[p * taps + j] = (float) (row[j] / sum);
+            }
+        }
+        return filter;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        double angle = Math.PI * x;
+        return Math.sin(angle) / angle;
+    }
+
+    /**
+     * Zeroth-order modified Bessel function of the first kind, for the Kaiser window.
+     */
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double quarterSquare = x * x / 4;
+        for (int k = 1; k < 50; k++) {
+            term *= quarterSquare / ((double) k * k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -15,10 +15,12 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.spi.AudioFileReader;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Integrates with Simple Voice Chat for spatial audio playback.
@@ -59,6 +61,7 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
     private VoicechatServerApi voicechatApi;
     private volatile boolean initialized = false;
     private final Map<UUID, AudioStreamInfo> activeStreams;
+    private final StreamScheduler streamScheduler = new StreamScheduler();
 
     public SimpleVoiceChatIntegration() {
         this.config = null; // Will be set later
@@ -366,11 +369,8 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
             // Start streaming audio data in chunks
             streamInfo.setPlaying(true);
             
-            // Create a thread to stream audio data
-            Thread streamThread = new Thread(() -> streamAudioData(streamInfo));
-            streamThread.setName("AudioDisc-Stream-" + streamId);
-            streamThread.setDaemon(true);
-            streamThread.start();
+            // All streams are paced by one scheduler thread
+            streamScheduler.schedule(streamId, openLegacyStream(streamInfo));
             
             LOGGER.info("Started audio stream {}", streamId);
             return true;
@@ -384,377 +384,179 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
 
 
     /**
-     * Streams personal audio data in chunks.
+     * Opens a legacy stream that sends decoded PCM chunks, or the raw file data
+     * if it cannot be decoded. The stream is paced by the shared {@link StreamScheduler}.
      * 
-     * @param streamInfo The personal stream information
+     * @param streamInfo The stream information
+     * @return The paced stream
      */
-    private void streamPersonalAudioData(PersonalAudioStreamInfo streamInfo) {
+    private StreamScheduler.PacedStream openLegacyStream(AudioStreamInfo streamInfo) {
+        byte[] audioData = streamInfo.getAudioData();
+        LocationalAudioChannel channel = streamInfo.getChannel();
+        
+        // Try to read as audio stream
         try {
-            byte[] audioData = streamInfo.getAudioData();
-            de.maxhenkel.voicechat.api.audiochannel.StaticAudioChannel channel = streamInfo.getStaticChannel();
+            // First, let's check what we have
+            LOGGER.info("Attempting to decode audio data: {} bytes", audioData.length);
+            
+            // Check first few bytes for format identification
+            if (audioData.length >= 4) {
+                String header = String.format("%02X %02X %02X %02X", 
+                    audioData[0] & 0xFF, audioData[1] & 0xFF, audioData[2] & 0xFF, audioData[3] & 0xFF);
+                LOGGER.info("Audio header bytes: {}", header);
+            }
             
-            LOGGER.info("Starting personal audio stream for player {}: {} bytes", 
-                streamInfo.getPlayer().getName().getString(), audioData.length);
+            AudioInputStream audioInputStream;
+            try {
+                audioInputStream = PcmDecoder.openPcmStream(audioData);
+            } catch (NoClassDefFoundError ncdfe) {
+                LOGGER.error("Audio library missing: {}", ncdfe.getMessage());
+                LOGGER.error("Cannot decode audio - falling back to raw data");
+                throw new Exception("Audio library not available", ncdfe);
+            }
+            AudioFormat format = audioInputStream.getFormat();
             
-            // Convert audio data to proper format for streaming
-            ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
+            LOGGER.info("Original audio format: {} Hz, {} channels, {} bits, encoding: {}", 
+                format.getSampleRate(), format.getChannels(), format.getSampleSizeInBits(), format.getEncoding());
             
-            // Try to read as audio stream
+            // Downmixed and resampled to 48kHz mono as it is read, like every other playback path
+            MonoPcmReader reader;
             try {
-                // First, let's check what we have
-                LOGGER.info("Attempting to decode personal audio data: {} bytes", audioData.length);
-                
-                AudioInputStream audioInputStream;
-                try {
-                    audioInputStream = AudioSystem.getAudioInputStream(bais);
-                } catch (NoClassDefFoundError ncdfe) {
-                    LOGGER.error("Audio library missing: {}", ncdfe.getMessage());
-                    LOGGER.error("Cannot decode audio - falling back to raw data");
-                    throw new Exception("Audio library not available", ncdfe);
-                }
-                AudioFormat format = audioInputStream.getFormat();
-                
-                LOGGER.info("Original personal audio format: {} Hz, {} channels, {} bits, encoding: {}", 
-                    format.getSampleRate(), format.getChannels(), format.getSampleSizeInBits(), format.getEncoding());
-                
-                // Convert to Simple Voice Chat compatible format (16-bit PCM, mono, 24kHz)
-                AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    24000.0f, // 24kHz sample rate
-                    16,       // 16-bit
-                    1,        // mono
-                    2,        // frame size (16-bit mono = 2 bytes per frame)
-                    24000.0f, // frame rate
-                    false     // little endian
-                );
-                
-                // Convert audio format
-                AudioInputStream convertedStream = audioInputStream;
-                if (!format.matches(targetFormat)) {
-                    try {
-                        // First convert to PCM if needed
-                        if (!format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
-                            AudioFormat pcmFormat = new AudioFormat(
-                                AudioFormat.Encoding.PCM_SIGNED,
-                                format.getSampleRate(),
-                                16,
-                                format.getChannels(),
-                                format.getChannels() * 2,
-                                format.getSampleRate(),
-                                false
-                            );
-                            
-                            if (AudioSystem.isConversionSupported(pcmFormat, format)) {
-                                convertedStream = AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
-                                LOGGER.info("Converted personal audio to PCM format");
-                            }
-                        }
-                        
-                        // Then convert to target format
-                        if (AudioSystem.isConversionSupported(targetFormat, convertedStream.getFormat())) {
-                            convertedStream = AudioSystem.getAudioInputStream(targetFormat, convertedStream);
-                            LOGGER.info("Converted personal audio to target format: 24kHz 16-bit mono");
-                        } else {
-                            LOGGER.warn("Direct conversion not supported for personal audio, trying alternative approach");
-                            // Use the PCM format we have
-                            targetFormat = convertedStream.getFormat();
-                        }
-                    } catch (Exception e) {
-                        LOGGER.warn("Personal audio format conversion failed: {}", e.getMessage());
-                        // Use original format
-                        convertedStream = audioInputStream;
-                        targetFormat = format;
-                    }
-                }
-                
-                LOGGER.info("Final personal audio format: {} Hz, {} channels, {} bits", 
-                    targetFormat.getSampleRate(), targetFormat.getChannels(), targetFormat.getSampleSizeInBits());
-                
-                // Calculate proper chunk size based on format
-                int frameSize = targetFormat.getFrameSize();
-                int sampleRate = (int) targetFormat.getSampleRate();
-                int chunkDurationMs = 40; // 40ms chunks
-                int framesPerChunk = (sampleRate * chunkDurationMs) / 1000;
-                int chunkSize = framesPerChunk * frameSize;
-                
-                LOGGER.info("Using personal audio chunk size: {} bytes ({} frames, {}ms)", chunkSize, framesPerChunk, chunkDurationMs);
-                
-                // Stream in chunks with proper timing
-                byte[] buffer = new byte[chunkSize];
-                int bytesRead;
-                
-                while (streamInfo.isPlaying() && (bytesRead = convertedStream.read(buffer)) != -1) {
-                    // Send audio chunk to voice chat
-                    if (bytesRead == buffer.length) {
-                        channel.send(buffer);
-                    } else {
-                        // Send partial buffer
-                        byte[] chunk = new byte[bytesRead];
-                        System.arraycopy(buffer, 0, chunk, 0, bytesRead);
-                        channel.send(chunk);
-                    }
-                    
-                    // Wait for proper timing
-                    try {
-                        Thread.sleep(chunkDurationMs);
-                    } catch (InterruptedException e) {
-                        LOGGER.info("Personal audio stream {} interrupted during sleep", streamInfo.getStreamId());
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-                
-                convertedStream.close();
+                reader = new MonoPcmReader(audioInputStream);
+            } catch (IOException e) {
                 audioInputStream.close();
-                
-            } catch (Exception e) {
-                LOGGER.error("Could not parse personal audio format: {}", e.getMessage());
-                
-                // Try alternative approach - assume it's a valid audio file but we can't decode it
-                LOGGER.warn("Attempting to send raw personal audio data as fallback");
-                
-                try {
-                    // Send raw data in small chunks, assuming it's compressed audio
-                    int chunkSize = 4096; // Larger chunks for compressed data
-                    for (int i = 0; i < audioData.length && streamInfo.isPlaying(); i += chunkSize) {
-                        int length = Math.min(chunkSize, audioData.length - i);
-                        byte[] chunk = new byte[length];
-                        System.arraycopy(audioData, i, chunk, 0, length);
-                        
-                        channel.send(chunk);
-                        
-                        // Shorter delay for compressed data
-                        try {
-                            Thread.sleep(10);
-                        } catch (InterruptedException ie) {
-                            LOGGER.info("Personal audio stream {} interrupted during fallback", streamInfo.getStreamId());
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                } catch (Exception fallbackException) {
-                    LOGGER.error("Fallback personal audio streaming also failed: {}", fallbackException.getMessage());
-                }
-                
-                streamInfo.setPlaying(false);
-                return;
+                throw e;
             }
+            int chunkDurationMs = 40; // 40ms chunks
+            int samplesPerChunk = (PcmDecoder.SAMPLE_RATE * chunkDurationMs) / 1000;
             
-            // Mark as finished
-            streamInfo.setPlaying(false);
-            LOGGER.info("Personal audio stream {} finished for player {}", streamInfo.getStreamId(), streamInfo.getPlayer().getName().getString());
+            LOGGER.info("Using chunk size: {} samples ({}ms)", samplesPerChunk, chunkDurationMs);
             
-        } catch (Exception e) {
-            if (e instanceof InterruptedException) {
-                LOGGER.info("Personal audio stream {} interrupted", streamInfo.getStreamId());
-                Thread.currentThread().interrupt();
-            } else {
-                LOGGER.error("Error streaming personal audio data: {}", e.getMessage());
-                LOGGER.debug("Full stack trace:", e);
+            return new PcmChunkStream(streamInfo, channel, reader, samplesPerChunk, chunkDurationMs);
+            
+        } catch (Exception | NoClassDefFoundError e) {
+            LOGGER.error("Could not parse audio format: {}", e.getMessage());
+            LOGGER.error("Available audio file readers:");
+            try {
+                java.lang.reflect.Method method = AudioSystem.class.getDeclaredMethod("getAudioFileReaders");
+                method.setAccessible(true);
+                @SuppressWarnings("unchecked")
+                java.util.List<AudioFileReader> readers = (java.util.List<AudioFileReader>) method.invoke(null);
+                for (AudioFileReader reader : readers) {
+                    LOGGER.error("  - {}", reader.getClass().getName());
+                }
+            } catch (Exception reflectionException) {
+                LOGGER.error("Could not list audio file readers: {}", reflectionException.getMessage());
             }
-        } catch (NoClassDefFoundError e) {
-            LOGGER.error("Audio library error (missing class) in personal stream: {}", e.getMessage());
-            LOGGER.error("This usually means an audio library is not properly loaded");
-            LOGGER.error("Try restarting the server or check audio library dependencies");
-        } catch (Error e) {
-            LOGGER.error("Critical error in personal audio streaming: {}", e.getMessage());
-            LOGGER.debug("Full stack trace:", e);
+            
+            // Try alternative approach - assume it's a valid audio file but we can't decode it
+            // This might happen if the audio libraries aren't properly loaded
+            LOGGER.warn("Attempting to send raw audio data as fallback");
+            return new RawChunkStream(streamInfo, channel);
         }
     }
 
     /**
-     * Streams audio data in chunks.
-     * 
-     * @param streamInfo The stream information
+     * Sends decoded PCM in fixed-duration chunks.
      */
-    private void streamAudioData(AudioStreamInfo streamInfo) {
-        try {
-            byte[] audioData = streamInfo.getAudioData();
-            LocationalAudioChannel channel = streamInfo.getChannel();
-            
-            // Convert audio data to proper format for streaming
-            ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
-            
-            // Try to read as audio stream
+    private static class PcmChunkStream implements StreamScheduler.PacedStream {
+        private final AudioStreamInfo streamInfo;
+        private final LocationalAudioChannel channel;
+        private final MonoPcmReader reader;
+        private final short[] samples;
+        private final byte[] buffer;
+        private final long intervalNanos;
+
+        PcmChunkStream(AudioStreamInfo streamInfo, LocationalAudioChannel channel, MonoPcmReader reader,
+                       int samplesPerChunk, int chunkDurationMs) {
+            this.streamInfo = streamInfo;
+            this.channel = channel;
+            this.reader = reader;
+            this.samples = new short[samplesPerChunk];
+            this.buffer = new byte[samplesPerChunk * 2];
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(chunkDurationMs);
+        }
+
+        @Override
+        public long getIntervalNanos() {
+            return intervalNanos;
+        }
+
+        @Override
+        public boolean sendNext() throws IOException {
+            if (!streamInfo.isPlaying()) {
+                return false;
+            }
+            int samplesRead = reader.read(samples, samples.length);
+            if (samplesRead <= 0) {
+                return false;
+            }
+            // 16-bit little endian, as the stream was sent before
+            for (int i = 0; i < samplesRead; i++) {
+                buffer[2 * i] = (byte) samples[i];
+                buffer[2 * i + 1] = (byte) (samples[i] >> 8);
+            }
+            int bytesRead = samplesRead * 2;
+
+            // Send audio chunk to voice chat
+            if (bytesRead == buffer.length) {
+                channel.send(buffer);
+            } else {
+                // Send partial buffer
+                channel.send(Arrays.copyOf(buffer, bytesRead));
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
             try {
-                // First, let's check what we have
-                LOGGER.info("Attempting to decode audio data: {} bytes", audioData.length);
-                
-                // Check first few bytes for format identification
-                if (audioData.length >= 4) {
-                    String header = String.format("%02X %02X %02X %02X", 
-                        audioData[0] & 0xFF, audioData[1] & 0xFF, audioData[2] & 0xFF, audioData[3] & 0xFF);
-                    LOGGER.info("Audio header bytes: {}", header);
-                }
-                
-                AudioInputStream audioInputStream;
-                try {
-                    audioInputStream = AudioSystem.getAudioInputStream(bais);
-                } catch (NoClassDefFoundError ncdfe) {
-                    LOGGER.error("Audio library missing: {}", ncdfe.getMessage());
-                    LOGGER.error("Cannot decode audio - falling back to raw data");
-                    throw new Exception("Audio library not available", ncdfe);
-                }
-                AudioFormat format = audioInputStream.getFormat();
-                
-                LOGGER.info("Original audio format: {} Hz, {} channels, {} bits, encoding: {}", 
-                    format.getSampleRate(), format.getChannels(), format.getSampleSizeInBits(), format.getEncoding());
-                
-                // Convert to Simple Voice Chat compatible format (16-bit PCM, mono, 24kHz)
-                AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    24000.0f, // 24kHz sample rate
-                    16,       // 16-bit
-                    1,        // mono
-                    2,        // frame size (16-bit mono = 2 bytes per frame)
-                    24000.0f, // frame rate
-                    false     // little endian
-                );
-                
-                // Convert audio format
-                AudioInputStream convertedStream = audioInputStream;
-                if (!format.matches(targetFormat)) {
-                    try {
-                        // First convert to PCM if needed
-                        if (!format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
-                            AudioFormat pcmFormat = new AudioFormat(
-                                AudioFormat.Encoding.PCM_SIGNED,
-                                format.getSampleRate(),
-                                16,
-                                format.getChannels(),
-                                format.getChannels() * 2,
-                                format.getSampleRate(),
-                                false
-                            );
-                            
-                            if (AudioSystem.isConversionSupported(pcmFormat, format)) {
-                                convertedStream = AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
-                                LOGGER.info("Converted to PCM format");
-                            }
-                        }
-                        
-                        // Then convert to target format
-                        if (AudioSystem.isConversionSupported(targetFormat, convertedStream.getFormat())) {
-                            convertedStream = AudioSystem.getAudioInputStream(targetFormat, convertedStream);
-                            LOGGER.info("Converted to target format: 24kHz 16-bit mono");
-                        } else {
-                            LOGGER.warn("Direct conversion not supported, trying alternative approach");
-                            // Use the PCM format we have
-                            targetFormat = convertedStream.getFormat();
-                        }
-                    } catch (Exception e) {
-                        LOGGER.warn("Audio format conversion failed: {}", e.getMessage());
-                        // Use original format
-                        convertedStream = audioInputStream;
-                        targetFormat = format;
-                    }
-                }
-                
-                LOGGER.info("Final audio format: {} Hz, {} channels, {} bits", 
-                    targetFormat.getSampleRate(), targetFormat.getChannels(), targetFormat.getSampleSizeInBits());
-                
-                // Calculate proper chunk size based on format
-                int frameSize = targetFormat.getFrameSize();
-                int sampleRate = (int) targetFormat.getSampleRate();
-                int chunkDurationMs = 40; // 40ms chunks
-                int framesPerChunk = (sampleRate * chunkDurationMs) / 1000;
-                int chunkSize = framesPerChunk * frameSize;
-                
-                LOGGER.info("Using chunk size: {} bytes ({} frames, {}ms)", chunkSize, framesPerChunk, chunkDurationMs);
-                
-                // Stream in chunks with proper timing
-                byte[] buffer = new byte[chunkSize];
-                int bytesRead;
-                
-                while (streamInfo.isPlaying() && (bytesRead = convertedStream.read(buffer)) != -1) {
-                    // Send audio chunk to voice chat
-                    if (bytesRead == buffer.length) {
-                        channel.send(buffer);
-                    } else {
-                        // Send partial buffer
-                        byte[] chunk = new byte[bytesRead];
-                        System.arraycopy(buffer, 0, chunk, 0, bytesRead);
-                        channel.send(chunk);
-                    }
-                    
-                    // Wait for proper timing
-                    try {
-                        Thread.sleep(chunkDurationMs);
-                    } catch (InterruptedException e) {
-                        LOGGER.info("Audio stream {} interrupted during sleep", streamInfo.getStreamId());
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-                
-                convertedStream.close();
-                audioInputStream.close();
-                
-            } catch (Exception e) {
-                LOGGER.error("Could not parse audio format: {}", e.getMessage());
-                LOGGER.error("Available audio file readers:");
-                try {
-                    java.lang.reflect.Method method = AudioSystem.class.getDeclaredMethod("getAudioFileReaders");
-                    method.setAccessible(true);
-                    @SuppressWarnings("unchecked")
-                    java.util.List<AudioFileReader> readers = (java.util.List<AudioFileReader>) method.invoke(null);
-                    for (AudioFileReader reader : readers) {
-                        LOGGER.error("  - {}", reader.getClass().getName());
-                    }
-                } catch (Exception reflectionException) {
-                    LOGGER.error("Could not list audio file readers: {}", reflectionException.getMessage());
-                }
-                
-                // Try alternative approach - assume it's a valid audio file but we can't decode it
-                // This might happen if the audio libraries aren't properly loaded
-                LOGGER.warn("Attempting to send raw audio data as fallback");
-                
-                try {
-                    // Send raw data in small chunks, assuming it's compressed audio
-                    int chunkSize = 4096; // Larger chunks for compressed data
-                    for (int i = 0; i < audioData.length && streamInfo.isPlaying(); i += chunkSize) {
-                        int length = Math.min(chunkSize, audioData.length - i);
-                        byte[] chunk = new byte[length];
-                        System.arraycopy(audioData, i, chunk, 0, length);
-                        
-                        channel.send(chunk);
-                        
-                        // Shorter delay for compressed data
-                        try {
-                            Thread.sleep(10);
-                        } catch (InterruptedException ie) {
-                            LOGGER.info("Audio stream {} interrupted during fallback", streamInfo.getStreamId());
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                } catch (Exception fallbackException) {
-                    LOGGER.error("Fallback audio streaming also failed: {}", fallbackException.getMessage());
-                }
-                
-                streamInfo.setPlaying(false);
-                return;
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing audio stream {}: {}", streamInfo.getStreamId(), e.getMessage());
             }
-            
             // Mark as finished
             streamInfo.setPlaying(false);
             LOGGER.info("Audio stream {} finished", streamInfo.getStreamId());
-            
-        } catch (Exception e) {
-            if (e instanceof InterruptedException) {
-                LOGGER.info("Audio stream {} interrupted", streamInfo.getStreamId());
-                Thread.currentThread().interrupt();
-            } else {
-                LOGGER.error("Error streaming audio data: {}", e.getMessage());
-                LOGGER.debug("Full stack trace:", e);
+        }
+    }
+
+    /**
+     * Sends undecodable file data in raw chunks.
+     */
+    private static class RawChunkStream implements StreamScheduler.PacedStream {
+        private static final int CHUNK_SIZE = 4096; // Larger chunks for compressed data
+        private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10); // Shorter delay for compressed data
+
+        private final AudioStreamInfo streamInfo;
+        private final LocationalAudioChannel channel;
+        private int offset;
+
+        RawChunkStream(AudioStreamInfo streamInfo, LocationalAudioChannel channel) {
+            this.streamInfo = streamInfo;
+            this.channel = channel;
+        }
+
+        @Override
+        public long getIntervalNanos() {
+            return INTERVAL_NANOS;
+        }
+
+        @Override
+        public boolean sendNext() {
+            byte[] audioData = streamInfo.getAudioData();
+            if (!streamInfo.isPlaying() || offset >= audioData.length) {
+                return false;
             }
-        } catch (NoClassDefFoundError e) {
-            LOGGER.error("Audio library error (missing class): {}", e.getMessage());
-            LOGGER.error("This usually means an audio library is not properly loaded");
-            LOGGER.error("Try restarting the server or check audio library dependencies");
-        } catch (Error e) {
-            LOGGER.error("Critical error in audio streaming: {}", e.getMessage());
-            LOGGER.debug("Full stack trace:", e);
+            int length = Math.min(CHUNK_SIZE, audioData.length - offset);
+            channel.send(Arrays.copyOfRange(audioData, offset, offset + length));
+            offset += length;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            streamInfo.setPlaying(false);
         }
     }
 
@@ -810,6 +612,7 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
     public void stopAllStreams() {
         LOGGER.info("Stopping all audio streams");
         activeStreams.keySet().forEach(this::stopStream);
+        streamScheduler.shutdown();
     }
 
     /**
@@ -971,6 +774,16 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
         public PersonalAudioSupplier getAudioSupplier() {
             return audioSupplier;
         }
+
+        /**
+         * Checks if the player has run out of audio.
+         * Broadcast hub members have no supplier and report completion by stopping.
+         *
+         * @return true if playback has reached the end
+         */
+        public boolean isFinished() {
+            return audioSupplier != null ? audioSupplier.isFinished() : audioPlayer.isStopped();
+        }
     }
 
     /**
@@ -978,11 +791,11 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
      */
     public static class PersonalAudioSupplier implements java.util.function.Supplier<short[]> {
         private final byte[] audioData;
-        private AudioInputStream audioInputStream;
+        private MonoPcmReader reader;
         private boolean initialized = false;
         private boolean finished = false;
-        private AudioFormat targetFormat;
-        private int frameSize;
+        // Reused for every frame; the voice chat audio player encodes each frame before requesting the next
+        private final short[] frame = new short[PcmDecoder.FRAME_SIZE_SAMPLES];
 
         public PersonalAudioSupplier(byte[] audioData) {
             this.audioData = audioData;
@@ -1004,28 +817,15 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
 
             try {
                 // Simple Voice Chat ожидает ровно 960 сэмплов на фрейм
-                short[] frame = new short[960]; // FRAME_SIZE_SAMPLES = 960
+                int samplesRead = reader.read(frame, frame.length);
                 
-                // Read audio chunk and convert to short array
-                byte[] buffer = new byte[960 * frameSize]; // 960 frames * 2 bytes per frame
-                int bytesRead = audioInputStream.read(buffer);
-                
-                if (bytesRead <= 0) {
+                if (samplesRead <= 0) {
                     finished = true;
                     return null;
                 }
 
-                // Convert bytes to shorts (little endian)
-                int samplesRead = bytesRead / 2; // 16-bit = 2 bytes per sample
-                for (int i = 0; i < Math.min(samplesRead, 960); i++) {
-                    int byteIndex = i * 2;
-                    if (byteIndex + 1 < bytesRead) {
-                        // Little endian conversion
-                        frame[i] = (short) ((buffer[byteIndex] & 0xFF) | ((buffer[byteIndex + 1] & 0xFF) << 8));
-                    }
-                }
-
                 // Если прочитали меньше 960 сэмплов, остальные будут нулями (тишина)
+                Arrays.fill(frame, samplesRead, frame.length, (short) 0);
                 return frame;
 
             } catch (Exception e) {
@@ -1052,9 +852,9 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
                     return false;
                 }
                 
-                ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
+                AudioInputStream audioInputStream;
                 try {
-                    audioInputStream = AudioSystem.getAudioInputStream(bais);
+                    audioInputStream = PcmDecoder.openPcmStream(audioData);
                 } catch (javax.sound.sampled.UnsupportedAudioFileException e) {
                     if (isM4AFormat(audioData)) {
                         LOGGER.error("M4A format is not supported by Java AudioSystem");
@@ -1079,57 +879,8 @@ public class SimpleVoiceChatIntegration implements VoicechatPlugin {
                 LOGGER.info("Personal audio supplier format: {} Hz, {} channels, {} bits, encoding: {}", 
                     format.getSampleRate(), format.getChannels(), format.getSampleSizeInBits(), format.getEncoding());
 
-                // Convert to Simple Voice Chat compatible format (16-bit PCM, mono, 48kHz)
-                // Simple Voice Chat обычно работает с 48kHz, не 24kHz
-                targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    48000.0f, // 48kHz sample rate (стандарт для Simple Voice Chat)
-                    16,       // 16-bit
-                    1,        // mono
-                    2,        // frame size (16-bit mono = 2 bytes per frame)
-                    48000.0f, // frame rate
-                    false     // little endian
-                );
-
-                // Convert audio format if needed
-                if (!format.matches(targetFormat)) {
-                    try {
-                        // First convert to PCM if needed
-                        if (!format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
-                            AudioFormat pcmFormat = new AudioFormat(
-                                AudioFormat.Encoding.PCM_SIGNED,
-                                format.getSampleRate(),
-                                16,
-                                format.getChannels(),
-                                format.getChannels() * 2,
-                                format.getSampleRate(),
-                                false
-                            );
-                            
-                            if (AudioSystem.isConversionSupported(pcmFormat, format)) {
-                                audioInputStream = AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
-                                LOGGER.info("Converted personal audio supplier to PCM format");
-                            }
-                        }
-                        
-                        // Then convert to target format
-                        if (AudioSystem.isConversionSupported(targetFormat, audioInputStream.getFormat())) {
-                            audioInputStream = AudioSystem.getAudioInputStream(targetFormat, audioInputStream);
-                            LOGGER.info("Converted personal audio supplier to target format: 24kHz 16-bit mono");
-                        } else {
-                            LOGGER.warn("Direct conversion not supported for personal audio supplier, using available format");
-                            targetFormat = audioInputStream.getFormat();
-                        }
-                    } catch (Exception e) {
-                        LOGGER.warn("Personal audio supplier format conversion failed: {}", e.getMessage());
-                        targetFormat = format;
-                    }
-                }
-
-                frameSize = targetFormat.getFrameSize();
-                
-                LOGGER.info("Personal audio supplier initialized: {} Hz, {} channels, {} bits, frame size: {} bytes", 
-                    targetFormat.getSampleRate(), targetFormat.getChannels(), targetFormat.getSampleSizeInBits(), frameSize);
+                // Downmixed and resampled to 48kHz mono as it is read
+                reader = new MonoPcmReader(audioInputStream);
                 LOGGER.info("Simple Voice Chat expects 960 samples per frame (20ms at 48kHz)");
 
                 return true;
@@ -0,0 +1,199 @@
+package org.stepan.audio_disc.playback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces every legacy audio stream from a single thread. The thread wakes every
+ * 20ms against a monotonic deadline and sends each stream the chunks that are
+ * due, so timing does not drift and the thread count stays constant.
+ */
+public class StreamScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /**
+     * A stream falling further behind than this is resynchronised instead of sending a burst.
+     */
+    private static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private Worker worker; // guarded by this
+
+    /**
+     * A stream that sends one chunk per interval.
+     */
+    public interface PacedStream {
+        /**
+         * @return The time each chunk covers in nanoseconds
+         */
+        long getIntervalNanos();
+
+        /**
+         * Sends the next chunk.
+         *
+         * @return false once the stream has ended
+         * @throws Exception if sending fails; the stream is then closed
+         */
+        boolean sendNext() throws Exception;
+
+        /**
+         * Releases the stream's resources. Called once, when the stream ends or is removed.
+         */
+        void close();
+    }
+
+    /**
+     * Adds a stream, starting the scheduler thread if needed.
+     *
+     * @param id The stream identifier, used for logging
+     * @param stream The stream to pace
+     */
+    public void schedule(Object id, PacedStream stream) {
+        entries.add(new Entry(id, stream, System.nanoTime()));
+        ensureRunning();
+    }
+
+    private synchronized void ensureRunning() {
+        if (worker != null && worker.thread.isAlive()) {
+            LockSupport.unpark(worker.thread);
+            return;
+        }
+        worker = new Worker();
+        worker.thread.start();
+    }
+
+    /**
+     * Sends every chunk of a stream that is due.
+     */
+    private void service(Entry entry, long now) {
+        try {
+            if (now - entry.nextSend > MAX_LAG_NANOS) {
+                entry.nextSend = now;
+            }
+            while (now - entry.nextSend >= 0) {
+                if (!entry.stream.sendNext()) {
+                    remove(entry);
+                    return;
+                }
+                entry.nextSend += entry.stream.getIntervalNanos();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error streaming audio {}: {}", entry.id, e.getMessage());
+            remove(entry);
+        } catch (NoClassDefFoundError e) {
+            LOGGER.error("Audio library error (missing class) in stream {}: {}", entry.id, e.getMessage());
+            remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry)) {
+            close(entry);
+        }
+        // Otherwise shutdown took it, and the thread closes it on the way out
+    }
+
+    private static void close(Entry entry) {
+        try {
+            entry.stream.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing stream {}: {}", entry.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of streams being paced.
+     *
+     * @return The stream count
+     */
+    public int getStreamCount() {
+        return entries.size();
+    }
+
+    /**
+     * Stops the scheduler thread and closes every stream. The streams are closed by the
+     * thread itself once it stops, so none is closed while it is sending.
+     */
+    public synchronized void shutdown() {
+        List<Entry> stopped = new ArrayList<>(entries);
+        entries.removeAll(stopped);
+        if (worker != null && worker.thread.isAlive()) {
+            worker.stop(stopped);
+        } else {
+            stopped.forEach(StreamScheduler::close);
+        }
+        worker = null;
+    }
+
+    /**
+     * One scheduler thread. Each has its own run flag, so a thread that is still
+     * finishing a tick after shutdown never runs alongside the one replacing it.
+     */
+    private final class Worker implements Runnable {
+        private final Thread thread = new Thread(this, "AudioDisc-StreamScheduler");
+        private volatile List<Entry> stopped = List.of();
+        private volatile boolean running = true;
+
+        Worker() {
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Asks the thread to stop and close the given streams.
+         */
+        void stop(List<Entry> streams) {
+            stopped = streams;
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            long deadline = System.nanoTime();
+            while (running) {
+                if (entries.isEmpty()) {
+                    // Idle until a stream is scheduled
+                    LockSupport.park(this);
+                    deadline = System.nanoTime();
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                for (Entry entry : entries) {
+                    if (!running) {
+                        break;
+                    }
+                    service(entry, now);
+                }
+
+                deadline += TICK_NANOS;
+                long delay = deadline - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(this, delay);
+                } else if (-delay > MAX_LAG_NANOS) {
+                    deadline = System.nanoTime(); // Overloaded, skip the missed ticks
+                }
+            }
+            stopped.forEach(StreamScheduler::close);
+        }
+    }
+
+    private static class Entry {
+        private final Object id;
+        private final PacedStream stream;
+        private long nextSend;
+
+        Entry(Object id, PacedStream stream, long nextSend) {
+            this.id = id;
+            this.stream = stream;
+            this.nextSend = nextSend;
+        }
+    }
+}
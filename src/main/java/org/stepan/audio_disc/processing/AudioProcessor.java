@@ -4,15 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stepan.audio_disc.model.AudioMetadata;
 import org.stepan.audio_disc.model.ValidationResult;
+import org.stepan.audio_disc.playback.PcmDecoder;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Set;
 
 public class AudioProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger("AudioDisc");
     private static final Set<String> SUPPORTED_FORMATS = Set.of("mp3", "wav", "ogg", "webm", "m4a");
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
+    private static final int HEADER_SIZE = 64; // bytes read from a file for format detection and metadata
 
     // Magic numbers for format detection
     private static final byte[] MP3_MAGIC = {(byte) 0xFF, (byte) 0xFB}; // MP3 frame sync
@@ -31,15 +39,33 @@ public class AudioProcessor {
      * @return ValidationResult indicating success or failure with details
      */
     public ValidationResult validateFormat(byte[] audioData) {
-        if (audioData == null || audioData.length == 0) {
+        if (audioData == null) {
             return ValidationResult.failure("Audio data is empty");
         }
+        return validateFormat(audioData, audioData.length);
+    }
+
+    /**
+     * Validates the format of an audio file on disk, reading only its header.
+     *
+     * @param audioFile The audio file
+     * @return ValidationResult indicating success or failure with details
+     * @throws IOException if the file cannot be read
+     */
+    public ValidationResult validateFormat(Path audioFile) throws IOException {
+        return validateFormat(readHeader(audioFile), Files.size(audioFile));
+    }
 
-        if (audioData.length > MAX_FILE_SIZE) {
+    private ValidationResult validateFormat(byte[] header, long fileSize) {
+        if (fileSize == 0) {
+            return ValidationResult.failure("Audio data is empty");
+        }
+
+        if (fileSize > MAX_FILE_SIZE) {
             return ValidationResult.failure("File size exceeds maximum allowed size of 50MB");
         }
 
-        String detectedFormat = detectFormat(audioData);
+        String detectedFormat = detectFormat(header);
         if (detectedFormat == null) {
             return ValidationResult.failure("Unsupported or unrecognized audio format");
         }
@@ -52,6 +78,15 @@ public class AudioProcessor {
         return ValidationResult.success();
     }
 
+    /**
+     * Reads the first bytes of a file, enough for format detection and header metadata.
+     */
+    private static byte[] readHeader(Path audioFile) throws IOException {
+        try (InputStream input = Files.newInputStream(audioFile)) {
+            return input.readNBytes(HEADER_SIZE);
+        }
+    }
+
     /**
      * Detects the audio format based on magic numbers.
      *
@@ -159,19 +194,85 @@ public class AudioProcessor {
      * @return AudioMetadata containing format, duration, bitrate, etc.
      */
     public AudioMetadata extractMetadata(byte[] audioData) {
-        String format = detectFormat(audioData);
+        try {
+            return extractMetadata(audioData, ByteSource.of(ByteBuffer.wrap(audioData)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown for data in memory
+        }
+    }
+
+    /**
+     * Extracts metadata from an audio file on disk. Only the headers are read: MP3
+     * frame headers, or the container headers of OGG, M4A and WebM files, and the
+     * ID3v2 or Vorbis comment tags holding the title.
+     *
+     * @param audioFile The audio file
+     * @return AudioMetadata containing format, duration, bitrate, etc.
+     * @throws IOException if the file cannot be read
+     */
+    public AudioMetadata extractMetadata(Path audioFile) throws IOException {
+        byte[] header = readHeader(audioFile);
+        try (FileChannel channel = FileChannel.open(audioFile, StandardOpenOption.READ)) {
+            return extractMetadata(header, ByteSource.of(channel));
+        }
+    }
+
+    /**
+     * Reads the real stream properties of a compressed format from its headers.
+     *
+     * @return The stream properties, or null if the format has no parser or its headers cannot be read
+     */
+    private StreamInfo readStreamInfo(String format, ByteSource source) {
+        if (format == null) {
+            return null;
+        }
+        try {
+            return switch (format) {
+                case "mp3" -> Mp3FrameScanner.scan(source);
+                case "ogg" -> ContainerMetadataParser.readOgg(source);
+                case "m4a" -> ContainerMetadataParser.readM4a(source);
+                case "webm" -> ContainerMetadataParser.readWebm(source);
+                default -> null;
+            };
+        } catch (IOException | RuntimeException e) {
+            // Truncated or damaged headers: fall back to estimating from the file size
+            LOGGER.debug("Failed to read {} headers: {}", format, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Extracts metadata from the headers of an audio file.
+     *
+     * @param header The audio file, or at least its first {@link #HEADER_SIZE} bytes
+     * @param source The whole file
+     */
+    private AudioMetadata extractMetadata(byte[] header, ByteSource source) throws IOException {
+        String format = detectFormat(header);
         if (format == null) {
             format = "unknown";
         }
+        long fileSize = source.size();
+        StreamInfo stream = readStreamInfo(format, source);
 
         // Basic metadata extraction
         // For a full implementation, you would use libraries like JAudioTagger or similar
         // This is a simplified version that provides basic information
         
-        long duration = estimateDuration(audioData, format);
-        int bitrate = estimateBitrate(audioData, format);
-        int sampleRate = estimateSampleRate(audioData, format);
-        String title = extractTitle(audioData, format);
+        long duration;
+        int bitrate;
+        int sampleRate;
+        if (stream != null) {
+            duration = stream.durationMillis();
+            bitrate = stream.bitrate();
+            sampleRate = stream.sampleRate() > 0 ? stream.sampleRate() : estimateSampleRate(header, format);
+            LOGGER.debug("Read {} stream headers: {} channel(s)", format, stream.channels());
+        } else {
+            duration = estimateDuration(header, fileSize, format);
+            bitrate = estimateBitrate(header, format);
+            sampleRate = estimateSampleRate(header, format);
+        }
+        String title = readTitle(format, source);
 
         LOGGER.debug("Extracted metadata - Format: {}, Duration: {}ms, Bitrate: {}kbps", 
                     format, duration, bitrate);
@@ -183,26 +284,25 @@ public class AudioProcessor {
      * Estimates audio duration in milliseconds.
      * This is a simplified estimation. For accurate results, use proper audio libraries.
      */
-    private long estimateDuration(byte[] audioData, String format) {
+    private long estimateDuration(byte[] header, long fileSize, String format) {
         // Simplified estimation based on file size and typical bitrates
-        long fileSize = audioData.length;
-        
+
         switch (format) {
             case "mp3":
-                // Assume average bitrate of 128kbps
+                // No frames found by the scanner, assume average bitrate of 128kbps
                 return (fileSize * 8) / 128;
             case "ogg":
-                // Assume average bitrate of 128kbps
+                // Headers unreadable, assume average bitrate of 128kbps
                 return (fileSize * 8) / 128;
             case "m4a":
-                // M4A typically has good compression, assume 128kbps
+                // Headers unreadable, M4A typically has good compression, assume 128kbps
                 return (fileSize * 8) / 128;
             case "webm":
-                // WebM typically has good compression, assume 128kbps
+                // Headers unreadable, WebM typically has good compression, assume 128kbps
                 return (fileSize * 8) / 128;
             case "wav":
                 // WAV is uncompressed, calculate from header if possible
-                return estimateWavDuration(audioData);
+                return estimateWavDuration(header, fileSize);
             default:
                 return 0;
         }
@@ -211,19 +311,19 @@ public class AudioProcessor {
     /**
      * Estimates WAV file duration from header.
      */
-    private long estimateWavDuration(byte[] audioData) {
-        if (audioData.length < 44) {
+    private long estimateWavDuration(byte[] header, long fileSize) {
+        if (header.length < 44) {
             return 0;
         }
         
         try {
             // Read sample rate (bytes 24-27)
-            int sampleRate = readLittleEndianInt(audioData, 24);
+            int sampleRate = readLittleEndianInt(header, 24);
             // Read byte rate (bytes 28-31)
-            int byteRate = readLittleEndianInt(audioData, 28);
+            int byteRate = readLittleEndianInt(header, 28);
             
             if (byteRate > 0) {
-                long dataSize = audioData.length - 44; // Subtract header size
+                long dataSize = fileSize - 44; // Subtract header size
                 return (dataSize * 1000) / byteRate;
             }
         } catch (Exception e) {
@@ -246,7 +346,7 @@ public class AudioProcessor {
     /**
      * Estimates bitrate in kbps.
      */
-    private int estimateBitrate(byte[] audioData, String format) {
+    private int estimateBitrate(byte[] header, String format) {
         // Simplified estimation
         switch (format) {
             case "mp3":
@@ -264,10 +364,10 @@ public class AudioProcessor {
     /**
      * Estimates sample rate in Hz.
      */
-    private int estimateSampleRate(byte[] audioData, String format) {
-        if ("wav".equals(format) && audioData.length >= 28) {
+    private int estimateSampleRate(byte[] header, String format) {
+        if ("wav".equals(format) && header.length >= 28) {
             try {
-                return readLittleEndianInt(audioData, 24);
+                return readLittleEndianInt(header, 24);
             } catch (Exception e) {
                 LOGGER.warn("Failed to extract WAV sample rate: {}", e.getMessage());
             }
@@ -278,15 +378,25 @@ public class AudioProcessor {
     }
 
     /**
-     * Attempts to extract title from audio metadata.
+     * Reads the title from the ID3v2 tag of an MP3 file or the Vorbis comments of an
+     * OGG file, as "Artist - Title" when the artist is tagged too.
+     *
+     * @return The title, or "Custom Audio" if the file has no title tag
      */
-    private String extractTitle(byte[] audioData, String format) {
-        // Simplified - would need proper tag parsing libraries for full implementation
-        if ("mp3".equals(format) && startsWith(audioData, MP3_ID3)) {
-            // ID3 tag present, but parsing it properly requires a library
-            return "Custom Audio";
+    private String readTitle(String format, ByteSource source) {
+        TagReader.Tags tags = null;
+        try {
+            tags = switch (format) {
+                case "mp3" -> TagReader.readId3v2(source);
+                case "ogg" -> TagReader.readVorbisComments(source);
+                default -> null;
+            };
+        } catch (IOException | RuntimeException e) {
+            // Truncated or damaged tags: fall back to the default title
+            LOGGER.debug("Failed to read {} tags: {}", format, e.getMessage());
         }
-        return "Custom Audio";
+        String title = tags != null ? tags.displayTitle() : null;
+        return title != null ? title : "Custom Audio";
     }
 
     /**
@@ -306,6 +416,39 @@ public class AudioProcessor {
         return audioData;
     }
 
+    /**
+     * Decodes audio into a playback-ready PCM sidecar so the first playback does not
+     * have to decode the original file. Failures are logged and do not affect the upload;
+     * playback falls back to decoding the original file.
+     *
+     * @param audioData The stored audio data
+     * @param sidecar The sidecar file to write
+     * @return true if the sidecar was written
+     */
+    public boolean preparePlaybackSidecar(byte[] audioData, Path sidecar) {
+        return preparePlaybackSidecar(ByteBuffer.wrap(audioData), sidecar);
+    }
+
+    /**
+     * Decodes stored audio into a playback-ready PCM sidecar without copying it.
+     *
+     * @param audioData The stored audio data, for example a memory-mapped file
+     * @param sidecar The sidecar file to write
+     * @return true if the sidecar was written
+     */
+    public boolean preparePlaybackSidecar(ByteBuffer audioData, Path sidecar) {
+        long start = System.nanoTime();
+        try {
+            PcmDecoder.decodeToSidecar(audioData, sidecar);
+            LOGGER.debug("Wrote playback sidecar {} in {} ms", sidecar.getFileName(),
+                (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (Exception | NoClassDefFoundError e) {
+            LOGGER.warn("Failed to write playback sidecar {}: {}", sidecar.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Gets the set of supported audio formats.
      *
@@ -0,0 +1,153 @@
+package org.stepan.audio_disc.processing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access to the bytes of an audio file, either held in memory or read from
+ * disk through one reusable window, so header parsers can jump straight to the
+ * offsets they need without reading the whole file.
+ */
+abstract class ByteSource {
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * Reads a file held in memory.
+     *
+     * @param data The file; its remaining bytes are the file, its position is not changed
+     * @return The source
+     */
+    static ByteSource of(ByteBuffer data) {
+        return new BufferSource(data);
+    }
+
+    /**
+     * Reads a file on disk. The window is aligned to blocks of the file, so scanning
+     * forwards or backwards reads each block about once.
+     *
+     * @param channel The open file
+     * @return The source
+     * @throws IOException if the file size cannot be read
+     */
+    static ByteSource of(FileChannel channel) throws IOException {
+        return new ChannelSource(channel);
+    }
+
+    /**
+     * @return The file size in bytes
+     */
+    abstract long size();
+
+    /**
+     * @param position A position within the file
+     * @return The unsigned byte at the position
+     * @throws IOException if the file cannot be read
+     */
+    abstract int get(long position) throws IOException;
+
+    /**
+     * Reads a big-endian integer of up to 8 bytes.
+     *
+     * @return The value, or 0 if it extends past the end of the file
+     */
+    long readBigEndian(long position, int length) throws IOException {
+        if (position < 0 || position + length > size()) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | get(position + i);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a little-endian integer of up to 8 bytes.
+     *
+     * @return The value, or 0 if it extends past the end of the file
+     */
+    long readLittleEndian(long position, int length) throws IOException {
+        if (position < 0 || position + length > size()) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | get(position + i);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a 32-bit big-endian integer.
+     *
+     * @return The value, or 0 if it extends past the end of the file
+     */
+    int readInt(long position) throws IOException {
+        return (int) readBigEndian(position, 4);
+    }
+
+    private static class BufferSource extends ByteSource {
+        private final ByteBuffer data;
+        private final int base;
+        private final int size;
+
+        BufferSource(ByteBuffer data) {
+            this.data = data;
+            this.base = data.position();
+            this.size = data.remaining();
+        }
+
+        @Override
+        long size() {
+            return size;
+        }
+
+        @Override
+        int get(long position) {
+            return data.get(base + (int) position) & 0xFF;
+        }
+    }
+
+    private static class ChannelSource extends ByteSource {
+        private final FileChannel channel;
+        private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+        private final long size;
+        private long windowStart;
+
+        ChannelSource(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window.limit(0);
+        }
+
+        @Override
+        long size() {
+            return size;
+        }
+
+        @Override
+        int get(long position) throws IOException {
+            long offset = position - windowStart;
+            if (offset < 0 || offset >= window.limit()) {
+                fill(position - position % WINDOW_SIZE);
+                offset = position - windowStart;
+                if (offset >= window.limit()) {
+                    throw new IOException("Unexpected end of file at " + position);
+                }
+            }
+            return window.get((int) offset) & 0xFF;
+        }
+
+        private void fill(long start) throws IOException {
+            window.clear();
+            while (window.hasRemaining()) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    break;
+                }
+            }
+            window.flip();
+            windowStart = start;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.stepan.audio_disc.processing;
+
+import java.io.IOException;
+
+/**
+ * Reads duration, sample rate and channel count of OGG, M4A and WebM files from
+ * their container headers, without decoding any audio.
+ *
+ * <p>Each parser jumps straight to the structures it needs: the first and last OGG
+ * pages, the {@code moov} box of an MP4 file, or the {@code Info} and {@code Tracks}
+ * elements of a Matroska segment. Large media data in between is skipped by its
+ * declared size, so the cost depends on the header layout, not the file size.</p>
+ */
+final class ContainerMetadataParser {
+    // OGG
+    private static final int OGG_CAPTURE = 0x4F676753; // "OggS"
+    private static final int MAX_LAST_PAGE_SEARCH = 65307 + 27; // largest possible page plus a header
+
+    // MP4 box types
+    private static final int MOOV = 0x6D6F6F76;
+    private static final int MVHD = 0x6D766864;
+    private static final int TRAK = 0x7472616B;
+    private static final int MDIA = 0x6D646961;
+    private static final int MDHD = 0x6D646864;
+    private static final int HDLR = 0x68646C72;
+    private static final int MINF = 0x6D696E66;
+    private static final int STBL = 0x7374626C;
+    private static final int STSD = 0x73747364;
+    private static final int SOUN = 0x736F756E;
+
+    // Matroska element IDs
+    private static final long EBML = 0x1A45DFA3L;
+    private static final long SEGMENT = 0x18538067L;
+    private static final long INFO = 0x1549A966L;
+    private static final long TIMECODE_SCALE = 0x2AD7B1L;
+    private static final long DURATION = 0x4489L;
+    private static final long TRACKS = 0x1654AE6BL;
+    private static final long TRACK_ENTRY = 0xAEL;
+    private static final long TRACK_TYPE = 0x83L;
+    private static final long AUDIO = 0xE1L;
+    private static final long SAMPLING_FREQUENCY = 0xB5L;
+    private static final long CHANNELS = 0x9FL;
+    private static final int TRACK_TYPE_AUDIO = 2;
+
+    private ContainerMetadataParser() {
+    }
+
+    /**
+     * Reads an OGG Vorbis or Opus file: the rate and channels from the identification
+     * header on the first page, the duration from the granule position of the last page.
+     *
+     * @param source The file
+     * @return The stream properties, or null if they cannot be read
+     * @throws IOException if the file cannot be read
+     */
+    static StreamInfo readOgg(ByteSource source) throws IOException {
+        long size = source.size();
+        if (size < 28 || source.readInt(0) != OGG_CAPTURE) {
+            return null;
+        }
+
+        long serial = source.readLittleEndian(14, 4);
+        long packet = 27 + source.get(26); // After the segment table
+        int sampleRate;
+        int channels;
+        long preSkip = 0;
+        if (source.get(packet) == 1 && matches(source, packet + 1, "vorbis")) {
+            channels = source.get(packet + 11);
+            sampleRate = (int) source.readLittleEndian(packet + 12, 4);
+        } else if (matches(source, packet, "OpusHead")) {
+            channels = source.get(packet + 9);
+            preSkip = source.readLittleEndian(packet + 10, 2);
+            sampleRate = 48000; // Opus granule positions always count 48 kHz samples
+        } else {
+            return null;
+        }
+        if (sampleRate <= 0) {
+            return null;
+        }
+
+        // The last page of this stream holds the total sample count
+        long granule = -1;
+        long limit = Math.max(0, size - MAX_LAST_PAGE_SEARCH);
+        for (long position = size - 27; position >= limit && granule < 0; position--) {
+            if (source.get(position) == 'O' && source.readInt(position) == OGG_CAPTURE
+                    && source.readLittleEndian(position + 14, 4) == serial) {
+                granule = source.readLittleEndian(position + 6, 8); // -1 if no packet ends on the page
+            }
+        }
+        if (granule <= 0) {
+            return null;
+        }
+
+        long durationMillis = Math.max(0, granule - preSkip) * 1000 / sampleRate;
+        return StreamInfo.averaged(durationMillis, size, sampleRate, channels);
+    }
+
+    /**
+     * Reads an MP4/M4A file: the duration and rate from the sound track's {@code mdhd}
+     * and sample description, falling back to the movie's {@code mvhd} duration.
+     *
+     * @param source The file
+     * @return The stream properties, or null if they cannot be read
+     * @throws IOException if the file cannot be read
+     */
+    static StreamInfo readM4a(ByteSource source) throws IOException {
+        long size = source.size();
+        long moov = findBox(source, 0, size, MOOV);
+        if (moov < 0) {
+            return null;
+        }
+        long moovStart = boxContent(source, moov);
+        long moovEnd = boxEnd(source, moov, size);
+
+        long trak;
+        long position = moovStart;
+        while ((trak = findBox(source, position, moovEnd, TRAK)) >= 0) {
+            long trakEnd = boxEnd(source, trak, moovEnd);
+            long mdia = findBox(source, boxContent(source, trak), trakEnd, MDIA);
+            if (mdia >= 0) {
+                long mdiaStart = boxContent(source, mdia);
+                long mdiaEnd = boxEnd(source, mdia, trakEnd);
+                long hdlr = findBox(source, mdiaStart, mdiaEnd, HDLR);
+                long mdhd = findBox(source, mdiaStart, mdiaEnd, MDHD);
+                if (hdlr >= 0 && mdhd >= 0 && source.readInt(boxContent(source, hdlr) + 8) == SOUN) {
+                    long mdhdStart = boxContent(source, mdhd);
+                    long durationMillis = headerDurationMillis(source, mdhdStart);
+                    int sampleRate = (int) headerTimescale(source, mdhdStart); // The media timescale is normally the sample rate
+                    int channels = 0;
+
+                    long stsd = findPath(source, mdiaStart, mdiaEnd, MINF, STBL, STSD);
+                    if (stsd >= 0) {
+                        long entry = boxContent(source, stsd) + 8; // After version, flags and entry count
+                        channels = (int) source.readBigEndian(entry + 24, 2);
+                        int entryRate = (int) source.readBigEndian(entry + 32, 2); // Integer part of a 16.16 value
+                        if (entryRate > 0) {
+                            sampleRate = entryRate;
+                        }
+                    }
+                    if (durationMillis > 0) {
+                        return StreamInfo.averaged(durationMillis, size, sampleRate, channels);
+                    }
+                }
+            }
+            position = trakEnd;
+        }
+
+        // No sound track header: use the movie duration
+        long mvhd = findBox(source, moovStart, moovEnd, MVHD);
+        long durationMillis = mvhd < 0 ? 0 : headerDurationMillis(source, boxContent(source, mvhd));
+        return durationMillis > 0 ? StreamInfo.averaged(durationMillis, size, 0, 0) : null;
+    }
+
+    /**
+     * Reads a WebM/Matroska file: the duration from the segment {@code Info} and the
+     * rate and channels from the first audio track in {@code Tracks}.
+     *
+     * @param source The file
+     * @return The stream properties, or null if they cannot be read
+     * @throws IOException if the file cannot be read
+     */
+    static StreamInfo readWebm(ByteSource source) throws IOException {
+        long size = source.size();
+        Element element = new Element();
+        if (!element.read(source, 0) || element.id != EBML || element.dataSize < 0) {
+            return null;
+        }
+        if (!element.read(source, element.end()) || element.id != SEGMENT) {
+            return null;
+        }
+        long segmentEnd = element.dataSize < 0 ? size : Math.min(size, element.end());
+
+        double duration = -1;
+        long timecodeScale = 1_000_000; // nanoseconds per tick
+        double samplingFrequency = 0;
+        int channels = 0;
+        boolean haveInfo = false;
+        boolean haveTracks = false;
+
+        Element child = new Element();
+        Element track = new Element();
+        Element audio = new Element();
+        long position = element.dataStart;
+        while (position < segmentEnd && !(haveInfo && haveTracks) && element.read(source, position)) {
+            if (element.dataSize < 0) {
+                break; // An unknown-size cluster of a live stream: nothing after it can be reached by skipping
+            }
+
+            if (element.id == INFO) {
+                haveInfo = true;
+                for (long p = element.dataStart; p < element.end() && child.read(source, p); p = child.end()) {
+                    if (child.id == TIMECODE_SCALE) {
+                        timecodeScale = source.readBigEndian(child.dataStart, (int) child.dataSize);
+                    } else if (child.id == DURATION) {
+                        duration = readFloat(source, child);
+                    }
+                }
+            } else if (element.id == TRACKS) {
+                haveTracks = true;
+                for (long p = element.dataStart; p < element.end() && child.read(source, p) && samplingFrequency == 0; p = child.end()) {
+                    if (child.id != TRACK_ENTRY) {
+                        continue;
+                    }
+                    long type = 0;
+                    double frequency = 0;
+                    int trackChannels = 0;
+                    for (long t = child.dataStart; t < child.end() && track.read(source, t); t = track.end()) {
+                        if (track.id == TRACK_TYPE) {
+                            type = source.readBigEndian(track.dataStart, (int) track.dataSize);
+                        } else if (track.id == AUDIO) {
+                            for (long a = track.dataStart; a < track.end() && audio.read(source, a); a = audio.end()) {
+                                if (audio.id == SAMPLING_FREQUENCY) {
+                                    frequency = readFloat(source, audio);
+                                } else if (audio.id == CHANNELS) {
+                                    trackChannels = (int) source.readBigEndian(audio.dataStart, (int) audio.dataSize);
+                                }
+                            }
+                        }
+                    }
+                    if (type == TRACK_TYPE_AUDIO) {
+                        samplingFrequency = frequency > 0 ? frequency : 8000; // Matroska default
+                        channels = trackChannels > 0 ? trackChannels : 1; // Matroska default
+                    }
+                }
+            }
+            position = element.end();
+        }
+
+        if (duration <= 0 || timecodeScale <= 0) {
+            return null;
+        }
+        long durationMillis = (long) (duration * timecodeScale / 1_000_000);
+        return StreamInfo.averaged(durationMillis, size, (int) samplingFrequency, channels);
+    }
+
+    private static boolean matches(ByteSource source, long position, String text) throws IOException {
+        if (position + text.length() > source.size()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (source.get(position + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a box of the given type among the boxes between two positions.
+     *
+     * @return The position of the box, or -1 if not found
+     */
+    private static long findBox(ByteSource source, long from, long end, int type) throws IOException {
+        long position = from;
+        while (position + 8 <= end) {
+            long size = boxSize(source, position, end);
+            if (size < 8) {
+                return -1;
+            }
+            if (source.readInt(position + 4) == type) {
+                return position;
+            }
+            position += size;
+        }
+        return -1;
+    }
+
+    /**
+     * Follows a path of nested boxes.
+     *
+     * @return The position of the last box in the path, or -1 if not found
+     */
+    private static long findPath(ByteSource source, long from, long end, int... types) throws IOException {
+        long box = -1;
+        for (int type : types) {
+            box = findBox(source, from, end, type);
+            if (box < 0) {
+                return -1;
+            }
+            end = boxEnd(source, box, end);
+            from = boxContent(source, box);
+        }
+        return box;
+    }
+
+    private static long boxSize(ByteSource source, long box, long end) throws IOException {
+        long size = source.readInt(box) & 0xFFFFFFFFL;
+        if (size == 1) {
+            return source.readBigEndian(box + 8, 8); // 64-bit size
+        }
+        return size == 0 ? end - box : size; // 0 = up to the end
+    }
+
+    private static long boxContent(ByteSource source, long box) throws IOException {
+        return box + (source.readInt(box) == 1 ? 16 : 8);
+    }
+
+    private static long boxEnd(ByteSource source, long box, long end) throws IOException {
+        return Math.min(end, box + boxSize(source, box, end));
+    }
+
+    /**
+     * Reads the timescale of an {@code mvhd} or {@code mdhd} box, which share a layout.
+     */
+    private static long headerTimescale(ByteSource source, long content) throws IOException {
+        return source.readBigEndian(content + (source.get(content) == 1 ? 20 : 12), 4);
+    }
+
+    /**
+     * Reads the duration of an {@code mvhd} or {@code mdhd} box in milliseconds.
+     */
+    private static long headerDurationMillis(ByteSource source, long content) throws IOException {
+        boolean version1 = source.get(content) == 1;
+        long timescale = headerTimescale(source, content);
+        long duration = version1 ? source.readBigEndian(content + 24, 8) : source.readBigEndian(content + 16, 4);
+        if (timescale <= 0 || duration <= 0 || duration == 0xFFFFFFFFL) {
+            return 0; // Unknown
+        }
+        return duration * 1000 / timescale;
+    }
+
+    private static double readFloat(ByteSource source, Element element) throws IOException {
+        if (element.dataSize == 4) {
+            return Float.intBitsToFloat((int) source.readBigEndian(element.dataStart, 4));
+        }
+        if (element.dataSize == 8) {
+            return Double.longBitsToDouble(source.readBigEndian(element.dataStart, 8));
+        }
+        return 0;
+    }
+
+    /**
+     * The header of an EBML element, reused while walking the tree.
+     */
+    private static class Element {
+        long id;
+        long dataStart;
+        long dataSize; // -1 if unknown
+
+        /**
+         * Reads the element header at a position.
+         *
+         * @return false if there is no valid element header there
+         */
+        boolean read(ByteSource source, long position) throws IOException {
+            if (position >= source.size()) {
+                return false;
+            }
+            int idLength = vintLength(source.get(position));
+            if (idLength > 4 || position + idLength >= source.size()) {
+                return false;
+            }
+            id = source.readBigEndian(position, idLength);
+
+            long sizePosition = position + idLength;
+            int first = source.get(sizePosition);
+            int sizeLength = vintLength(first);
+            if (sizeLength > 8 || sizePosition + sizeLength > source.size()) {
+                return false;
+            }
+            long value = first & (0xFF >> sizeLength);
+            for (int i = 1; i < sizeLength; i++) {
+                value = (value << 8) | source.get(sizePosition + i);
+            }
+            dataStart = sizePosition + sizeLength;
+            dataSize = value == (1L << (7 * sizeLength)) - 1 ? -1 : value; // All ones means unknown
+            return true;
+        }
+
+        long end() {
+            return dataStart + Math.max(0, dataSize);
+        }
+
+        /**
+         * @return The length of a variable-length integer from its first byte, or 9 if invalid
+         */
+        private static int vintLength(int first) {
+            return first == 0 ? 9 : Integer.numberOfLeadingZeros(first) - 23;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.stepan.audio_disc.processing;
+
+import java.io.IOException;
+
+/**
+ * Reads the exact duration, average bitrate, sample rate and channel count of an
+ * MP3 file without decoding it.
+ *
+ * <p>If the first frame carries a Xing, Info or VBRI header, the frame count and
+ * stream size are taken from it. Otherwise every frame header is walked once, from
+ * one frame to the next by its computed length, which is exact for CBR and VBR
+ * alike. The walk allocates nothing per frame.</p>
+ */
+final class Mp3FrameScanner {
+    private static final int SYNC_SEARCH_LIMIT = 64 * 1024; // bytes searched for the first frame or after damage
+    private static final int STREAM_MASK = 0xFFFE0C00; // sync, version, layer and sample rate bits
+
+    // Bitrates in kbps by [table][index]: V1 L1, V1 L2, V1 L3, V2 L1, V2 L2/L3
+    private static final int[][] BITRATES = {
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    // Sample rates in Hz by [version bits][index]; version bits 1 are reserved
+    private static final int[][] SAMPLE_RATES = {
+        {11025, 12000, 8000},  // MPEG 2.5
+        {0, 0, 0},
+        {22050, 24000, 16000}, // MPEG 2
+        {44100, 48000, 32000}  // MPEG 1
+    };
+
+    private Mp3FrameScanner() {
+    }
+
+    /**
+     * Scans an MP3 file.
+     *
+     * @param source The file
+     * @return The stream properties, or null if no MPEG audio frames are found
+     * @throws IOException if the file cannot be read
+     */
+    static StreamInfo scan(ByteSource source) throws IOException {
+        long end = source.size();
+
+        // An ID3v1 tag takes the last 128 bytes
+        if (end >= 128 && source.get(end - 128) == 'T' && source.get(end - 127) == 'A' && source.get(end - 126) == 'G') {
+            end -= 128;
+        }
+
+        long first = findFrame(source, skipId3v2(source), end, 0);
+        if (first < 0) {
+            return null;
+        }
+
+        int header = source.readInt(first);
+        int version = (header >>> 19) & 3;
+        int sampleRate = SAMPLE_RATES[version][(header >>> 10) & 3];
+        int samplesPerFrame = samplesPerFrame(header);
+        boolean mono = ((header >>> 6) & 3) == 3;
+        int channels = mono ? 1 : 2;
+
+        // VBR info header in the first frame: Xing (VBR) or Info (CBR) after the side information, or VBRI at a fixed offset
+        int sideInfoSize = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        long tagPosition = first + 4 + sideInfoSize;
+        long frames = -1;
+        long bytes = -1;
+        int tag = source.readInt(tagPosition);
+        if (tag == 0x58696E67 || tag == 0x496E666F) { // "Xing", "Info"
+            int flags = source.readInt(tagPosition + 4);
+            long field = tagPosition + 8;
+            if ((flags & 1) != 0) {
+                frames = source.readInt(field) & 0xFFFFFFFFL;
+                field += 4;
+            }
+            if ((flags & 2) != 0) {
+                bytes = source.readInt(field) & 0xFFFFFFFFL;
+            }
+        } else if (source.readInt(first + 36) == 0x56425249) { // "VBRI"
+            bytes = source.readInt(first + 46) & 0xFFFFFFFFL;
+            frames = source.readInt(first + 50) & 0xFFFFFFFFL;
+        }
+
+        if (frames > 0) {
+            if (bytes <= 0 || bytes > end - first) {
+                bytes = end - first;
+            }
+            return result(frames * samplesPerFrame, bytes, sampleRate, channels);
+        }
+
+        // No usable info header: walk every frame
+        long totalSamples = 0;
+        long totalBytes = 0;
+        long count = 0;
+        long position = first;
+        while (position + 4 <= end) {
+            int frameHeader = source.readInt(position);
+            int length = (frameHeader & STREAM_MASK) == (header & STREAM_MASK) ? frameLength(frameHeader) : 0;
+            if (length <= 0) {
+                // Damaged data or a trailing tag: look for the next frame of the same stream
+                position = findFrame(source, position + 1, end, header);
+                if (position < 0) {
+                    break;
+                }
+                continue;
+            }
+            if (position + length > end) {
+                break; // Truncated last frame
+            }
+            totalSamples += samplesPerFrame;
+            totalBytes += length;
+            count++;
+            position += length;
+        }
+
+        return count == 0 ? null : result(totalSamples, totalBytes, sampleRate, channels);
+    }
+
+    private static StreamInfo result(long samples, long bytes, int sampleRate, int channels) {
+        long durationMillis = samples * 1000 / sampleRate;
+        int bitrate = samples == 0 ? 0 : (int) Math.round(bytes * 8.0 * sampleRate / samples / 1000);
+        return new StreamInfo(durationMillis, bitrate, sampleRate, channels);
+    }
+
+    /**
+     * Finds the position of audio data after an ID3v2 tag, or 0 if there is none.
+     */
+    private static long skipId3v2(ByteSource source) throws IOException {
+        if (source.size() < 10 || source.get(0) != 'I' || source.get(1) != 'D' || source.get(2) != '3') {
+            return 0;
+        }
+        // Size is syncsafe: 7 bits per byte
+        long size = ((long) source.get(6) << 21) | (source.get(7) << 14) | (source.get(8) << 7) | source.get(9);
+        boolean footer = (source.get(5) & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    /**
+     * Finds the next frame header that is followed by another frame header, or by the
+     * end of the data, so random sync-like bytes are not mistaken for a frame.
+     *
+     * @param stream A header of the same stream to match, or 0 to accept any stream
+     * @return The frame position, or -1 if none is found within the search limit
+     */
+    private static long findFrame(ByteSource source, long from, long end, int stream) throws IOException {
+        long limit = Math.min(end - 4, from + SYNC_SEARCH_LIMIT);
+        for (long position = from; position <= limit; position++) {
+            if (source.get(position) != 0xFF) {
+                continue;
+            }
+            int header = source.readInt(position);
+            if (stream != 0 && (header & STREAM_MASK) != (stream & STREAM_MASK)) {
+                continue;
+            }
+            int length = frameLength(header);
+            if (length <= 0) {
+                continue;
+            }
+            long next = position + length;
+            if (next + 4 > end) {
+                return position;
+            }
+            int nextHeader = source.readInt(next);
+            if ((nextHeader & STREAM_MASK) == (header & STREAM_MASK) && frameLength(nextHeader) > 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the length of a frame from its header.
+     *
+     * @return The frame length in bytes, or 0 if the header is not a valid frame header
+     */
+    private static int frameLength(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return 0;
+        }
+        int version = (header >>> 19) & 3;
+        int layer = (header >>> 17) & 3; // 3 = Layer I, 2 = Layer II, 1 = Layer III
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 3;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return 0; // Reserved values, or free format which has no computable length
+        }
+
+        int table = version == 3 ? 3 - layer : (layer == 3 ? 3 : 4);
+        int bitrate = BITRATES[table][bitrateIndex] * 1000;
+        int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+        int padding = (header >>> 9) & 1;
+        if (layer == 3) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return samplesPerFrame(header) / 8 * bitrate / sampleRate + padding;
+    }
+
+    private static int samplesPerFrame(int header) {
+        int version = (header >>> 19) & 3;
+        int layer = (header >>> 17) & 3;
+        if (layer == 3) {
+            return 384;
+        }
+        return layer == 1 && version != 3 ? 576 : 1152;
+    }
+}
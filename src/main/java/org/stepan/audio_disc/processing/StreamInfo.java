@@ -0,0 +1,25 @@
+package org.stepan.audio_disc.processing;
+
+/**
+ * Stream properties read from an audio file's headers.
+ *
+ * @param durationMillis Playing time in milliseconds
+ * @param bitrate Average bitrate in kbps
+ * @param sampleRate Sample rate in Hz
+ * @param channels Number of channels, or 0 if unknown
+ */
+record StreamInfo(long durationMillis, int bitrate, int sampleRate, int channels) {
+    /**
+     * Creates stream properties with the bitrate averaged over the whole file.
+     *
+     * @param durationMillis Playing time in milliseconds
+     * @param fileSize File size in bytes
+     * @param sampleRate Sample rate in Hz
+     * @param channels Number of channels, or 0 if unknown
+     * @return The stream properties
+     */
+    static StreamInfo averaged(long durationMillis, long fileSize, int sampleRate, int channels) {
+        int bitrate = durationMillis > 0 ? (int) (fileSize * 8 / durationMillis) : 0; // bits per millisecond = kbps
+        return new StreamInfo(durationMillis, bitrate, sampleRate, channels);
+    }
+}
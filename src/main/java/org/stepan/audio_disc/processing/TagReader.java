@@ -0,0 +1,384 @@
+package org.stepan.audio_disc.processing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the title and artist from the tags of an audio file: ID3v2 frames at the
+ * start of an MP3 file, or the Vorbis comment header of an OGG Vorbis or Opus file.
+ *
+ * <p>Only the tag region is read. Frames and comments other than the title and artist,
+ * such as embedded cover art, are skipped by their declared size.</p>
+ */
+final class TagReader {
+    private static final int MAX_TEXT_BYTES = 1024; // longer values are cut off
+    private static final int MAX_UNSYNCHRONISED_TAG = 256 * 1024; // ID3v2.3 tags decoded in memory
+    private static final int OGG_CAPTURE = 0x4F676753; // "OggS"
+
+    private TagReader() {
+    }
+
+    /**
+     * The text tags of an audio file.
+     *
+     * @param title The track title, or null if not tagged
+     * @param artist The artist, or null if not tagged
+     */
+    record Tags(String title, String artist) {
+        /**
+         * @return "Artist - Title", the title alone, or null if there is no title
+         */
+        String displayTitle() {
+            if (title == null) {
+                return null;
+            }
+            return artist != null ? artist + " - " + title : title;
+        }
+    }
+
+    /**
+     * Reads the {@code TIT2} and {@code TPE1} frames of an ID3v2.3 or v2.4 tag, or
+     * {@code TT2} and {@code TP1} of a v2.2 tag.
+     *
+     * @param source The file
+     * @return The tags, or null if the file does not start with an ID3v2 tag
+     * @throws IOException if the file cannot be read
+     */
+    static Tags readId3v2(ByteSource source) throws IOException {
+        if (source.size() < 10 || source.get(0) != 'I' || source.get(1) != 'D' || source.get(2) != '3') {
+            return null;
+        }
+        int version = source.get(3);
+        int flags = source.get(5);
+        if (version < 2 || version > 4) {
+            return null;
+        }
+        long end = Math.min(source.size(), 10 + syncsafe(source, 6));
+        long position = 10;
+
+        if (version < 4 && (flags & 0x80) != 0) {
+            // The whole tag is unsynchronised: decode it, then read the copy
+            int length = (int) Math.min(end - position, MAX_UNSYNCHRONISED_TAG);
+            byte[] decoded = resynchronise(source, position, length);
+            source = ByteSource.of(ByteBuffer.wrap(decoded));
+            position = 0;
+            end = source.size();
+        }
+        if (version > 2 && (flags & 0x40) != 0) {
+            // Extended header: v2.3 gives the size after the size field, v2.4 the whole size
+            position += version == 3 ? 4 + source.readBigEndian(position, 4) : syncsafe(source, position);
+        }
+
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+        String title = null;
+        String artist = null;
+        while (position + headerLength <= end && (title == null || artist == null)) {
+            if (source.get(position) == 0) {
+                break; // Padding
+            }
+            String id = readAscii(source, position, idLength);
+            long size = version == 2 ? source.readBigEndian(position + 3, 3)
+                : version == 4 ? syncsafe(source, position + 4) : source.readBigEndian(position + 4, 4);
+            long data = position + headerLength;
+            long dataEnd = Math.min(end, data + size);
+            position = data + size;
+
+            boolean isTitle = id.equals(version == 2 ? "TT2" : "TIT2");
+            boolean isArtist = id.equals(version == 2 ? "TP1" : "TPE1");
+            if (!isTitle && !isArtist) {
+                continue;
+            }
+            if (version > 2) {
+                int format = source.get(data - 1);
+                if (version == 4) {
+                    if ((format & 0x0E) != 0) {
+                        continue; // Compressed, encrypted or unsynchronised frame
+                    }
+                    if ((format & 0x40) != 0) {
+                        data += 1; // Group identifier, which comes before the data length indicator
+                    }
+                    if ((format & 0x01) != 0) {
+                        data += 4; // Data length indicator
+                    }
+                } else {
+                    if ((format & 0xC0) != 0) {
+                        continue; // Compressed or encrypted frame
+                    }
+                    if ((format & 0x20) != 0) {
+                        data += 1; // Group identifier
+                    }
+                }
+            }
+
+            String text = readText(source, data, dataEnd);
+            if (isTitle && title == null) {
+                title = text;
+            } else if (isArtist && artist == null) {
+                artist = text;
+            }
+        }
+        return new Tags(title, artist);
+    }
+
+    /**
+     * Reads the {@code TITLE} and {@code ARTIST} fields of the comment header of an
+     * OGG Vorbis or Opus file, which is the second packet of the stream.
+     *
+     * @param source The file
+     * @return The tags, or null if the file has no readable comment header
+     * @throws IOException if the file cannot be read
+     */
+    static Tags readVorbisComments(ByteSource source) throws IOException {
+        if (source.size() < 28 || source.readInt(0) != OGG_CAPTURE) {
+            return null;
+        }
+
+        // The identification header is alone on the first page, the comment header starts the second
+        long serial = source.readLittleEndian(14, 4);
+        int segments = source.get(26);
+        long secondPage = 27 + segments;
+        for (int i = 0; i < segments; i++) {
+            secondPage += source.get(27 + i);
+        }
+
+        OggPacketReader packet = new OggPacketReader(source, serial, secondPage);
+        int first = packet.read();
+        if (first == 3) {
+            if (!packet.matches("vorbis")) {
+                return null;
+            }
+        } else if (first != 'O' || !packet.matches("pusTags")) {
+            return null;
+        }
+
+        packet.skip(packet.readInt()); // Vendor string
+        long count = packet.readInt();
+        String title = null;
+        String artist = null;
+        for (long i = 0; i < count && (title == null || artist == null); i++) {
+            long length = packet.readInt();
+            if (length < 0) {
+                break; // End of packet
+            }
+            // Field names are short ASCII, so read up to the '=' before deciding whether the value is needed
+            StringBuilder name = new StringBuilder();
+            int b;
+            while (length > 0 && name.length() < 16 && (b = packet.read()) >= 0) {
+                length--;
+                if (b == '=') {
+                    break;
+                }
+                name.append((char) b);
+            }
+
+            String field = name.toString();
+            if (field.equalsIgnoreCase("TITLE") && title == null) {
+                title = packet.readText(length);
+            } else if (field.equalsIgnoreCase("ARTIST") && artist == null) {
+                artist = packet.readText(length);
+            } else {
+                packet.skip(length);
+            }
+        }
+        return new Tags(title, artist);
+    }
+
+    private static long syncsafe(ByteSource source, long position) throws IOException {
+        return ((long) source.get(position) << 21) | (source.get(position + 1) << 14)
+            | (source.get(position + 2) << 7) | source.get(position + 3);
+    }
+
+    /**
+     * Removes the zero bytes that unsynchronisation inserts after each 0xFF.
+     */
+    private static byte[] resynchronise(ByteSource source, long position, int length) throws IOException {
+        byte[] decoded = new byte[length];
+        int count = 0;
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+            int b = source.get(position + i);
+            if (!(previous == 0xFF && b == 0)) {
+                decoded[count++] = (byte) b;
+            }
+            previous = b;
+        }
+        return count == length ? decoded : Arrays.copyOf(decoded, count);
+    }
+
+    private static String readAscii(ByteSource source, long position, int length) throws IOException {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) source.get(position + i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Reads the first value of an ID3v2 text frame.
+     *
+     * @return The text, or null if it is empty
+     */
+    private static String readText(ByteSource source, long data, long end) throws IOException {
+        if (data >= end) {
+            return null;
+        }
+        int encoding = source.get(data);
+        int length = (int) Math.min(end - data - 1, MAX_TEXT_BYTES);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) source.get(data + 1 + i);
+        }
+
+        Charset charset = switch (encoding) {
+            case 1 -> StandardCharsets.UTF_16; // With byte order mark
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        // v2.4 separates multiple values with a terminator: keep the first
+        int terminator = length;
+        int width = encoding == 1 || encoding == 2 ? 2 : 1;
+        for (int i = 0; i + width <= length; i += width) {
+            if (bytes[i] == 0 && (width == 1 || bytes[i + 1] == 0)) {
+                terminator = i;
+                break;
+            }
+        }
+        return clean(new String(bytes, 0, terminator, charset));
+    }
+
+    private static String clean(String text) {
+        String trimmed = text.strip();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * Reads one packet of an OGG logical stream across page boundaries, following
+     * the lacing values so that skipped bytes are never read.
+     */
+    private static final class OggPacketReader {
+        private final ByteSource source;
+        private final long serial;
+        private long page = -1;          // position of the current page
+        private int segmentCount;
+        private int segment;             // index of the next lacing value
+        private long dataPosition;       // position of the next segment's data
+        private long position;           // position of the next byte in the current segment
+        private int remaining;           // bytes left in the current segment
+        private boolean lastSegment;     // the current segment ends the packet
+
+        OggPacketReader(ByteSource source, long serial, long firstPage) throws IOException {
+            this.source = source;
+            this.serial = serial;
+            openPage(firstPage);
+        }
+
+        /**
+         * @return The next byte of the packet, or -1 at its end
+         */
+        int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            remaining--;
+            return source.get(position++);
+        }
+
+        /**
+         * @return The next little-endian 32-bit value as unsigned, or -1 at the end of the packet
+         */
+        long readInt() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = read();
+                if (b < 0) {
+                    return -1;
+                }
+                value |= (long) b << (8 * i);
+            }
+            return value;
+        }
+
+        void skip(long count) throws IOException {
+            while (count > 0 && fill()) {
+                int step = (int) Math.min(count, remaining);
+                position += step;
+                remaining -= step;
+                count -= step;
+            }
+        }
+
+        boolean matches(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                if (read() != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reads a UTF-8 value, keeping at most {@link #MAX_TEXT_BYTES} of it.
+         */
+        String readText(long length) throws IOException {
+            byte[] bytes = new byte[(int) Math.min(length, MAX_TEXT_BYTES)];
+            int count = 0;
+            int b;
+            while (count < bytes.length && (b = read()) >= 0) {
+                bytes[count++] = (byte) b;
+            }
+            skip(length - count);
+            return clean(new String(bytes, 0, count, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Moves to the next segment with data if the current one is used up.
+         *
+         * @return false at the end of the packet or the file
+         */
+        private boolean fill() throws IOException {
+            while (remaining == 0) {
+                if (lastSegment || page < 0) {
+                    return false;
+                }
+                if (segment == segmentCount && !openPage(dataPosition)) {
+                    return false;
+                }
+                int lacing = source.get(page + 27 + segment++);
+                position = dataPosition;
+                remaining = lacing;
+                dataPosition += lacing;
+                lastSegment = lacing < 255;
+            }
+            return true;
+        }
+
+        /**
+         * Opens the first page of this stream at or after a position, skipping pages of
+         * other multiplexed streams.
+         */
+        private boolean openPage(long at) throws IOException {
+            while (at + 27 <= source.size() && source.readInt(at) == OGG_CAPTURE) {
+                int count = source.get(at + 26);
+                long data = at + 27 + count;
+                if (source.readLittleEndian(at + 14, 4) == serial) {
+                    page = at;
+                    segmentCount = count;
+                    segment = 0;
+                    dataPosition = data;
+                    return true;
+                }
+                for (int i = 0; i < count; i++) {
+                    data += source.get(at + 27 + i);
+                }
+                at = data;
+            }
+            page = -1;
+            return false;
+        }
+    }
+}
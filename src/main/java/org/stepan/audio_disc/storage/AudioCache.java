@@ -0,0 +1,159 @@
+package org.stepan.audio_disc.storage;
+
+import org.stepan.audio_disc.model.AudioData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte-budgeted cache of loaded audio files, weighted by file size. Entries are
+ * keyed by stored file, so uploads sharing the same content share one entry.
+ *
+ * <p>Lookups are lock-free: each entry records the tick of its last access from a
+ * shared counter. Only eviction takes a lock, and it removes the entries with the
+ * oldest access tick until the cache fits its budget again.</p>
+ */
+public class AudioCache {
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong currentBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxBytes Maximum total size of cached audio in bytes; 0 disables caching
+     */
+    public AudioCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a cached audio file.
+     *
+     * @param key The stored file key
+     * @return The cached audio, or null on a miss
+     */
+    public AudioData get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        hits.increment();
+        return entry.data;
+    }
+
+    /**
+     * Adds an audio file, evicting least recently used files if the budget is exceeded.
+     * Files larger than the whole budget are not cached.
+     *
+     * @param key The stored file key
+     * @param data The audio to cache
+     */
+    public void put(String key, AudioData data) {
+        long weight = data.getSize();
+        if (weight > maxBytes) {
+            return;
+        }
+
+        Entry entry = new Entry(data, weight, clock.incrementAndGet());
+        Entry previous = entries.put(key, entry);
+        currentBytes.addAndGet(weight - (previous != null ? previous.weight : 0));
+
+        if (currentBytes.get() > maxBytes) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Removes an audio file from the cache.
+     *
+     * @param key The stored file key
+     */
+    public void invalidate(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes.addAndGet(-removed.weight);
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits its budget.
+     *
+     * @param keep The entry just added, evicted only if nothing else remains
+     */
+    private void evict(Entry keep) {
+        synchronized (evictionLock) {
+            while (currentBytes.get() > maxBytes) {
+                Map.Entry<String, Entry> eldest = null;
+                for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                    if (candidate.getValue() == keep) {
+                        continue;
+                    }
+                    if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = candidate;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                    currentBytes.addAndGet(-eldest.getValue().weight);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics.
+     *
+     * @return The current statistics
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), currentBytes.get(), maxBytes);
+    }
+
+    /**
+     * Audio cache statistics.
+     *
+     * @param hits Lookups served from the cache
+     * @param misses Lookups that had to read from disk
+     * @param evictions Entries removed to stay within the budget
+     * @param entryCount Number of cached files
+     * @param currentBytes Total size of cached files
+     * @param maxBytes The byte budget
+     */
+    public record Stats(long hits, long misses, long evictions, int entryCount, long currentBytes, long maxBytes) {
+        /**
+         * Gets the fraction of lookups served from the cache.
+         *
+         * @return The hit rate between 0 and 1
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private static class Entry {
+        final AudioData data;
+        final long weight;
+        volatile long lastAccess;
+
+        Entry(AudioData data, long weight, long lastAccess) {
+            this.data = data;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -1,40 +1,58 @@
 package org.stepan.audio_disc.storage;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import net.minecraft.item.ItemStack;
 import org.stepan.audio_disc.Audio_disc;
 import org.stepan.audio_disc.model.AudioData;
 import org.stepan.audio_disc.model.AudioMetadata;
+import org.stepan.audio_disc.playback.OpusFrames;
+import org.stepan.audio_disc.playback.PcmDecoder;
 import org.stepan.audio_disc.util.NbtUtils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages persistent storage and retrieval of audio files.
+ *
+ * <p>Audio files are stored by the SHA-256 of their content. Every upload still gets
+ * its own audio ID and metadata entry, but identical uploads share one file on disk,
+ * one cache entry and one set of playback sidecars. A file is deleted once no
+ * metadata entry refers to it.</p>
  */
 public class AudioStorageManager {
     private static final String AUDIO_DIR = "audio";
+    private static final String INCOMING_DIR = "incoming";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
     private static final String METADATA_FILE = "metadata.json";
-    private static final int CACHE_SIZE = 50; // LRU cache size
+    private static final String METADATA_JOURNAL_FILE = "metadata.journal";
+    private static final int COMPACT_THRESHOLD = 500; // journal records before rewriting the snapshot
+    private static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
     
     private final Path storageDirectory;
     private final Path audioDirectory;
-    private final Path metadataFile;
-    private final Gson gson;
+    private final Path incomingDirectory;
+    private final MetadataJournal metadataJournal;
     
-    // LRU cache for frequently accessed audio
-    private final Map<String, AudioData> audioCache;
-    private final LinkedHashMap<String, Long> accessOrder;
+    // Byte-budgeted LRU cache for frequently accessed audio
+    private final AudioCache audioCache;
+    private final boolean memoryMapFiles;
     
     // Metadata index: audioId -> metadata info
     private final Map<String, MetadataEntry> metadataIndex;
+    
+    // Stored file key -> number of metadata entries referring to it, guarded by itself
+    private final Map<String, Integer> fileRefCounts = new HashMap<>();
 
     /**
      * Creates a new AudioStorageManager.
@@ -42,23 +60,26 @@ public class AudioStorageManager {
      * @param storageDirectory The base directory for audio storage
      */
     public AudioStorageManager(Path storageDirectory) {
+        this(storageDirectory, DEFAULT_CACHE_BYTES, true);
+    }
+
+    /**
+     * Creates a new AudioStorageManager.
+     * 
+     * @param storageDirectory The base directory for audio storage
+     * @param cacheBytes Memory budget for cached audio files in bytes
+     * @param memoryMapFiles Whether to memory-map audio files instead of reading them onto the heap
+     */
+    public AudioStorageManager(Path storageDirectory, long cacheBytes, boolean memoryMapFiles) {
         this.storageDirectory = storageDirectory;
         this.audioDirectory = storageDirectory.resolve(AUDIO_DIR);
-        this.metadataFile = storageDirectory.resolve(METADATA_FILE);
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.incomingDirectory = storageDirectory.resolve(INCOMING_DIR);
+        this.metadataJournal = new MetadataJournal(storageDirectory.resolve(METADATA_FILE),
+            storageDirectory.resolve(METADATA_JOURNAL_FILE));
         
         // Initialize LRU cache
-        this.audioCache = new ConcurrentHashMap<>();
-        this.accessOrder = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
-                if (size() > CACHE_SIZE) {
-                    audioCache.remove(eldest.getKey());
-                    return true;
-                }
-                return false;
-            }
-        };
+        this.audioCache = new AudioCache(cacheBytes);
+        this.memoryMapFiles = memoryMapFiles;
         
         this.metadataIndex = new ConcurrentHashMap<>();
         
@@ -72,41 +93,41 @@ public class AudioStorageManager {
     private void initializeStorage() {
         try {
             Files.createDirectories(audioDirectory);
+            Files.createDirectories(incomingDirectory);
             Audio_disc.LOGGER.info("Audio storage directory initialized at: {}", audioDirectory);
+            
+            // Uploads interrupted by a crash or restart are never completed
+            try (var leftovers = Files.list(incomingDirectory)) {
+                for (Path leftover : leftovers.toList()) {
+                    Files.deleteIfExists(leftover);
+                }
+            }
         } catch (IOException e) {
             Audio_disc.LOGGER.error("Failed to create audio storage directory", e);
         }
     }
 
     /**
-     * Loads the metadata index from disk.
+     * Loads the metadata index from disk: the last snapshot, then every change
+     * journaled since. A replayed journal is folded into a fresh snapshot.
      */
     private void loadMetadataIndex() {
-        if (!Files.exists(metadataFile)) {
-            Audio_disc.LOGGER.info("No existing metadata file found, starting fresh");
-            return;
-        }
-        
         try {
-            String json = Files.readString(metadataFile);
-            JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+            metadataJournal.loadSnapshot().entrySet().forEach(entry ->
+                metadataIndex.put(entry.getKey(), entryFromJson(entry.getValue().getAsJsonObject())));
             
-            root.entrySet().forEach(entry -> {
-                String audioId = entry.getKey();
-                JsonObject entryObj = entry.getValue().getAsJsonObject();
-                
-                MetadataEntry metadata = new MetadataEntry(
-                    entryObj.get("uploadedBy").getAsString(),
-                    entryObj.get("uploadTime").getAsLong(),
-                    entryObj.get("format").getAsString(),
-                    entryObj.get("duration").getAsLong(),
-                    entryObj.get("bitrate").getAsInt(),
-                    entryObj.get("sampleRate").getAsInt(),
-                    entryObj.get("title").getAsString()
-                );
-                
-                metadataIndex.put(audioId, metadata);
-            });
+            int replayed = metadataJournal.replay(
+                (audioId, entryObj) -> metadataIndex.put(audioId, entryFromJson(entryObj)),
+                metadataIndex::remove);
+            
+            if (replayed > 0) {
+                Audio_disc.LOGGER.info("Replayed {} metadata journal records", replayed);
+                saveMetadataIndex();
+            }
+            
+            synchronized (fileRefCounts) {
+                metadataIndex.forEach((audioId, entry) -> fileRefCounts.merge(fileKey(audioId, entry), 1, Integer::sum));
+            }
             
             Audio_disc.LOGGER.info("Loaded {} audio entries from metadata index", metadataIndex.size());
         } catch (Exception e) {
@@ -115,33 +136,89 @@ public class AudioStorageManager {
     }
 
     /**
-     * Saves the metadata index to disk.
+     * Writes the whole metadata index as a new snapshot and clears the journal.
      */
     private void saveMetadataIndex() {
         try {
-            JsonObject root = new JsonObject();
-            
-            metadataIndex.forEach((audioId, entry) -> {
-                JsonObject entryObj = new JsonObject();
-                entryObj.addProperty("uploadedBy", entry.uploadedBy);
-                entryObj.addProperty("uploadTime", entry.uploadTime);
-                entryObj.addProperty("format", entry.format);
-                entryObj.addProperty("duration", entry.duration);
-                entryObj.addProperty("bitrate", entry.bitrate);
-                entryObj.addProperty("sampleRate", entry.sampleRate);
-                entryObj.addProperty("title", entry.title);
-                
-                root.add(audioId, entryObj);
+            metadataJournal.compact(() -> {
+                JsonObject root = new JsonObject();
+                metadataIndex.forEach((audioId, entry) -> root.add(audioId, entryToJson(entry)));
+                return root;
             });
-            
-            Files.writeString(metadataFile, gson.toJson(root));
         } catch (IOException e) {
             Audio_disc.LOGGER.error("Failed to save metadata index", e);
         }
     }
 
     /**
-     * Stores audio data and returns a unique identifier.
+     * Journals an added or replaced metadata entry.
+     */
+    private void journalPut(String audioId, MetadataEntry entry) {
+        try {
+            metadataJournal.appendPut(audioId, entryToJson(entry));
+        } catch (IOException e) {
+            Audio_disc.LOGGER.error("Failed to journal metadata for {}", audioId, e);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Journals a removed metadata entry.
+     */
+    private void journalRemove(String audioId) {
+        try {
+            metadataJournal.appendRemove(audioId);
+        } catch (IOException e) {
+            Audio_disc.LOGGER.error("Failed to journal removal of {}", audioId, e);
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (metadataJournal.getPendingRecords() >= COMPACT_THRESHOLD) {
+            saveMetadataIndex();
+        }
+    }
+
+    private static JsonObject entryToJson(MetadataEntry entry) {
+        JsonObject entryObj = new JsonObject();
+        entryObj.addProperty("uploadedBy", entry.uploadedBy);
+        entryObj.addProperty("uploadTime", entry.uploadTime);
+        entryObj.addProperty("format", entry.format);
+        entryObj.addProperty("duration", entry.duration);
+        entryObj.addProperty("bitrate", entry.bitrate);
+        entryObj.addProperty("sampleRate", entry.sampleRate);
+        entryObj.addProperty("title", entry.title);
+        if (entry.contentHash != null) {
+            entryObj.addProperty("contentHash", entry.contentHash);
+        }
+        if (entry.fileSize >= 0) {
+            entryObj.addProperty("fileSize", entry.fileSize);
+        }
+        return entryObj;
+    }
+
+    private static MetadataEntry entryFromJson(JsonObject entryObj) {
+        MetadataEntry metadata = new MetadataEntry(
+            entryObj.get("uploadedBy").getAsString(),
+            entryObj.get("uploadTime").getAsLong(),
+            entryObj.get("format").getAsString(),
+            entryObj.get("duration").getAsLong(),
+            entryObj.get("bitrate").getAsInt(),
+            entryObj.get("sampleRate").getAsInt(),
+            entryObj.get("title").getAsString(),
+            entryObj.has("contentHash") ? entryObj.get("contentHash").getAsString() : null
+        );
+        
+        if (entryObj.has("fileSize")) {
+            metadata.fileSize = entryObj.get("fileSize").getAsLong();
+        }
+        return metadata;
+    }
+
+    /**
+     * Stores audio data and returns a unique identifier. If the same content is
+     * already stored, the new ID refers to the existing file.
      * 
      * @param audioData The raw audio bytes
      * @param metadata The audio metadata
@@ -150,44 +227,163 @@ public class AudioStorageManager {
      * @throws IOException if storage fails
      */
     public String storeAudio(byte[] audioData, AudioMetadata metadata, String uploadedBy) throws IOException {
+        return store(sha256(audioData), audioData.length, metadata, uploadedBy, audioFile -> {
+            // Write to a temporary file first so a crash never leaves a partial file under the hash
+            Path tempFile = audioFile.resolveSibling(audioFile.getFileName() + ".tmp");
+            Files.write(tempFile, audioData);
+            Files.move(tempFile, audioFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        });
+    }
+
+    /**
+     * Stores an audio file by moving it into storage, without reading it into memory.
+     * The source file is consumed: it is moved, or deleted if the same content is
+     * already stored.
+     * 
+     * @param sourceFile The audio file, preferably created with {@link #newIncomingFile()}
+     * @param metadata The audio metadata
+     * @param uploadedBy The username of the uploader
+     * @return The unique audio ID
+     * @throws IOException if storage fails
+     */
+    public String storeAudio(Path sourceFile, AudioMetadata metadata, String uploadedBy) throws IOException {
+        String audioId = store(sha256(sourceFile), Files.size(sourceFile), metadata, uploadedBy,
+            audioFile -> moveIntoPlace(sourceFile, audioFile));
+        Files.deleteIfExists(sourceFile);
+        return audioId;
+    }
+
+    /**
+     * Adds a metadata entry for stored content, writing the file only if the
+     * content is not stored yet.
+     */
+    private String store(String contentHash, long fileSize, AudioMetadata metadata, String uploadedBy,
+                         ContentWriter writer) throws IOException {
         String audioId = UUID.randomUUID().toString();
         long uploadTime = System.currentTimeMillis();
         
-        // Determine file extension from format
-        String extension = metadata.format().toLowerCase();
-        Path audioFile = audioDirectory.resolve(audioId + "." + extension);
-        
-        // Write audio file
-        Files.write(audioFile, audioData);
-        
-        // Create AudioData object
-        AudioData data = new AudioData(audioId, audioData, metadata, uploadedBy, uploadTime);
-        
-        // Add to cache
-        synchronized (accessOrder) {
-            audioCache.put(audioId, data);
-            accessOrder.put(audioId, System.currentTimeMillis());
-        }
-        
-        // Add to metadata index
-        metadataIndex.put(audioId, new MetadataEntry(
+        MetadataEntry entry = new MetadataEntry(
             uploadedBy,
             uploadTime,
             metadata.format(),
             metadata.duration(),
             metadata.bitrate(),
             metadata.sampleRate(),
-            metadata.title()
-        ));
+            metadata.title(),
+            contentHash
+        );
+        entry.fileSize = fileSize;
+        
+        String fileKey = fileKey(audioId, entry);
+        Path audioFile = getAudioFile(audioId, entry);
+        
+        synchronized (fileRefCounts) {
+            if (Files.exists(audioFile)) {
+                Audio_disc.LOGGER.info("Audio content already stored, sharing file {}", audioFile.getFileName());
+            } else {
+                writer.write(audioFile);
+            }
+            
+            // Add to metadata index
+            metadataIndex.put(audioId, entry);
+            fileRefCounts.merge(fileKey, 1, Integer::sum);
+        }
         
-        // Save metadata index
-        saveMetadataIndex();
+        // Journal the new entry
+        journalPut(audioId, entry);
+        
+        // Add to cache, sharing the buffer of an already cached copy
+        AudioData cached = audioCache.get(fileKey);
+        ByteBuffer buffer = cached != null ? cached.getBuffer() : readAudioFile(audioFile);
+        audioCache.put(fileKey, new AudioData(audioId, buffer, metadata, uploadedBy, uploadTime));
         
         Audio_disc.LOGGER.info("Stored audio file: {} ({})", audioId, metadata.title());
         
         return audioId;
     }
 
+    /**
+     * Adds a new audio ID for content that is already stored, without reading or
+     * writing the file. The new entry copies the metadata of the existing one.
+     * 
+     * @param audioId An audio ID holding the content
+     * @param uploadedBy The username of the uploader
+     * @return The new audio ID, or empty if the existing audio is gone
+     */
+    public Optional<String> shareAudio(String audioId, String uploadedBy) {
+        MetadataEntry source = audioId == null ? null : metadataIndex.get(audioId);
+        if (source == null || source.contentHash == null) {
+            return Optional.empty();
+        }
+        
+        String newAudioId = UUID.randomUUID().toString();
+        MetadataEntry entry = new MetadataEntry(
+            uploadedBy,
+            System.currentTimeMillis(),
+            source.format,
+            source.duration,
+            source.bitrate,
+            source.sampleRate,
+            source.title,
+            source.contentHash
+        );
+        entry.fileSize = source.fileSize;
+        
+        synchronized (fileRefCounts) {
+            if (!Files.exists(getAudioFile(newAudioId, entry))) {
+                return Optional.empty();
+            }
+            metadataIndex.put(newAudioId, entry);
+            fileRefCounts.merge(fileKey(newAudioId, entry), 1, Integer::sum);
+        }
+        
+        journalPut(newAudioId, entry);
+        Audio_disc.LOGGER.info("Shared stored audio {} as {} ({})", audioId, newAudioId, entry.title);
+        
+        return Optional.of(newAudioId);
+    }
+
+    /**
+     * Gets the SHA-256 of a stored audio file's content.
+     * 
+     * @param audioId The unique audio identifier
+     * @return The content hash, or empty if the audio is not found or predates content hashing
+     */
+    public Optional<String> getContentHash(String audioId) {
+        if (audioId == null || audioId.isBlank()) {
+            return Optional.empty();
+        }
+        
+        MetadataEntry entry = metadataIndex.get(audioId);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.contentHash);
+    }
+
+    /**
+     * Moves a file into the audio directory atomically, copying it first if it is
+     * on another file system.
+     */
+    private static void moveIntoPlace(Path sourceFile, Path audioFile) throws IOException {
+        try {
+            Files.move(sourceFile, audioFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path tempFile = audioFile.resolveSibling(audioFile.getFileName() + ".tmp");
+            Files.copy(sourceFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, audioFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Creates an empty file for an incoming upload, on the same file system as the
+     * audio directory so {@link #storeAudio(Path, AudioMetadata, String)} can move it
+     * into place. Files left over from a crash are removed on the next start.
+     * 
+     * @return The new file
+     * @throws IOException if the file cannot be created
+     */
+    public Path newIncomingFile() throws IOException {
+        return Files.createTempFile(incomingDirectory, "upload-", ".part");
+    }
+
     /**
      * Retrieves audio data by ID.
      * 
@@ -199,24 +395,33 @@ public class AudioStorageManager {
             return Optional.empty();
         }
         
-        // Check cache first
-        AudioData cached = audioCache.get(audioId);
-        if (cached != null) {
-            synchronized (accessOrder) {
-                accessOrder.put(audioId, System.currentTimeMillis());
-            }
-            return Optional.of(cached);
-        }
-        
         // Check if metadata exists
         MetadataEntry metadataEntry = metadataIndex.get(audioId);
         if (metadataEntry == null) {
             return Optional.empty();
         }
         
+        AudioMetadata metadata = new AudioMetadata(
+            metadataEntry.format,
+            metadataEntry.duration,
+            metadataEntry.bitrate,
+            metadataEntry.sampleRate,
+            metadataEntry.title
+        );
+        
+        // Check cache first; another upload of the same content shares its buffer
+        String fileKey = fileKey(audioId, metadataEntry);
+        AudioData cached = audioCache.get(fileKey);
+        if (cached != null) {
+            if (cached.getId().equals(audioId)) {
+                return Optional.of(cached);
+            }
+            return Optional.of(new AudioData(audioId, cached.getBuffer(), metadata,
+                metadataEntry.uploadedBy, metadataEntry.uploadTime));
+        }
+        
         // Load from disk
-        String extension = metadataEntry.format.toLowerCase();
-        Path audioFile = audioDirectory.resolve(audioId + "." + extension);
+        Path audioFile = getAudioFile(audioId, metadataEntry);
         
         if (!Files.exists(audioFile)) {
             Audio_disc.LOGGER.warn("Audio file not found: {}", audioId);
@@ -224,28 +429,16 @@ public class AudioStorageManager {
         }
         
         try {
-            byte[] audioData = Files.readAllBytes(audioFile);
-            AudioMetadata metadata = new AudioMetadata(
-                metadataEntry.format,
-                metadataEntry.duration,
-                metadataEntry.bitrate,
-                metadataEntry.sampleRate,
-                metadataEntry.title
-            );
-            
             AudioData data = new AudioData(
                 audioId,
-                audioData,
+                readAudioFile(audioFile),
                 metadata,
                 metadataEntry.uploadedBy,
                 metadataEntry.uploadTime
             );
             
             // Add to cache
-            synchronized (accessOrder) {
-                audioCache.put(audioId, data);
-                accessOrder.put(audioId, System.currentTimeMillis());
-            }
+            audioCache.put(fileKey, data);
             
             return Optional.of(data);
         } catch (IOException e) {
@@ -254,6 +447,141 @@ public class AudioStorageManager {
         }
     }
 
+    /**
+     * Gets the metadata of a stored audio file without loading the audio itself.
+     * 
+     * @param audioId The unique audio identifier
+     * @return An Optional containing the metadata if found, empty otherwise
+     */
+    public Optional<AudioMetadata> getMetadata(String audioId) {
+        if (audioId == null || audioId.isBlank()) {
+            return Optional.empty();
+        }
+        
+        MetadataEntry entry = metadataIndex.get(audioId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        
+        return Optional.of(new AudioMetadata(
+            entry.format,
+            entry.duration,
+            entry.bitrate,
+            entry.sampleRate,
+            entry.title
+        ));
+    }
+
+    /**
+     * Gets the name of the player who uploaded an audio file.
+     * 
+     * @param audioId The unique audio identifier
+     * @return An Optional containing the uploader if found, empty otherwise
+     */
+    public Optional<String> getUploadedBy(String audioId) {
+        if (audioId == null || audioId.isBlank()) {
+            return Optional.empty();
+        }
+        
+        MetadataEntry entry = metadataIndex.get(audioId);
+        return entry == null ? Optional.empty() : Optional.of(entry.uploadedBy);
+    }
+
+    /**
+     * Gets the size of a stored audio file without reading it. The size is recorded
+     * at upload time; for older entries it is read from the file system once and cached.
+     * 
+     * @param audioId The unique audio identifier
+     * @return The file size in bytes, or empty if the audio is not found
+     */
+    public OptionalLong getStoredSize(String audioId) {
+        if (audioId == null || audioId.isBlank()) {
+            return OptionalLong.empty();
+        }
+        
+        MetadataEntry entry = metadataIndex.get(audioId);
+        if (entry == null) {
+            return OptionalLong.empty();
+        }
+        
+        if (entry.fileSize < 0) {
+            try {
+                entry.fileSize = Files.size(getAudioFile(audioId, entry));
+            } catch (IOException e) {
+                Audio_disc.LOGGER.warn("Audio file not found: {}", audioId);
+                return OptionalLong.empty();
+            }
+        }
+        
+        return OptionalLong.of(entry.fileSize);
+    }
+
+    /**
+     * Gets the key of the file an entry is stored in: its content hash, or its
+     * audio ID for entries stored before files were content-addressed.
+     */
+    private static String fileKey(String audioId, MetadataEntry entry) {
+        return entry.contentHash != null ? entry.contentHash : audioId;
+    }
+
+    private Path getAudioFile(String audioId, MetadataEntry entry) {
+        return audioDirectory.resolve(fileKey(audioId, entry) + "." + entry.format.toLowerCase());
+    }
+
+    /**
+     * Gets the file key for an audio ID, falling back to the ID itself if it is unknown.
+     */
+    private String fileKey(String audioId) {
+        MetadataEntry entry = metadataIndex.get(audioId);
+        return entry != null ? fileKey(audioId, entry) : audioId;
+    }
+
+    private static String sha256(byte[] data) {
+        MessageDigest digest = newSha256();
+        return HexFormat.of().formatHex(digest.digest(data));
+    }
+
+    /**
+     * Hashes a file through a fixed-size buffer.
+     */
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads a stored audio file, memory-mapping it when enabled so the file is
+     * shared through the OS page cache instead of being copied onto the heap.
+     * 
+     * @param audioFile The audio file
+     * @return A buffer holding the whole file
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer readAudioFile(Path audioFile) throws IOException {
+        if (!memoryMapFiles) {
+            return ByteBuffer.wrap(Files.readAllBytes(audioFile));
+        }
+        try (FileChannel channel = FileChannel.open(audioFile, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
     /**
      * Attaches audio to a music disc item.
      * 
@@ -323,6 +651,39 @@ public class AudioStorageManager {
         NbtUtils.setCustomTitle(disc, customTitle);
     }
 
+    /**
+     * Gets the key of the file an audio ID is stored in. Uploads of the same content
+     * share one key, so playback caches keyed by it share one entry per file.
+     * 
+     * @param audioId The audio ID
+     * @return The content hash, or the audio ID for files stored before content hashing
+     */
+    public String getFileKey(String audioId) {
+        return fileKey(audioId);
+    }
+
+    /**
+     * Gets the path of the playback-ready PCM sidecar for an audio file.
+     * The file may not exist yet, and is shared by uploads of the same content.
+     * 
+     * @param audioId The audio ID
+     * @return The sidecar path next to the original audio file
+     */
+    public Path getPlaybackSidecarPath(String audioId) {
+        return audioDirectory.resolve(fileKey(audioId) + "." + PcmDecoder.SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Gets the path of the pre-encoded Opus frame container for an audio file.
+     * The file may not exist yet, and is shared by uploads of the same content.
+     * 
+     * @param audioId The audio ID
+     * @return The container path next to the original audio file
+     */
+    public Path getOpusFramesPath(String audioId) {
+        return audioDirectory.resolve(fileKey(audioId) + "." + OpusFrames.CONTAINER_EXTENSION);
+    }
+
     /**
      * Cleans up unused audio files.
      * This method should be called periodically to remove orphaned files.
@@ -333,43 +694,59 @@ public class AudioStorageManager {
     public int cleanup(Set<String> referencedAudioIds) {
         int removedCount = 0;
         
-        try {
-            // Get all audio IDs from metadata index
-            Set<String> allAudioIds = new HashSet<>(metadataIndex.keySet());
-            
-            // Find orphaned audio IDs
-            Set<String> orphanedIds = new HashSet<>(allAudioIds);
-            orphanedIds.removeAll(referencedAudioIds);
+        // Get all audio IDs from metadata index
+        Set<String> allAudioIds = new HashSet<>(metadataIndex.keySet());
+        
+        // Find orphaned audio IDs
+        Set<String> orphanedIds = new HashSet<>(allAudioIds);
+        orphanedIds.removeAll(referencedAudioIds);
+        
+        // Remove orphaned entries, and files no other entry refers to
+        for (String audioId : orphanedIds) {
+            MetadataEntry entry = metadataIndex.get(audioId);
+            if (entry == null) {
+                continue;
+            }
+            String fileKey = fileKey(audioId, entry);
+            Path sidecar = getPlaybackSidecarPath(audioId);
+            Path opusFrames = getOpusFramesPath(audioId);
             
-            // Remove orphaned files
-            for (String audioId : orphanedIds) {
-                MetadataEntry entry = metadataIndex.get(audioId);
-                if (entry != null) {
-                    String extension = entry.format.toLowerCase();
-                    Path audioFile = audioDirectory.resolve(audioId + "." + extension);
+            synchronized (fileRefCounts) {
+                if (metadataIndex.get(audioId) != entry) {
+                    continue;
+                }
+                
+                if (fileRefCounts.getOrDefault(fileKey, 0) <= 1) {
+                    // Drop cached mappings before deleting the file
+                    audioCache.invalidate(fileKey);
                     
-                    if (Files.exists(audioFile)) {
-                        Files.delete(audioFile);
-                        removedCount++;
+                    // The entry is only removed once its files are gone, so a file that cannot
+                    // be deleted yet (such as one still mapped on Windows) is retried next time
+                    Path audioFile = getAudioFile(audioId, entry);
+                    try {
+                        Files.deleteIfExists(sidecar);
+                        Files.deleteIfExists(opusFrames);
+                        if (Files.deleteIfExists(audioFile)) {
+                            removedCount++;
+                        }
+                    } catch (IOException e) {
+                        Audio_disc.LOGGER.warn("Could not delete files of audio {}, will retry on the next cleanup: {}",
+                            audioId, e.getMessage());
+                        continue;
                     }
+                    fileRefCounts.remove(fileKey);
+                } else {
+                    fileRefCounts.merge(fileKey, -1, Integer::sum); // Still shared with another upload
                 }
                 
                 // Remove from metadata index
                 metadataIndex.remove(audioId);
-                
-                // Remove from cache
-                audioCache.remove(audioId);
-                synchronized (accessOrder) {
-                    accessOrder.remove(audioId);
-                }
+                journalRemove(audioId);
             }
-            
-            if (removedCount > 0) {
-                saveMetadataIndex();
-                Audio_disc.LOGGER.info("Cleaned up {} unused audio files", removedCount);
-            }
-        } catch (IOException e) {
-            Audio_disc.LOGGER.error("Error during cleanup", e);
+        }
+        
+        if (removedCount > 0) {
+            Audio_disc.LOGGER.info("Cleaned up {} unused audio files", removedCount);
         }
         
         return removedCount;
@@ -393,6 +770,25 @@ public class AudioStorageManager {
         return new HashSet<>(metadataIndex.keySet());
     }
 
+    /**
+     * Gets hit, miss and eviction statistics for the audio cache.
+     * 
+     * @return The cache statistics
+     */
+    public AudioCache.Stats getCacheStats() {
+        return audioCache.getStats();
+    }
+
+    /**
+     * Folds the metadata journal into a fresh snapshot. Called on shutdown so the
+     * next start does not have to replay it.
+     */
+    public void shutdown() {
+        if (metadataJournal.getPendingRecords() > 0) {
+            saveMetadataIndex();
+        }
+    }
+
     /**
      * Internal class for storing metadata index entries.
      */
@@ -404,9 +800,11 @@ public class AudioStorageManager {
         final int bitrate;
         final int sampleRate;
         final String title;
+        final String contentHash; // null for files stored under their audio ID
+        volatile long fileSize = -1; // -1 until known
 
         MetadataEntry(String uploadedBy, long uploadTime, String format, long duration,
-                     int bitrate, int sampleRate, String title) {
+                     int bitrate, int sampleRate, String title, String contentHash) {
             this.uploadedBy = uploadedBy;
             this.uploadTime = uploadTime;
             this.format = format;
@@ -414,6 +812,15 @@ public class AudioStorageManager {
             this.bitrate = bitrate;
             this.sampleRate = sampleRate;
             this.title = title;
+            this.contentHash = contentHash;
         }
     }
+
+    /**
+     * Writes new content to its file in the audio directory.
+     */
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(Path audioFile) throws IOException;
+    }
 }
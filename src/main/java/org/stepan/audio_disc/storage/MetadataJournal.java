@@ -0,0 +1,174 @@
+package org.stepan.audio_disc.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.stepan.audio_disc.Audio_disc;
+import org.stepan.audio_disc.util.DurableFiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Crash-safe persistence for the metadata index: a JSON snapshot plus an append-only
+ * journal of changes made since the snapshot, one JSON object per line.
+ *
+ * <p>Each change costs a single appended line. The journal is folded into a new
+ * snapshot once it grows large; the snapshot is written to a temporary file and
+ * moved into place, so a crash never leaves a half-written index.</p>
+ */
+public class MetadataJournal {
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Gson snapshotGson = new GsonBuilder().setPrettyPrinting().create();
+    private final Gson journalGson = new Gson();
+    private int pendingRecords; // guarded by this
+
+    /**
+     * Creates a journal.
+     *
+     * @param snapshotFile The snapshot file, in the same format as the original metadata.json
+     * @param journalFile The journal file
+     */
+    public MetadataJournal(Path snapshotFile, Path journalFile) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Reads the snapshot.
+     *
+     * @return The snapshot root, mapping audio IDs to entries; empty if there is no snapshot
+     * @throws IOException if the snapshot cannot be read
+     */
+    public JsonObject loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return new JsonObject();
+        }
+        return JsonParser.parseString(Files.readString(snapshotFile)).getAsJsonObject();
+    }
+
+    /**
+     * Replays the journal on top of a loaded snapshot. A torn last line left by a
+     * crash is ignored.
+     *
+     * @param onPut Called for each added or replaced entry
+     * @param onRemove Called for each removed audio ID
+     * @return The number of records replayed
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized int replay(BiConsumer<String, JsonObject> onPut, Consumer<String> onRemove) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonObject record;
+                try {
+                    record = JsonParser.parseString(line).getAsJsonObject();
+                } catch (Exception e) {
+                    Audio_disc.LOGGER.warn("Skipping damaged metadata journal record: {}", e.getMessage());
+                    continue;
+                }
+
+                String audioId = record.get("id").getAsString();
+                if (OP_REMOVE.equals(record.get("op").getAsString())) {
+                    onRemove.accept(audioId);
+                } else {
+                    onPut.accept(audioId, record.getAsJsonObject("entry"));
+                }
+                records++;
+            }
+        }
+        pendingRecords = records;
+        return records;
+    }
+
+    /**
+     * Records an added or replaced entry.
+     *
+     * @param audioId The audio ID
+     * @param entry The serialized entry
+     * @throws IOException if the record cannot be written
+     */
+    public void appendPut(String audioId, JsonObject entry) throws IOException {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", OP_PUT);
+        record.addProperty("id", audioId);
+        record.add("entry", entry);
+        append(record);
+    }
+
+    /**
+     * Records a removed entry.
+     *
+     * @param audioId The audio ID
+     * @throws IOException if the record cannot be written
+     */
+    public void appendRemove(String audioId) throws IOException {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", OP_REMOVE);
+        record.addProperty("id", audioId);
+        append(record);
+    }
+
+    private synchronized void append(JsonObject record) throws IOException {
+        byte[] line = (journalGson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        pendingRecords++;
+    }
+
+    /**
+     * Writes a new snapshot and clears the journal. If the process stops between the
+     * two steps, replaying the old journal over the new snapshot gives the same result.
+     *
+     * <p>The index is serialized while appends are blocked. Callers update the index
+     * before appending, so every record being discarded is already in the snapshot.</p>
+     *
+     * @param index Serializes the full index, mapping audio IDs to entries
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void compact(Supplier<JsonObject> index) throws IOException {
+        JsonObject root = index.get();
+        // The snapshot must be on disk before the journal it replaces is deleted
+        DurableFiles.replace(snapshotFile, snapshotGson.toJson(root).getBytes(StandardCharsets.UTF_8));
+        Files.deleteIfExists(journalFile);
+        DurableFiles.syncDirectory(journalFile.toAbsolutePath().getParent());
+        pendingRecords = 0;
+    }
+
+    /**
+     * Gets the number of records written since the last compaction.
+     *
+     * @return The journal length in records
+     */
+    public synchronized int getPendingRecords() {
+        return pendingRecords;
+    }
+}
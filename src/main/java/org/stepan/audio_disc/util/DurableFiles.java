@@ -0,0 +1,60 @@
+package org.stepan.audio_disc.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces small files so that after a crash or power loss either the old or the new
+ * content is found, never a partly written file.
+ */
+public final class DurableFiles {
+    private DurableFiles() {
+    }
+
+    /**
+     * Writes the content to a uniquely named temp file next to the target, forces it to
+     * disk, moves it over the target and forces the directory entry as well.
+     *
+     * @param target The file to replace
+     * @param content The new content
+     * @throws IOException if the file cannot be written
+     */
+    public static void replace(Path target, byte[] content) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(directory, target.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        syncDirectory(directory);
+    }
+
+    /**
+     * Forces a directory's entries to disk, so a completed rename survives a power loss.
+     * Not every platform can open a directory; there the rename is left to the file system.
+     *
+     * @param directory The directory
+     */
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows cannot open directories as channels
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.stepan.audio_disc.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link HttpTransfer} against an in-process HTTP server.
+ */
+class HttpTransferTest {
+    private static final String USER_AGENT = "AudioDisc-Test";
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(5);
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private final List<String> ranges = new CopyOnWriteArrayList<>(); // Range header of each GET, "" if none
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws InterruptedException {
+        server.stop(0);
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void downloadsPlainResponse() throws Exception {
+        byte[] content = content(100_000);
+        serve(exchange -> send(exchange, 200, content, 0, content.length, false));
+
+        Path target = tempDir.resolve("plain.bin");
+        long size = HttpTransfer.downloadBlocking(url(), target, USER_AGENT, IDLE_TIMEOUT, null, HttpTransfer.RangeOptions.NONE);
+
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    void failsWithNotModifiedWhenEtagMatches() {
+        byte[] content = content(1000);
+        serve(exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                send(exchange, 200, content, 0, content.length, false);
+            }
+        });
+
+        Path target = tempDir.resolve("cached.bin");
+        HttpTransfer.Transfer transfer = HttpTransfer.download(url(), target, USER_AGENT, IDLE_TIMEOUT, null,
+            HttpTransfer.RangeOptions.NONE, new HttpTransfer.Validators(ETAG, null));
+
+        assertInstanceOf(HttpTransfer.NotModifiedException.class, failure(transfer));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void resumesAfterDroppedConnection() throws Exception {
+        byte[] content = content(200_000);
+        AtomicInteger requests = new AtomicInteger();
+        serve(exchange -> {
+            long start = rangeStart(exchange);
+            if (requests.incrementAndGet() == 1) {
+                // Announce the whole file, then drop the connection halfway through
+                sendAndDrop(exchange, content, content.length / 2);
+            } else if (start > 0) {
+                send(exchange, 206, content, (int) start, content.length, true);
+            } else {
+                send(exchange, 200, content, 0, content.length, true);
+            }
+        });
+
+        Path target = tempDir.resolve("resumed.bin");
+        long size = HttpTransfer.downloadBlocking(url(), target, USER_AGENT, IDLE_TIMEOUT, null,
+            new HttpTransfer.RangeOptions(2, 1));
+
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(2, ranges.size());
+        assertTrue(ranges.get(1).startsWith("bytes="), "second request should resume with a range");
+        assertFalse(ranges.get(1).startsWith("bytes=0-"), "second request should not start over");
+    }
+
+    @Test
+    void restartsWhenServerIgnoresResumeRange() throws Exception {
+        byte[] content = content(200_000);
+        AtomicInteger requests = new AtomicInteger();
+        serve(exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                sendAndDrop(exchange, content, content.length / 3);
+            } else {
+                // Advertises ranges but answers a range request with the whole file
+                send(exchange, 200, content, 0, content.length, true);
+            }
+        });
+
+        Path target = tempDir.resolve("restarted.bin");
+        long size = HttpTransfer.downloadBlocking(url(), target, USER_AGENT, IDLE_TIMEOUT, null,
+            new HttpTransfer.RangeOptions(2, 1));
+
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void fallsBackToSingleRequestWhenServerIgnoresParallelRanges() throws Exception {
+        byte[] content = content(6 * 1024 * 1024);
+        serve(exchange -> {
+            if (rangeStart(exchange) == 0 && exchange.getRequestMethod().equals("GET")) {
+                // Let a later range fail first, so the first one is cancelled before it is answered
+                sleep(500);
+            }
+            send(exchange, 200, content, 0, content.length, true);
+        });
+
+        Path target = tempDir.resolve("parallel.bin");
+        long size = HttpTransfer.downloadBlocking(url(), target, USER_AGENT, IDLE_TIMEOUT, null,
+            new HttpTransfer.RangeOptions(2, 4));
+
+        assertEquals(content.length, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals("", ranges.get(ranges.size() - 1), "the fallback should fetch the whole file");
+    }
+
+    @Test
+    void abortsWhenListenerRejectsOversizeBody() {
+        long limit = 50_000;
+        byte[] content = content(200_000);
+        serve(exchange -> send(exchange, 200, content, 0, content.length, false));
+
+        Path target = tempDir.resolve("oversize.bin");
+        HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+            @Override
+            public void onData(long received, long contentLength) throws IOException {
+                if (received > limit) {
+                    throw new IOException("File too large");
+                }
+            }
+        };
+
+        IOException error = assertThrows(IOException.class, () -> HttpTransfer.downloadBlocking(url(), target,
+            USER_AGENT, IDLE_TIMEOUT, listener, new HttpTransfer.RangeOptions(2, 1)));
+        assertEquals("File too large", error.getMessage());
+        assertFalse(Files.exists(target));
+        assertEquals(1, ranges.size(), "a rejected body must not be resumed");
+    }
+
+    private void serve(HttpHandler handler) {
+        server.createContext("/file", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                ranges.add(range != null ? range : "");
+            }
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/file";
+    }
+
+    /**
+     * Gets the first byte a request asks for, 0 if it has no range.
+     */
+    private static long rangeStart(HttpExchange exchange) {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null || !range.startsWith("bytes=")) {
+            return 0;
+        }
+        return Long.parseLong(range.substring("bytes=".length(), range.indexOf('-')));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] content, int from, int to,
+                             boolean acceptRanges) throws IOException {
+        if (acceptRanges) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().set("ETag", ETAG);
+        }
+        if (status == 206) {
+            exchange.getResponseHeaders().set("Content-Range",
+                "bytes " + from + "-" + (to - 1) + "/" + content.length);
+        }
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(to - from));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, to - from);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content, from, to - from);
+        }
+    }
+
+    /**
+     * Announces the whole file with range support, sends only part of it and closes the connection.
+     */
+    private static void sendAndDrop(HttpExchange exchange, byte[] content, int sent) throws IOException {
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        exchange.sendResponseHeaders(200, content.length);
+        OutputStream body = exchange.getResponseBody();
+        body.write(content, 0, sent);
+        body.flush();
+        // Failing the handler makes the server close the connection without finishing the body
+        throw new IOException("Dropping connection");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Throwable failure(HttpTransfer.Transfer transfer) {
+        CompletionException error = assertThrows(CompletionException.class, () -> transfer.result().join());
+        return error.getCause();
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}